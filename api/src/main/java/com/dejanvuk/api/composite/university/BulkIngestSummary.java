@@ -0,0 +1,17 @@
+package com.dejanvuk.api.composite.university;
+
+import lombok.*;
+
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+@ToString
+@EqualsAndHashCode
+public class BulkIngestSummary {
+    private long universities;
+    private long students;
+    private long failed;
+    // Failed records whose university was published without all of its students, sending them again completes them
+    private long partial;
+    private long elapsedMs;
+}
@@ -1,8 +1,11 @@
 package com.dejanvuk.api.composite.university;
 
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.List;
+
 public interface UniversityCompositeService {
 
     @PostMapping(
@@ -17,6 +20,18 @@ public interface UniversityCompositeService {
             @RequestParam(value = "faultPercent", required = false, defaultValue = "0") int faultPercent
     );
 
+    @PostMapping(
+            value    = "/university-composite/batch",
+            consumes = "application/json",
+            produces = {"application/json", "application/stream+json"})
+    Flux<UniversityAggregate> getCompositeUniversities(@RequestBody List<Integer> universityIds);
+
+    @PostMapping(
+            value    = "/university-composite/bulk",
+            consumes = {"application/stream+json", "application/json"},
+            produces = "application/json")
+    Mono<BulkIngestSummary> createCompositeUniversities(@RequestBody Flux<UniversityAggregate> body);
+
     @DeleteMapping(value = "/university-composite/{universityId}")
     Mono<Void> deleteCompositeUniversity(@PathVariable int universityId);
 }
@@ -2,14 +2,20 @@ package com.dejanvuk.api.core.student;
 
 import org.springframework.web.bind.annotation.*;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
 
 public interface StudentService {
     @PostMapping(value = "student", produces = "application/json", consumes = "application/json")
-    Student createStudent(@RequestBody Student body);
+    Mono<Student> createStudent(@RequestBody Student body);
 
-    @GetMapping(value    = "/student", produces = "application/json")
+    @GetMapping(value    = "/student", produces = {"application/json", "application/stream+json"})
     Flux<Student> getStudents(@RequestParam(value = "universityId", required = true) int universityId);
 
+    @GetMapping(value = "/student", params = "universityIds", produces = {"application/json", "application/stream+json"})
+    Flux<Student> getStudentsByUniversityIds(@RequestParam(value = "universityIds") List<Integer> universityIds);
+
     @DeleteMapping(value = "student")
-    void deleteStudents(@RequestParam(value = "universityId", required = true) int universityId);
+    Mono<Void> deleteStudents(@RequestParam(value = "universityId", required = true) int universityId);
 }
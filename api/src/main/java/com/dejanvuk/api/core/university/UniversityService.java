@@ -1,11 +1,14 @@
 package com.dejanvuk.api.core.university;
 
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.List;
+
 public interface UniversityService {
     @PostMapping(value = "/university", consumes = "application/json", produces = "application/json")
-    University createUniversity(@RequestBody University body);
+    Mono<University> createUniversity(@RequestBody University body);
 
     @GetMapping(value = "/university/{universityId}", produces = "application/json")
     Mono<University> getUniversity(
@@ -14,6 +17,9 @@ public interface UniversityService {
             @RequestParam(value = "faultPercent", required = false, defaultValue = "0") int faultPercent
     );
 
+    @GetMapping(value = "/university", produces = {"application/json", "application/stream+json"})
+    Flux<University> getUniversities(@RequestParam(value = "universityIds") List<Integer> universityIds);
+
     @DeleteMapping(value = "university/{universityId}")
-    void deleteUniversity(@PathVariable int universityId);
+    Mono<Void> deleteUniversity(@PathVariable int universityId);
 }
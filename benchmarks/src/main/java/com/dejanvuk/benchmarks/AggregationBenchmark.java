@@ -0,0 +1,40 @@
+package com.dejanvuk.benchmarks;
+
+import com.dejanvuk.api.composite.university.UniversityAggregate;
+import com.dejanvuk.api.core.student.Student;
+import com.dejanvuk.api.core.university.University;
+import com.dejanvuk.microservices.core.universitycomposite.services.UniversityCompositeServiceImpl;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AggregationBenchmark {
+
+    @Param({"0", "10", "1000"})
+    private int students;
+
+    private University university;
+    private List<Student> studentList;
+
+    @Setup
+    public void setUp() {
+        university = new University(1, "name", "country", "university-address");
+        studentList = IntStream.rangeClosed(1, students)
+                .mapToObj(studentId -> new Student(1, studentId, "firstName", "lastName", "section", "student-address"))
+                .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public UniversityAggregate createUniversityAggregate() {
+        return UniversityCompositeServiceImpl.createUniversityAggregate(university, studentList, "composite-address");
+    }
+}
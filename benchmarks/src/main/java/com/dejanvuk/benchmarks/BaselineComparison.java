@@ -0,0 +1,67 @@
+package com.dejanvuk.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Compares two JMH JSON result files and exits with 1 when a benchmark lost more than the allowed
+ * throughput or allocates more per operation than the baseline.
+ *
+ * Usage: BaselineComparison baseline.json current.json [maxRegressionPercent]
+ */
+public class BaselineComparison {
+
+    private static final String ALLOC_NORM = "·gc.alloc.rate.norm";
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: BaselineComparison baseline.json current.json [maxRegressionPercent]");
+            System.exit(2);
+        }
+
+        double maxRegression = args.length > 2 ? Double.parseDouble(args[2]) : 10.0;
+
+        Map<String, JsonNode> baseline = read(new File(args[0]));
+        Map<String, JsonNode> current = read(new File(args[1]));
+
+        boolean regressed = false;
+        System.out.printf("%-90s %15s %15s %9s %12s %12s%n", "benchmark", "baseline", "current", "change", "B/op base", "B/op now");
+
+        for (Map.Entry<String, JsonNode> entry : current.entrySet()) {
+            JsonNode before = baseline.get(entry.getKey());
+            if (before == null) {
+                System.out.printf("%-90s %15s%n", entry.getKey(), "(new)");
+                continue;
+            }
+
+            double baseScore = before.path("primaryMetric").path("score").asDouble();
+            double score = entry.getValue().path("primaryMetric").path("score").asDouble();
+            double change = (score - baseScore) / baseScore * 100;
+
+            double baseAlloc = before.path("secondaryMetrics").path(ALLOC_NORM).path("score").asDouble(Double.NaN);
+            double alloc = entry.getValue().path("secondaryMetrics").path(ALLOC_NORM).path("score").asDouble(Double.NaN);
+
+            boolean slower = change < -maxRegression;
+            boolean allocates = !Double.isNaN(baseAlloc) && !Double.isNaN(alloc) && alloc > baseAlloc * (1 + maxRegression / 100);
+            regressed |= slower || allocates;
+
+            System.out.printf("%-90s %15.3f %15.3f %8.1f%% %12.1f %12.1f%s%n",
+                    entry.getKey(), baseScore, score, change, baseAlloc, alloc, slower || allocates ? "  REGRESSION" : "");
+        }
+
+        System.exit(regressed ? 1 : 0);
+    }
+
+    private static Map<String, JsonNode> read(File file) throws IOException {
+        Map<String, JsonNode> results = new LinkedHashMap<>();
+        for (JsonNode result : new ObjectMapper().readTree(file)) {
+            results.put(result.path("benchmark").asText() + result.path("params"), result);
+        }
+        return results;
+    }
+}
@@ -0,0 +1,53 @@
+package com.dejanvuk.benchmarks;
+
+import com.dejanvuk.api.core.student.Student;
+import com.dejanvuk.api.event.Event;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import static com.dejanvuk.api.event.Event.Type.CREATE;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EventSerializationBenchmark {
+
+    private static final TypeReference<Event<Integer, Student>> STUDENT_EVENT = new TypeReference<Event<Integer, Student>>() {};
+
+    @Param({"json", "smile"})
+    private String format;
+
+    private ObjectMapper mapper;
+    private Event<Integer, Student> event;
+    private byte[] serialized;
+
+    @Setup
+    public void setUp() throws IOException {
+        // Matches the mappers the services use on the message bus
+        mapper = "smile".equals(format) ?
+                Jackson2ObjectMapperBuilder.smile().build() :
+                Jackson2ObjectMapperBuilder.json().featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS).build();
+
+        event = new Event(CREATE, 1, new Student(1, 1, "firstName", "lastName", "section", null));
+        serialized = mapper.writeValueAsBytes(event);
+    }
+
+    @Benchmark
+    public byte[] serializeStudentEvent() throws IOException {
+        return mapper.writeValueAsBytes(event);
+    }
+
+    @Benchmark
+    public Event<Integer, Student> deserializeStudentEvent() throws IOException {
+        return mapper.readValue(serialized, STUDENT_EVENT);
+    }
+}
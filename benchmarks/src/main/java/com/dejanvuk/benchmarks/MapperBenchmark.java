@@ -0,0 +1,72 @@
+package com.dejanvuk.benchmarks;
+
+import com.dejanvuk.api.core.student.Student;
+import com.dejanvuk.api.core.university.University;
+import com.dejanvuk.microservices.core.student.persistence.StudentEntity;
+import com.dejanvuk.microservices.core.student.services.StudentMapper;
+import com.dejanvuk.microservices.core.university.persistence.UniversityEntity;
+import com.dejanvuk.microservices.core.university.services.UniversityMapper;
+import org.mapstruct.factory.Mappers;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MapperBenchmark {
+
+    @Param({"100"})
+    private int listSize;
+
+    private final StudentMapper studentMapper = Mappers.getMapper(StudentMapper.class);
+    private final UniversityMapper universityMapper = Mappers.getMapper(UniversityMapper.class);
+
+    private StudentEntity studentEntity;
+    private Student student;
+    private List<StudentEntity> studentEntities;
+    private UniversityEntity universityEntity;
+    private University university;
+
+    @Setup
+    public void setUp() {
+        studentEntity = new StudentEntity(1, 1, "firstName", "lastName", "section");
+        student = new Student(1, 1, "firstName", "lastName", "section", "address");
+        studentEntities = IntStream.rangeClosed(1, listSize)
+                .mapToObj(studentId -> new StudentEntity(1, studentId, "firstName", "lastName", "section"))
+                .collect(Collectors.toList());
+        universityEntity = new UniversityEntity(1, "name", "country");
+        university = new University(1, "name", "country", "address");
+    }
+
+    @Benchmark
+    public Student studentEntityToApi() {
+        return studentMapper.entityToApi(studentEntity);
+    }
+
+    @Benchmark
+    public StudentEntity studentApiToEntity() {
+        return studentMapper.apiToEntity(student);
+    }
+
+    @Benchmark
+    public List<Student> studentEntityListToApiList() {
+        return studentMapper.entityListToApiList(studentEntities);
+    }
+
+    @Benchmark
+    public University universityEntityToApi() {
+        return universityMapper.universityEntityToUniversity(universityEntity);
+    }
+
+    @Benchmark
+    public UniversityEntity universityApiToEntity() {
+        return universityMapper.universityToUniversityEntity(university);
+    }
+}
@@ -0,0 +1,151 @@
+package com.dejanvuk.loadtest;
+
+import com.dejanvuk.api.composite.university.StudentSummary;
+import com.dejanvuk.api.composite.university.UniversityAggregate;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Open-loop driver: starts requests at loadtest.ratePerSec whether or not earlier ones have completed, reads random
+ * seeded universities and creates new ones for the configured share of writes. Latency is measured from the time a
+ * request was due, so requests held back by loadtest.concurrency or a slow system count the wait as well (no
+ * coordinated omission). Samples taken during the warmup are discarded.
+ */
+public class LoadDriver {
+
+    private static final Logger LOG = LoggerFactory.getLogger(LoadDriver.class);
+
+    private static final long MAX_LATENCY_MICROS = TimeUnit.MINUTES.toMicros(1);
+
+    private final WebClient client;
+    private final LoadTestSettings settings;
+
+    private final AtomicInteger nextUniversityId;
+
+    public LoadDriver(String baseUrl, LoadTestSettings settings) {
+        this.client = WebClient.create(baseUrl);
+        this.settings = settings;
+        this.nextUniversityId = new AtomicInteger(settings.getUniversities());
+    }
+
+    public void seed() {
+        Flux.range(1, settings.getUniversities())
+                .flatMap(universityId -> create(universityId), settings.getConcurrency())
+                .blockLast();
+
+        LOG.info("Seeded {} universities with {} students each", settings.getUniversities(), settings.getStudentsPerUniversity());
+    }
+
+    public Map<String, Object> run() {
+        Operation reads = new Operation();
+        Operation writes = new Operation();
+
+        long warmupEnd = System.nanoTime() + TimeUnit.SECONDS.toNanos(settings.getWarmupSec());
+        AtomicLong measuredStart = new AtomicLong();
+
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / settings.getRatePerSec();
+        AtomicLong firstStart = new AtomicLong();
+
+        // Ticks that can't start because concurrency requests are in flight wait in the buffer, their latency
+        // still counts from when they were due
+        Flux.interval(Duration.ofNanos(intervalNanos))
+                .doOnSubscribe(s -> firstStart.set(System.nanoTime()))
+                .onBackpressureBuffer()
+                .flatMap(tick -> {
+                    long start = firstStart.get() + (tick + 1) * intervalNanos;
+                    boolean write = ThreadLocalRandom.current().nextInt(100) < settings.getWritePercent();
+                    Mono<?> request = write ? create(nextUniversityId.incrementAndGet()) : read(ThreadLocalRandom.current().nextInt(1, settings.getUniversities() + 1));
+                    Operation operation = write ? writes : reads;
+
+                    return request
+                            .doOnSuccess(r -> record(operation, start, warmupEnd, measuredStart, false))
+                            .onErrorResume(ex -> {
+                                record(operation, start, warmupEnd, measuredStart, true);
+                                return Mono.empty();
+                            });
+                }, settings.getConcurrency())
+                .take(Duration.ofSeconds(settings.getWarmupSec() + settings.getDurationSec()))
+                .blockLast();
+
+        double elapsedSec = (System.nanoTime() - measuredStart.get()) / 1_000_000_000.0;
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("timestamp", Instant.now().toString());
+        report.put("durationSec", settings.getDurationSec());
+        report.put("ratePerSec", settings.getRatePerSec());
+        report.put("concurrency", settings.getConcurrency());
+        report.put("writePercent", settings.getWritePercent());
+        report.put("universities", settings.getUniversities());
+        report.put("studentsPerUniversity", settings.getStudentsPerUniversity());
+
+        Histogram all = new Histogram(MAX_LATENCY_MICROS, 3);
+        all.add(reads.latencies);
+        all.add(writes.latencies);
+        report.put("total", summary(all, reads.errors.get() + writes.errors.get(), elapsedSec));
+        report.put("read", summary(reads.latencies, reads.errors.get(), elapsedSec));
+        report.put("write", summary(writes.latencies, writes.errors.get(), elapsedSec));
+        return report;
+    }
+
+    private void record(Operation operation, long start, long warmupEnd, AtomicLong measuredStart, boolean error) {
+        long now = System.nanoTime();
+        if (now < warmupEnd) return;
+
+        measuredStart.compareAndSet(0, now);
+        operation.latencies.recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(now - start), MAX_LATENCY_MICROS));
+        if (error) operation.errors.incrementAndGet();
+    }
+
+    private Map<String, Object> summary(Histogram latencies, long errors, double elapsedSec) {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("requests", latencies.getTotalCount());
+        summary.put("errors", errors);
+        summary.put("requestsPerSec", elapsedSec > 0 ? latencies.getTotalCount() / elapsedSec : 0);
+
+        Map<String, Object> latencyMs = new LinkedHashMap<>();
+        latencyMs.put("p50", latencies.getValueAtPercentile(50) / 1000.0);
+        latencyMs.put("p99", latencies.getValueAtPercentile(99) / 1000.0);
+        latencyMs.put("p999", latencies.getValueAtPercentile(99.9) / 1000.0);
+        latencyMs.put("max", latencies.getMaxValue() / 1000.0);
+        latencyMs.put("mean", latencies.getMean() / 1000.0);
+        summary.put("latencyMs", latencyMs);
+        return summary;
+    }
+
+    private Mono<?> read(int universityId) {
+        return client.get().uri("/university-composite/{universityId}", universityId)
+                .retrieve().bodyToMono(UniversityAggregate.class);
+    }
+
+    private Mono<?> create(int universityId) {
+        List<StudentSummary> students = IntStream.rangeClosed(1, settings.getStudentsPerUniversity())
+                .mapToObj(studentId -> new StudentSummary(studentId, "firstName " + studentId, "lastName " + studentId, "section"))
+                .collect(Collectors.toList());
+
+        return client.post().uri("/university-composite")
+                .bodyValue(new UniversityAggregate(universityId, "University " + universityId, "country", students, null))
+                .retrieve().toBodilessEntity();
+    }
+
+    private static class Operation {
+        private final Histogram latencies = new ConcurrentHistogram(MAX_LATENCY_MICROS, 3);
+        private final AtomicLong errors = new AtomicLong();
+    }
+}
@@ -0,0 +1,109 @@
+package com.dejanvuk.loadtest;
+
+import com.dejanvuk.microservices.core.student.StudentApplication;
+import com.dejanvuk.microservices.core.university.UniversityServiceApplication;
+import com.dejanvuk.microservices.core.universitycomposite.UniversityCompositeApplication;
+import com.dejanvuk.microservices.core.universitycomposite.services.UniversityCompositeIntegration;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.cloud.stream.messaging.Sink;
+import org.springframework.cloud.stream.test.binder.MessageCollector;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.File;
+import java.util.Map;
+
+/**
+ * Boots university-service (embedded Mongo), student-service (H2) and university-composite-service in one JVM,
+ * bridges the composite's test binder output to the core services and drives a read/write mix against the composite.
+ *
+ * Configured with system properties, see {@link LoadTestSettings}. Results are written as JSON to loadtest.output.
+ */
+public class LoadTest {
+
+    private static final Logger LOG = LoggerFactory.getLogger(LoadTest.class);
+
+    private static final String MONGO_AUTO_CONFIGURATION =
+            "org.springframework.boot.autoconfigure.mongo.MongoAutoConfiguration," +
+            "org.springframework.boot.autoconfigure.mongo.MongoReactiveAutoConfiguration," +
+            "org.springframework.boot.autoconfigure.data.mongo.MongoDataAutoConfiguration," +
+            "org.springframework.boot.autoconfigure.data.mongo.MongoReactiveDataAutoConfiguration," +
+            "org.springframework.boot.autoconfigure.data.mongo.MongoRepositoriesAutoConfiguration," +
+            "org.springframework.boot.autoconfigure.data.mongo.MongoReactiveRepositoriesAutoConfiguration," +
+            "org.springframework.boot.autoconfigure.mongo.embedded.EmbeddedMongoAutoConfiguration";
+
+    private static final String JPA_AUTO_CONFIGURATION =
+            "org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration," +
+            "org.springframework.boot.autoconfigure.jdbc.DataSourceTransactionManagerAutoConfiguration," +
+            "org.springframework.boot.autoconfigure.orm.jpa.HibernateJpaAutoConfiguration";
+
+    private static final String SECURITY_AUTO_CONFIGURATION =
+            "org.springframework.boot.autoconfigure.security.reactive.ReactiveSecurityAutoConfiguration," +
+            "org.springframework.boot.autoconfigure.security.reactive.ReactiveUserDetailsServiceAutoConfiguration," +
+            "org.springframework.boot.autoconfigure.security.oauth2.resource.reactive.ReactiveOAuth2ResourceServerAutoConfiguration," +
+            "org.springframework.boot.actuate.autoconfigure.security.reactive.ReactiveManagementWebSecurityAutoConfiguration";
+
+    public static void main(String[] args) throws Exception {
+        LoadTestSettings settings = LoadTestSettings.fromSystemProperties();
+        LOG.info("Starting load test with {}", settings);
+
+        try (ConfigurableApplicationContext university = start(new SpringApplicationBuilder(UniversityServiceApplication.class),
+                     "university", JPA_AUTO_CONFIGURATION + "," + SECURITY_AUTO_CONFIGURATION, "spring.data.mongodb.port=0");
+             ConfigurableApplicationContext student = start(new SpringApplicationBuilder(StudentApplication.class),
+                     "student", MONGO_AUTO_CONFIGURATION + "," + SECURITY_AUTO_CONFIGURATION, "spring.datasource.url=jdbc:h2:mem:student-db");
+             ConfigurableApplicationContext composite = start(new SpringApplicationBuilder(UniversityCompositeApplication.class, LoadTestSecurityConfig.class),
+                     "university-composite", MONGO_AUTO_CONFIGURATION + "," + JPA_AUTO_CONFIGURATION,
+                     "spring.main.allow-bean-definition-overriding=true",
+                     "app.university-service.timeoutSec=" + settings.getUniversityTimeoutSec(),
+                     "spring.cloud.discovery.client.simple.instances.university[0].uri=http://localhost:" + port(university),
+                     "spring.cloud.discovery.client.simple.instances.student[0].uri=http://localhost:" + port(student))) {
+
+            UniversityCompositeIntegration.MessageSources sources = composite.getBean(UniversityCompositeIntegration.MessageSources.class);
+            MessageCollector collector = composite.getBean(MessageCollector.class);
+
+            MessageBridge bridge = new MessageBridge(settings.isDeferredAck());
+            bridge.connect("universities", collector.forChannel(sources.outputUniversities()), university.getBean(Sink.class).input());
+            bridge.connect("students", collector.forChannel(sources.outputStudents()), student.getBean(Sink.class).input());
+
+            try {
+                LoadDriver driver = new LoadDriver("http://localhost:" + port(composite), settings);
+
+                driver.seed();
+                bridge.awaitIdle();
+
+                Map<String, Object> report = driver.run();
+                report.put("bridge", bridge.stats());
+
+                ObjectMapper mapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+                File output = new File(settings.getOutput());
+                mapper.writeValue(output, report);
+                LOG.info("Load test results written to {}:\n{}", output.getAbsolutePath(), mapper.writeValueAsString(report));
+
+            } finally {
+                bridge.close();
+            }
+        }
+    }
+
+    private static ConfigurableApplicationContext start(SpringApplicationBuilder builder, String name, String excludedAutoConfiguration, String... properties) {
+        return builder
+                .properties(
+                        "spring.application.name=" + name,
+                        "server.port=0",
+                        "spring.cloud.config.enabled=false",
+                        "eureka.client.enabled=false",
+                        "spring.zipkin.enabled=false",
+                        "logging.level.root=WARN",
+                        "logging.level.com.dejanvuk.loadtest=INFO",
+                        "spring.autoconfigure.exclude=" + excludedAutoConfiguration)
+                .properties(properties)
+                .run();
+    }
+
+    private static int port(ConfigurableApplicationContext context) {
+        return Integer.parseInt(context.getEnvironment().getProperty("local.server.port"));
+    }
+}
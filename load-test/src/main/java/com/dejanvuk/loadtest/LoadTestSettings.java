@@ -0,0 +1,69 @@
+package com.dejanvuk.loadtest;
+
+public class LoadTestSettings {
+
+    private final int durationSec = Integer.getInteger("loadtest.durationSec", 60);
+    private final int warmupSec = Integer.getInteger("loadtest.warmupSec", 10);
+    private final int ratePerSec = Integer.getInteger("loadtest.ratePerSec", 200);
+    private final int concurrency = Integer.getInteger("loadtest.concurrency", 64);
+    private final int writePercent = Integer.getInteger("loadtest.writePercent", 10);
+    private final int universities = Integer.getInteger("loadtest.universities", 100);
+    private final int studentsPerUniversity = Integer.getInteger("loadtest.studentsPerUniversity", 10);
+    private final int universityTimeoutSec = Integer.getInteger("loadtest.universityTimeoutSec", 2);
+    private final boolean deferredAck = Boolean.parseBoolean(System.getProperty("loadtest.deferredAck", "true"));
+    private final String output = System.getProperty("loadtest.output", "target/load-test-results.json");
+
+    private LoadTestSettings() {
+    }
+
+    public static LoadTestSettings fromSystemProperties() {
+        return new LoadTestSettings();
+    }
+
+    public int getDurationSec() {
+        return durationSec;
+    }
+
+    public int getWarmupSec() {
+        return warmupSec;
+    }
+
+    public int getRatePerSec() {
+        return ratePerSec;
+    }
+
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    public int getWritePercent() {
+        return writePercent;
+    }
+
+    public int getUniversities() {
+        return universities;
+    }
+
+    public int getStudentsPerUniversity() {
+        return studentsPerUniversity;
+    }
+
+    public int getUniversityTimeoutSec() {
+        return universityTimeoutSec;
+    }
+
+    public boolean isDeferredAck() {
+        return deferredAck;
+    }
+
+    public String getOutput() {
+        return output;
+    }
+
+    @Override
+    public String toString() {
+        return "durationSec=" + durationSec + ", warmupSec=" + warmupSec + ", ratePerSec=" + ratePerSec + ", concurrency=" + concurrency + ", writePercent=" + writePercent +
+                ", universities=" + universities + ", studentsPerUniversity=" + studentsPerUniversity +
+                ", deferredAck=" + deferredAck;
+    }
+}
@@ -0,0 +1,138 @@
+package com.dejanvuk.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.support.MessageBuilder;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Stands in for the broker: drains what the composite's test binder collected and delivers it to the input
+ * channel of the consuming service, one thread per destination like a single broker consumer.
+ *
+ * With deferred acknowledgements each message carries a Kafka style acknowledgment header, like a binding with
+ * autoCommitOffset false, and counts as handled once the consumer acknowledges it rather than when send returns.
+ */
+public class MessageBridge implements AutoCloseable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MessageBridge.class);
+
+    private static final long MAX_LATENCY_MICROS = TimeUnit.MINUTES.toMicros(1);
+
+    private final List<Connection> connections = new ArrayList<>();
+
+    private final boolean deferredAck;
+
+    private volatile boolean running = true;
+
+    public MessageBridge(boolean deferredAck) {
+        this.deferredAck = deferredAck;
+    }
+
+    public void connect(String destination, BlockingQueue<Message<?>> source, MessageChannel target) {
+        Connection connection = new Connection(destination, source, target);
+        connections.add(connection);
+
+        Thread thread = new Thread(connection, "bridge-" + destination);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public void awaitIdle() throws InterruptedException {
+        while (connections.stream().anyMatch(c -> !c.source.isEmpty() || c.acknowledged.get() < c.delivered.get())) {
+            Thread.sleep(50);
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        connections.forEach(c -> {
+            Map<String, Object> destination = new LinkedHashMap<>();
+            destination.put("delivered", c.delivered.get());
+            destination.put("acknowledged", c.acknowledged.get());
+            destination.put("failed", c.failed.get());
+            destination.put("pending", c.source.size());
+
+            Map<String, Object> handledMs = new LinkedHashMap<>();
+            handledMs.put("p50", c.handled.getValueAtPercentile(50) / 1000.0);
+            handledMs.put("p99", c.handled.getValueAtPercentile(99) / 1000.0);
+            handledMs.put("max", c.handled.getMaxValue() / 1000.0);
+            destination.put("handledMs", handledMs);
+            stats.put(c.destination, destination);
+        });
+        return stats;
+    }
+
+    @Override
+    public void close() {
+        running = false;
+    }
+
+    private class Connection implements Runnable {
+
+        private final String destination;
+        private final BlockingQueue<Message<?>> source;
+        private final MessageChannel target;
+
+        private final AtomicLong delivered = new AtomicLong();
+        private final AtomicLong acknowledged = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+        private final Histogram handled = new ConcurrentHistogram(MAX_LATENCY_MICROS, 3);
+
+        private Connection(String destination, BlockingQueue<Message<?>> source, MessageChannel target) {
+            this.destination = destination;
+            this.source = source;
+            this.target = target;
+        }
+
+        // Peeks and only removes a message once it is handled, so an empty queue means the destination is idle
+        @Override
+        public void run() {
+            while (running) {
+                Message<?> message = source.peek();
+                if (message == null) {
+                    LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+                    continue;
+                }
+
+                long start = System.nanoTime();
+                try {
+                    if (deferredAck) {
+                        Acknowledgment acknowledgment = () -> acknowledge(start);
+                        delivered.incrementAndGet();
+                        target.send(MessageBuilder.fromMessage(message).setHeader(KafkaHeaders.ACKNOWLEDGMENT, acknowledgment).build());
+                    } else {
+                        target.send(message);
+                        delivered.incrementAndGet();
+                        acknowledge(start);
+                    }
+                } catch (RuntimeException ex) {
+                    failed.incrementAndGet();
+                    if (deferredAck) acknowledge(start);
+                    LOG.debug("Delivery to {} failed: {}", destination, ex.toString());
+                } finally {
+                    source.poll();
+                }
+            }
+        }
+
+        // Time from delivery until the consumer is done with the message, whichever way it acknowledges
+        private void acknowledge(long start) {
+            handled.recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start), MAX_LATENCY_MICROS));
+            acknowledged.incrementAndGet();
+        }
+    }
+}
@@ -1,22 +1,31 @@
 package com.dejanvuk.springcloud.gateway;
 
+import com.dejanvuk.springcloud.gateway.health.DownstreamHealthIndicator;
+import com.dejanvuk.springcloud.gateway.health.HealthCheckProperties;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.actuate.health.*;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Mono;
 
+import java.time.Duration;
 import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
 
 @Configuration
+@EnableConfigurationProperties(HealthCheckProperties.class)
 public class HealthCheckConfiguration {
 
     private static final Logger LOG = LoggerFactory.getLogger(HealthCheckConfiguration.class);
 
-    private HealthAggregator healthAggregator;
+    private final StatusAggregator statusAggregator;
+
+    private final HealthCheckProperties properties;
 
     private final WebClient.Builder webClientBuilder;
 
@@ -25,31 +34,38 @@ public class HealthCheckConfiguration {
     @Autowired
     public HealthCheckConfiguration(
             WebClient.Builder webClientBuilder,
-            HealthAggregator healthAggregator
+            StatusAggregator statusAggregator,
+            HealthCheckProperties properties
     ) {
         this.webClientBuilder = webClientBuilder;
-        this.healthAggregator = healthAggregator;
+        this.statusAggregator = statusAggregator;
+        this.properties = properties;
     }
 
-    @Bean
-    ReactiveHealthIndicator healthcheckMicroservices() {
+    @Bean(initMethod = "start", destroyMethod = "stop")
+    DownstreamHealthIndicator healthcheckMicroservices() {
+
+        Map<String, Supplier<Mono<Health>>> checks = new LinkedHashMap<>();
+        checks.put("auth-server",          () -> getHealth("http://auth-server"));
+        checks.put("university",           () -> getHealth("http://university"));
+        checks.put("student",              () -> getHealth("http://student"));
+        checks.put("university-composite", () -> getHealth("http://university-composite"));
+
+        Map<String, Duration> timeouts = new LinkedHashMap<>();
+        properties.getTimeouts().forEach((name, timeoutMs) -> timeouts.put(name, Duration.ofMillis(timeoutMs)));
 
-        ReactiveHealthIndicatorRegistry registry = new DefaultReactiveHealthIndicatorRegistry(new LinkedHashMap<>());
-        registry.register("auth-server",       () -> getHealth("http://auth-server"));
-        registry.register("university",           () -> getHealth("http://university"));
-        registry.register("student",            () -> getHealth("http://student"));
-        registry.register("university-composite", () -> getHealth("http://university-composite"));
+        LOG.info("Downstream health timeoutMs: {}, overrides: {}, cacheTtlMs: {}, refreshIntervalMs: {}",
+                properties.getTimeoutMs(), properties.getTimeouts(), properties.getCacheTtlMs(), properties.getRefreshIntervalMs());
 
-        return new CompositeReactiveHealthIndicator(healthAggregator, registry);
+        return new DownstreamHealthIndicator(checks, timeouts, Duration.ofMillis(properties.getTimeoutMs()), statusAggregator,
+                Duration.ofMillis(properties.getCacheTtlMs()), Duration.ofMillis(properties.getRefreshIntervalMs()));
     }
 
     private Mono<Health> getHealth(String url) {
         url += "/actuator/health";
         LOG.debug("Will call the Health API on URL: {}", url);
         return getWebClient().get().uri(url).retrieve().bodyToMono(String.class)
-                .map(s -> new Health.Builder().up().build())
-                .onErrorResume(ex -> Mono.just(new Health.Builder().down(ex).build()))
-                .log();
+                .map(s -> new Health.Builder().up().build());
     }
 
     private WebClient getWebClient() {
@@ -0,0 +1,45 @@
+package com.dejanvuk.springcloud.gateway.cache;
+
+import org.springframework.http.HttpHeaders;
+
+import java.time.Duration;
+
+class CachedResponse {
+
+    private final HttpHeaders headers;
+    private final byte[] body;
+    private final String etag;
+    private final Duration ttl;
+    private final long storedAt = System.currentTimeMillis();
+
+    CachedResponse(HttpHeaders headers, byte[] body, String etag, Duration ttl) {
+        this.headers = HttpHeaders.readOnlyHttpHeaders(headers);
+        this.body = body;
+        this.etag = etag;
+        this.ttl = ttl;
+    }
+
+    HttpHeaders getHeaders() {
+        return headers;
+    }
+
+    byte[] getBody() {
+        return body;
+    }
+
+    String getEtag() {
+        return etag;
+    }
+
+    Duration getTtl() {
+        return ttl;
+    }
+
+    long getAgeSec() {
+        return (System.currentTimeMillis() - storedAt) / 1000;
+    }
+
+    int weight() {
+        return body.length + headers.size() * 64;
+    }
+}
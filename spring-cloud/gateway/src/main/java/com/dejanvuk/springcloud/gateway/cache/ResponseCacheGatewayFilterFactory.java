@@ -0,0 +1,360 @@
+package com.dejanvuk.springcloud.gateway.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.reactivestreams.Publisher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
+
+// Caches successful GET responses of a route, keyed by path, query, Accept and the value of a token claim, so callers
+// with different scopes never share an entry. Writes through the route evict the entries of the resources they touch
+@Component
+public class ResponseCacheGatewayFilterFactory extends AbstractGatewayFilterFactory<ResponseCacheGatewayFilterFactory.Config> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ResponseCacheGatewayFilterFactory.class);
+
+    private static final String METRIC_NAME = "gateway.response.cache";
+    private static final String CACHE_HEADER = "X-Cache";
+
+    private static final Set<MediaType> STREAMING_TYPES = Set.of(
+            MediaType.APPLICATION_STREAM_JSON, MediaType.TEXT_EVENT_STREAM, MediaType.valueOf("application/x-ndjson"));
+
+    // Connection level or per-client headers are never replayed from the cache
+    private static final Set<String> EXCLUDED_HEADERS = Set.of(
+            HttpHeaders.TRANSFER_ENCODING.toLowerCase(), HttpHeaders.CONNECTION.toLowerCase(), HttpHeaders.SET_COOKIE.toLowerCase(),
+            HttpHeaders.DATE.toLowerCase(), HttpHeaders.CONTENT_LENGTH.toLowerCase(), CACHE_HEADER.toLowerCase());
+
+    private final MeterRegistry registry;
+    private final int maxBodyBytes;
+
+    private final Cache<CacheKey, CachedResponse> cache;
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+
+    @Autowired
+    public ResponseCacheGatewayFilterFactory(MeterRegistry registry,
+                                             @Value("${app.response-cache.maxSizeMb:64}") long maxSizeMb,
+                                             @Value("${app.response-cache.maxBodyKb:1024}") int maxBodyKb) {
+        super(Config.class);
+        this.registry = registry;
+        this.maxBodyBytes = maxBodyKb * 1024;
+
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxSizeMb * 1024 * 1024)
+                .weigher((CacheKey key, CachedResponse value) -> value.weight())
+                .expireAfter(new Expiry<CacheKey, CachedResponse>() {
+                    @Override
+                    public long expireAfterCreate(CacheKey key, CachedResponse value, long currentTime) {
+                        return value.getTtl().toNanos();
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(CacheKey key, CachedResponse value, long currentTime, long currentDuration) {
+                        return value.getTtl().toNanos();
+                    }
+
+                    @Override
+                    public long expireAfterRead(CacheKey key, CachedResponse value, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+        registry.gauge(METRIC_NAME + ".size", cache, Cache::estimatedSize);
+
+        LOG.info("Response cache maxSizeMb: {}, maxBodyKb: {}", maxSizeMb, maxBodyKb);
+    }
+
+    @Override
+    public List<String> shortcutFieldOrder() {
+        return Arrays.asList("ttlSec", "partitionClaim");
+    }
+
+    // The response has to be decorated before NettyWriteResponseFilter writes the upstream body, otherwise the cache
+    // never sees it
+    @Override
+    public GatewayFilter apply(Config config) {
+        return new OrderedGatewayFilter((exchange, chain) -> {
+            ServerHttpRequest request = exchange.getRequest();
+            String routeId = routeId(exchange);
+            String path = request.getPath().value();
+
+            if (request.getMethod() != HttpMethod.GET) {
+                if (config.getReadPaths().contains(path)) return chain.filter(exchange);
+
+                return chain.filter(exchange).doOnSuccess(v -> {
+                    HttpStatus status = exchange.getResponse().getStatusCode();
+                    if (status == null || status.is2xxSuccessful()) invalidate(routeId, request.getMethod() == HttpMethod.POST ? parent(path) : path);
+                });
+            }
+
+            List<String> requestCacheControl = cacheControl(request.getHeaders());
+            if (requestCacheControl.contains("no-store")) {
+                counter(routeId, "bypass").increment();
+                return chain.filter(exchange);
+            }
+
+            return partition(config.getPartitionClaim()).flatMap(partition -> {
+                CacheKey key = new CacheKey(routeId, path, request.getURI().getRawQuery(), request.getHeaders().getFirst(HttpHeaders.ACCEPT), partition);
+
+                CachedResponse cached = requestCacheControl.contains("no-cache") ? null : cache.getIfPresent(key);
+                if (cached != null) {
+                    return serve(exchange, routeId, cached);
+                }
+
+                counter(routeId, "miss").increment();
+                return chain.filter(exchange.mutate().response(new CachingResponse(exchange, key, config)).build());
+            });
+        }, NettyWriteResponseFilter.WRITE_RESPONSE_FILTER_ORDER - 1);
+    }
+
+    private Mono<Void> serve(ServerWebExchange exchange, String routeId, CachedResponse cached) {
+        ServerHttpResponse response = exchange.getResponse();
+        HttpHeaders headers = response.getHeaders();
+        headers.set(CACHE_HEADER, "HIT");
+        headers.set(HttpHeaders.AGE, String.valueOf(cached.getAgeSec()));
+
+        if (matches(exchange.getRequest().getHeaders().getIfNoneMatch(), cached.getEtag())) {
+            counter(routeId, "not_modified").increment();
+            headers.setETag(cached.getEtag());
+            response.setStatusCode(HttpStatus.NOT_MODIFIED);
+            return response.setComplete();
+        }
+
+        counter(routeId, "hit").increment();
+        headers.addAll(cached.getHeaders());
+        headers.setContentLength(cached.getBody().length);
+        response.setStatusCode(HttpStatus.OK);
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(cached.getBody())));
+    }
+
+    // A write evicts its path and everything below it. A POST adds to or changes members of its parent collection, e.g.
+    // POST /university-composite or /university-composite/bulk, so it evicts everything below the parent
+    private void invalidate(String routeId, String path) {
+        String prefix = path.endsWith("/") ? path : path + "/";
+        cache.asMap().keySet().removeIf(key -> key.routeId.equals(routeId) && (key.path.equals(path) || key.path.startsWith(prefix)));
+    }
+
+    private static String parent(String path) {
+        String trimmed = path.endsWith("/") ? path.substring(0, path.length() - 1) : path;
+        return trimmed.substring(0, trimmed.lastIndexOf('/') + 1);
+    }
+
+    private static Mono<String> partition(String claim) {
+        if (claim == null || claim.isEmpty()) return Mono.just("");
+
+        return ReactiveSecurityContextHolder.getContext()
+                .map(context -> context.getAuthentication())
+                .filter(JwtAuthenticationToken.class::isInstance)
+                .map(authentication -> Objects.toString(((JwtAuthenticationToken) authentication).getToken().getClaims().get(claim), ""))
+                .defaultIfEmpty("");
+    }
+
+    private static String routeId(ServerWebExchange exchange) {
+        Route route = exchange.getAttribute(GATEWAY_ROUTE_ATTR);
+        return route == null ? "" : route.getId();
+    }
+
+    private static List<String> cacheControl(HttpHeaders headers) {
+        String value = headers.getCacheControl();
+        if (value == null) return List.of();
+
+        return Arrays.stream(value.split(",")).map(directive -> directive.trim().toLowerCase()).collect(Collectors.toList());
+    }
+
+    private static boolean matches(List<String> ifNoneMatch, String etag) {
+        if (etag == null) return false;
+
+        String opaque = stripWeak(etag);
+        return ifNoneMatch.stream().anyMatch(candidate -> candidate.equals("*") || stripWeak(candidate).equals(opaque));
+    }
+
+    private static String stripWeak(String etag) {
+        return etag.startsWith("W/") ? etag.substring(2) : etag;
+    }
+
+    private Counter counter(String routeId, String result) {
+        return counters.computeIfAbsent(routeId + ":" + result, key -> registry.counter(METRIC_NAME, "route", routeId, "result", result));
+    }
+
+    private class CachingResponse extends ServerHttpResponseDecorator {
+
+        private final ServerWebExchange exchange;
+        private final CacheKey key;
+        private final Config config;
+
+        CachingResponse(ServerWebExchange exchange, CacheKey key, Config config) {
+            super(exchange.getResponse());
+            this.exchange = exchange;
+            this.key = key;
+            this.config = config;
+        }
+
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+            HttpHeaders headers = getHeaders();
+            headers.set(CACHE_HEADER, "MISS");
+
+            Duration ttl = ttl(headers);
+            if (getStatusCode() != HttpStatus.OK || ttl.isZero() || isStreaming(headers.getContentType())) {
+                return super.writeWith(body);
+            }
+
+            return DataBufferUtils.join(Flux.from(body))
+                    .map(joined -> {
+                        byte[] bytes = new byte[joined.readableByteCount()];
+                        joined.read(bytes);
+                        DataBufferUtils.release(joined);
+                        return bytes;
+                    })
+                    .defaultIfEmpty(new byte[0])
+                    .flatMap(bytes -> {
+                        String etag = headers.getETag() != null ? headers.getETag() : "\"0" + DigestUtils.md5DigestAsHex(bytes) + "\"";
+                        headers.setETag(etag);
+
+                        if (bytes.length <= maxBodyBytes) {
+                            cache.put(key, new CachedResponse(cacheableHeaders(headers), bytes, etag, ttl));
+                        }
+
+                        if (matches(exchange.getRequest().getHeaders().getIfNoneMatch(), etag)) {
+                            counter(key.routeId, "not_modified").increment();
+                            headers.remove(HttpHeaders.CONTENT_LENGTH);
+                            setStatusCode(HttpStatus.NOT_MODIFIED);
+                            return setComplete();
+                        }
+                        return super.writeWith(Mono.just(bufferFactory().wrap(bytes)));
+                    });
+        }
+
+        // s-maxage and max-age of the upstream response win over the route TTL, and stale or private responses aren't kept
+        private Duration ttl(HttpHeaders headers) {
+            if (headers.containsKey(HttpHeaders.WARNING)) return Duration.ZERO;
+
+            List<String> directives = cacheControl(headers);
+            if (directives.contains("no-store") || directives.contains("no-cache") || directives.contains("private")) return Duration.ZERO;
+
+            Duration ttl = Duration.ofSeconds(config.getTtlSec());
+            for (String prefix : List.of("s-maxage=", "max-age=")) {
+                for (String directive : directives) {
+                    if (directive.startsWith(prefix)) {
+                        try {
+                            return Duration.ofSeconds(Long.parseLong(directive.substring(prefix.length())));
+                        } catch (NumberFormatException ex) {
+                            return ttl;
+                        }
+                    }
+                }
+            }
+            return ttl;
+        }
+
+        private boolean isStreaming(MediaType contentType) {
+            return contentType != null && STREAMING_TYPES.stream().anyMatch(type -> type.isCompatibleWith(contentType));
+        }
+
+        private HttpHeaders cacheableHeaders(HttpHeaders headers) {
+            HttpHeaders copy = new HttpHeaders();
+            headers.forEach((name, values) -> {
+                if (!EXCLUDED_HEADERS.contains(name.toLowerCase())) copy.put(name, values);
+            });
+            return copy;
+        }
+    }
+
+    private static class CacheKey {
+        private final String routeId;
+        private final String path;
+        private final String query;
+        private final String accept;
+        private final String partition;
+
+        CacheKey(String routeId, String path, String query, String accept, String partition) {
+            this.routeId = routeId;
+            this.path = path;
+            this.query = query;
+            this.accept = accept;
+            this.partition = partition;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof CacheKey)) return false;
+            CacheKey other = (CacheKey) o;
+            return routeId.equals(other.routeId) && path.equals(other.path) && Objects.equals(query, other.query) &&
+                    Objects.equals(accept, other.accept) && partition.equals(other.partition);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(routeId, path, query, accept, partition);
+        }
+    }
+
+    public static class Config {
+
+        private int ttlSec = 5;
+        private String partitionClaim = "scope";
+        private List<String> readPaths = List.of();
+
+        public int getTtlSec() {
+            return ttlSec;
+        }
+
+        public void setTtlSec(int ttlSec) {
+            this.ttlSec = ttlSec;
+        }
+
+        public String getPartitionClaim() {
+            return partitionClaim;
+        }
+
+        public void setPartitionClaim(String partitionClaim) {
+            this.partitionClaim = partitionClaim;
+        }
+
+        // POSTs that only read, such as batch lookups, and must not evict anything
+        public List<String> getReadPaths() {
+            return readPaths;
+        }
+
+        public void setReadPaths(List<String> readPaths) {
+            this.readPaths = readPaths;
+        }
+    }
+}
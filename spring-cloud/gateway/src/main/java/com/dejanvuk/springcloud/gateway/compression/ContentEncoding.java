@@ -0,0 +1,103 @@
+package com.dejanvuk.springcloud.gateway.compression;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+// Encodings the JDK can produce without native code. Brotli and zstd would need a native library, so they're left out
+public enum ContentEncoding {
+
+    GZIP("gzip") {
+        @Override
+        OutputStream wrap(OutputStream out, int level) throws IOException {
+            return new GZIPOutputStream(out) {
+                {
+                    def.setLevel(level);
+                }
+            };
+        }
+    },
+
+    DEFLATE("deflate") {
+        @Override
+        OutputStream wrap(OutputStream out, int level) {
+            return new DeflaterOutputStream(out, new Deflater(level)) {
+                @Override
+                public void close() throws IOException {
+                    super.close();
+                    def.end();
+                }
+            };
+        }
+    };
+
+    private final String token;
+
+    ContentEncoding(String token) {
+        this.token = token;
+    }
+
+    public String getToken() {
+        return token;
+    }
+
+    public byte[] encode(byte[] bytes, int level) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, bytes.length / 4));
+        try (OutputStream encoder = wrap(out, level)) {
+            encoder.write(bytes);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return out.toByteArray();
+    }
+
+    abstract OutputStream wrap(OutputStream out, int level) throws IOException;
+
+    // Picks the supported encoding with the highest q value from an Accept-Encoding header, gzip winning ties. Returns
+    // null when the client accepts none of them, or asks for identity only
+    public static ContentEncoding negotiate(String acceptEncoding) {
+        if (acceptEncoding == null || acceptEncoding.isBlank()) return null;
+
+        Double[] quality = new Double[values().length];
+        double wildcard = 0;
+
+        for (String part : acceptEncoding.split(",")) {
+            String[] tokens = part.trim().split(";");
+            String coding = tokens[0].trim().toLowerCase();
+            double q = 1;
+            for (int i = 1; i < tokens.length; i++) {
+                String parameter = tokens[i].trim();
+                if (parameter.startsWith("q=")) {
+                    try {
+                        q = Double.parseDouble(parameter.substring(2));
+                    } catch (NumberFormatException ex) {
+                        q = 0;
+                    }
+                }
+            }
+
+            if (coding.equals("*")) {
+                wildcard = q;
+                continue;
+            }
+            for (ContentEncoding encoding : values()) {
+                if (encoding.token.equals(coding)) quality[encoding.ordinal()] = q;
+            }
+        }
+
+        ContentEncoding best = null;
+        double bestQuality = 0;
+        for (ContentEncoding encoding : values()) {
+            double q = quality[encoding.ordinal()] != null ? quality[encoding.ordinal()] : wildcard;
+            if (q > bestQuality) {
+                best = encoding;
+                bestQuality = q;
+            }
+        }
+        return best;
+    }
+}
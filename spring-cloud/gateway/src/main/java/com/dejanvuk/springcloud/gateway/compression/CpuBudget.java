@@ -0,0 +1,57 @@
+package com.dejanvuk.springcloud.gateway.compression;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.time.Duration;
+
+// Compression trades CPU for bandwidth, which stops being a good trade once the gateway itself is the bottleneck. The
+// process CPU load is sampled in the background, so asking for the budget on every response costs a volatile read
+@Component
+public class CpuBudget {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CpuBudget.class);
+
+    private final double maxCpuLoad;
+    private final Duration sampleInterval;
+    private final OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+
+    private volatile double cpuLoad;
+    private Disposable scheduledSample;
+
+    @Autowired
+    public CpuBudget(@Value("${app.compression.maxCpuLoad:0.8}") double maxCpuLoad,
+                     @Value("${app.compression.cpuSampleMs:1000}") int cpuSampleMs) {
+        this.maxCpuLoad = maxCpuLoad;
+        this.sampleInterval = Duration.ofMillis(cpuSampleMs);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!(os instanceof com.sun.management.OperatingSystemMXBean)) {
+            LOG.warn("Process CPU load is not available on this JVM, compression is never skipped for CPU");
+            return;
+        }
+
+        scheduledSample = Flux.interval(sampleInterval)
+                .subscribe(tick -> cpuLoad = ((com.sun.management.OperatingSystemMXBean) os).getProcessCpuLoad());
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (scheduledSample != null) scheduledSample.dispose();
+    }
+
+    public boolean allowsCompression() {
+        return cpuLoad < maxCpuLoad;
+    }
+}
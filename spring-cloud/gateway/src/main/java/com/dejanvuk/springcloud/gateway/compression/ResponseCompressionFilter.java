@@ -0,0 +1,204 @@
+package com.dejanvuk.springcloud.gateway.compression;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.reactivestreams.Publisher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.core.Ordered;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
+
+// Compresses response bodies at the edge with the encoding the client prefers. It runs before every other response
+// decorator, so the response cache keeps the identity body and compressed bodies are never shared between clients that
+// negotiated differently. The client's Accept-Encoding isn't forwarded, compression towards the services behind the
+// gateway is up to app.compression.upstream
+@Component
+@ConditionalOnProperty(name = "app.compression.enabled", havingValue = "true", matchIfMissing = true)
+public class ResponseCompressionFilter implements GlobalFilter, Ordered {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ResponseCompressionFilter.class);
+
+    private static final String METRIC_NAME = "gateway.response.compression";
+    private static final String SIZE_METRIC_NAME = "gateway.response.size";
+
+    // Powers of 4 from 256 B to 16 MiB, a percentile histogram would publish 276 buckets for every route, stage and
+    // encoding. Micrometer 1.3 calls them SLA boundaries
+    private static final long[] SIZE_BUCKETS = {256, 1 << 10, 4 << 10, 16 << 10, 64 << 10, 256 << 10, 1 << 20, 4 << 20, 16 << 20};
+
+    private static final Set<MediaType> STREAMING_TYPES = Set.of(
+            MediaType.APPLICATION_STREAM_JSON, MediaType.TEXT_EVENT_STREAM, MediaType.valueOf("application/x-ndjson"));
+
+    private final MeterRegistry registry;
+    private final CpuBudget cpuBudget;
+    private final int minSizeBytes;
+    private final int level;
+    private final List<MediaType> mimeTypes;
+
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+    private final Map<String, DistributionSummary> sizes = new ConcurrentHashMap<>();
+
+    @Autowired
+    public ResponseCompressionFilter(MeterRegistry registry,
+                                     CpuBudget cpuBudget,
+                                     @Value("${app.compression.minSizeBytes:1024}") int minSizeBytes,
+                                     @Value("${app.compression.level:6}") int level,
+                                     @Value("${app.compression.mimeTypes:application/json,application/hal+json,application/xml,text/html,text/plain,text/css,application/javascript}") List<MediaType> mimeTypes) {
+        this.registry = registry;
+        this.cpuBudget = cpuBudget;
+        this.minSizeBytes = minSizeBytes;
+        this.level = level;
+        this.mimeTypes = mimeTypes;
+
+        LOG.info("Response compression minSizeBytes: {}, level: {}, mimeTypes: {}", minSizeBytes, level, mimeTypes);
+    }
+
+    @Override
+    public int getOrder() {
+        return NettyWriteResponseFilter.WRITE_RESPONSE_FILTER_ORDER - 2;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        String routeId = routeId(exchange);
+        ContentEncoding encoding = exchange.getRequest().getMethod() == HttpMethod.HEAD
+                ? null : ContentEncoding.negotiate(exchange.getRequest().getHeaders().getFirst(HttpHeaders.ACCEPT_ENCODING));
+
+        return chain.filter(exchange.mutate()
+                .request(request -> request.headers(headers -> headers.remove(HttpHeaders.ACCEPT_ENCODING)))
+                .response(new CompressingResponse(exchange, routeId, encoding))
+                .build());
+    }
+
+    private static String routeId(ServerWebExchange exchange) {
+        Route route = exchange.getAttribute(GATEWAY_ROUTE_ATTR);
+        return route == null ? "" : route.getId();
+    }
+
+    private Counter counter(String routeId, String result) {
+        return counters.computeIfAbsent(routeId + ":" + result, key -> registry.counter(METRIC_NAME, "route", routeId, "result", result));
+    }
+
+    // Sizes in bytes before compression (original) and as sent to the client (sent, tagged with the encoding used)
+    private DistributionSummary size(String routeId, String stage, String encoding) {
+        return sizes.computeIfAbsent(routeId + ":" + stage + ":" + encoding, key -> DistributionSummary.builder(SIZE_METRIC_NAME)
+                .baseUnit("bytes")
+                .tags("route", routeId, "stage", stage, "encoding", encoding)
+                .sla(SIZE_BUCKETS)
+                .register(registry));
+    }
+
+    private class CompressingResponse extends ServerHttpResponseDecorator {
+
+        private final String routeId;
+        private final ContentEncoding encoding;
+
+        CompressingResponse(ServerWebExchange exchange, String routeId, ContentEncoding encoding) {
+            super(exchange.getResponse());
+            this.routeId = routeId;
+            this.encoding = encoding;
+        }
+
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+            HttpHeaders headers = getHeaders();
+            // The body varies with Accept-Encoding whether or not this particular response ends up compressed
+            if (isCompressibleType(headers.getContentType())) headers.add(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+
+            String skipped = skipReason(headers);
+            if (skipped != null) {
+                counter(routeId, skipped).increment();
+                return super.writeWith(measured(Flux.from(body), headers.getFirst(HttpHeaders.CONTENT_ENCODING)));
+            }
+
+            return DataBufferUtils.join(Flux.from(body))
+                    .map(joined -> {
+                        byte[] bytes = new byte[joined.readableByteCount()];
+                        joined.read(bytes);
+                        DataBufferUtils.release(joined);
+                        return bytes;
+                    })
+                    .defaultIfEmpty(new byte[0])
+                    .flatMap(bytes -> super.writeWith(Mono.just(bufferFactory().wrap(encode(headers, bytes)))));
+        }
+
+        @Override
+        public Mono<Void> writeAndFlushWith(Publisher<? extends Publisher<? extends DataBuffer>> body) {
+            counter(routeId, "streaming").increment();
+            return super.writeAndFlushWith(body);
+        }
+
+        private String skipReason(HttpHeaders headers) {
+            if (encoding == null) return "not_accepted";
+            if (headers.containsKey(HttpHeaders.CONTENT_ENCODING)) return "already_encoded";
+            if (!isCompressibleType(headers.getContentType())) return "type";
+            if (headers.getContentLength() >= 0 && headers.getContentLength() < minSizeBytes) return "small";
+            if (!cpuBudget.allowsCompression()) return "cpu";
+            return null;
+        }
+
+        private byte[] encode(HttpHeaders headers, byte[] bytes) {
+            size(routeId, "original", "identity").record(bytes.length);
+
+            byte[] sent = bytes;
+            String result = "small";
+            if (bytes.length >= minSizeBytes) {
+                byte[] encoded = encoding.encode(bytes, level);
+                result = "ineffective";
+                if (encoded.length < bytes.length) {
+                    sent = encoded;
+                    result = "compressed";
+                    headers.set(HttpHeaders.CONTENT_ENCODING, encoding.getToken());
+                    // The encoded representation is a different sequence of bytes, so a strong validator can't stay strong
+                    String etag = headers.getETag();
+                    if (etag != null && !etag.startsWith("W/")) headers.setETag("W/" + etag);
+                }
+            }
+
+            counter(routeId, result).increment();
+            size(routeId, "sent", sent == bytes ? "identity" : encoding.getToken()).record(sent.length);
+            headers.setContentLength(sent.length);
+            return sent;
+        }
+
+        private Flux<? extends DataBuffer> measured(Flux<? extends DataBuffer> body, String contentEncoding) {
+            AtomicLong total = new AtomicLong();
+            String sentEncoding = contentEncoding == null ? "identity" : contentEncoding;
+            return body.doOnNext(buffer -> total.addAndGet(buffer.readableByteCount()))
+                    .doOnComplete(() -> {
+                        if (contentEncoding == null) size(routeId, "original", "identity").record(total.get());
+                        size(routeId, "sent", sentEncoding).record(total.get());
+                    });
+        }
+
+        private boolean isCompressibleType(MediaType contentType) {
+            if (contentType == null) return false;
+            if (STREAMING_TYPES.stream().anyMatch(type -> type.isCompatibleWith(contentType))) return false;
+            return mimeTypes.stream().anyMatch(type -> type.isCompatibleWith(contentType));
+        }
+    }
+}
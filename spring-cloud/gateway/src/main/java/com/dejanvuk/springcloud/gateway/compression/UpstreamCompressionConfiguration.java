@@ -0,0 +1,24 @@
+package com.dejanvuk.springcloud.gateway.compression;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import reactor.netty.http.client.HttpClient;
+
+// Asks the services behind the gateway for gzip and inflates their responses before the route filters see them. The
+// gateway's HttpClient is built from spring.cloud.gateway.httpclient, so it is adjusted rather than replaced
+@Configuration
+@ConditionalOnProperty(name = "app.compression.upstream", havingValue = "true")
+public class UpstreamCompressionConfiguration {
+
+    @Bean
+    public static BeanPostProcessor upstreamCompression() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                return bean instanceof HttpClient ? ((HttpClient) bean).compress(true) : bean;
+            }
+        };
+    }
+}
@@ -0,0 +1,114 @@
+package com.dejanvuk.springcloud.gateway.health;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.ReactiveHealthIndicator;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.boot.actuate.health.StatusAggregator;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.function.Tuples;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+// Checks all downstream services concurrently, each bounded by its own timeout, and keeps the result for cacheTtl. The
+// result is refreshed in the background, so a probe normally never waits for the services, and probes arriving while
+// the cached result is too old share a single evaluation instead of each fanning out again
+public class DownstreamHealthIndicator implements ReactiveHealthIndicator {
+
+    private static final Logger LOG = LoggerFactory.getLogger(DownstreamHealthIndicator.class);
+
+    private final Map<String, Supplier<Mono<Health>>> checks;
+    private final Map<String, Duration> timeouts;
+    private final Duration defaultTimeout;
+    private final StatusAggregator statusAggregator;
+    private final long cacheTtlNanos;
+    private final Duration refreshInterval;
+
+    private volatile Evaluation last;
+    private Mono<Health> pending;
+    private Disposable scheduledRefresh;
+
+    public DownstreamHealthIndicator(Map<String, Supplier<Mono<Health>>> checks, Map<String, Duration> timeouts, Duration defaultTimeout,
+                                     StatusAggregator statusAggregator, Duration cacheTtl, Duration refreshInterval) {
+        this.checks = checks;
+        this.timeouts = timeouts;
+        this.defaultTimeout = defaultTimeout;
+        this.statusAggregator = statusAggregator;
+        this.cacheTtlNanos = cacheTtl.toNanos();
+        this.refreshInterval = refreshInterval;
+    }
+
+    public void start() {
+        scheduledRefresh = Flux.interval(Duration.ZERO, refreshInterval)
+                .concatMap(tick -> refresh())
+                .subscribe();
+    }
+
+    public void stop() {
+        if (scheduledRefresh != null) scheduledRefresh.dispose();
+    }
+
+    @Override
+    public Mono<Health> health() {
+        Evaluation evaluation = last;
+        if (evaluation != null && System.nanoTime() - evaluation.evaluatedAt < cacheTtlNanos) {
+            return Mono.just(evaluation.health);
+        }
+        return refresh();
+    }
+
+    private synchronized Mono<Health> refresh() {
+        if (pending == null) {
+            pending = evaluate()
+                    .doOnNext(health -> last = new Evaluation(health))
+                    .doFinally(signal -> clearPending())
+                    .cache();
+        }
+        return pending;
+    }
+
+    private synchronized void clearPending() {
+        pending = null;
+    }
+
+    private Mono<Health> evaluate() {
+        return Flux.fromIterable(checks.entrySet())
+                .flatMap(check -> check(check.getKey(), check.getValue()).map(health -> Tuples.of(check.getKey(), health)), Math.max(1, checks.size()))
+                .collectMap(tuple -> tuple.getT1(), tuple -> tuple.getT2())
+                .map(results -> {
+                    Map<String, Health> details = new LinkedHashMap<>();
+                    checks.keySet().forEach(name -> details.put(name, results.get(name)));
+
+                    Set<Status> statuses = details.values().stream().map(Health::getStatus).collect(Collectors.toSet());
+                    return Health.status(statusAggregator.getAggregateStatus(statuses)).withDetails(details).build();
+                });
+    }
+
+    private Mono<Health> check(String name, Supplier<Mono<Health>> check) {
+        Duration timeout = timeouts.getOrDefault(name, defaultTimeout);
+        return Mono.defer(check)
+                .timeout(timeout)
+                .onErrorResume(ex -> Mono.just(ex instanceof TimeoutException
+                        ? Health.down().withDetail("error", "No response within " + timeout.toMillis() + " ms").build()
+                        : Health.down().withDetail("error", ex.toString()).build()))
+                .doOnNext(health -> LOG.debug("Health of {}: {}", name, health.getStatus()));
+    }
+
+    private static class Evaluation {
+        private final Health health;
+        private final long evaluatedAt = System.nanoTime();
+
+        Evaluation(Health health) {
+            this.health = health;
+        }
+    }
+}
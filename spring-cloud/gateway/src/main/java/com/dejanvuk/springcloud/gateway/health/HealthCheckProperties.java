@@ -0,0 +1,47 @@
+package com.dejanvuk.springcloud.gateway.health;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@ConfigurationProperties(prefix = "app.health")
+public class HealthCheckProperties {
+
+    private long timeoutMs = 2000;
+    private long cacheTtlMs = 10000;
+    private long refreshIntervalMs = 5000;
+    private Map<String, Long> timeouts = new HashMap<>();
+
+    public long getTimeoutMs() {
+        return timeoutMs;
+    }
+
+    public void setTimeoutMs(long timeoutMs) {
+        this.timeoutMs = timeoutMs;
+    }
+
+    public long getCacheTtlMs() {
+        return cacheTtlMs;
+    }
+
+    public void setCacheTtlMs(long cacheTtlMs) {
+        this.cacheTtlMs = cacheTtlMs;
+    }
+
+    public long getRefreshIntervalMs() {
+        return refreshIntervalMs;
+    }
+
+    public void setRefreshIntervalMs(long refreshIntervalMs) {
+        this.refreshIntervalMs = refreshIntervalMs;
+    }
+
+    public Map<String, Long> getTimeouts() {
+        return timeouts;
+    }
+
+    public void setTimeouts(Map<String, Long> timeouts) {
+        this.timeouts = timeouts;
+    }
+}
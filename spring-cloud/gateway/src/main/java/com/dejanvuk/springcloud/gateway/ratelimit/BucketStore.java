@@ -0,0 +1,58 @@
+package com.dejanvuk.springcloud.gateway.ratelimit;
+
+import reactor.core.publisher.Mono;
+
+public interface BucketStore {
+
+    Mono<Decision> tryConsume(String key, Limit limit, int tokens);
+
+    class Limit {
+        private final double replenishRate;
+        private final int burstCapacity;
+
+        public Limit(double replenishRate, int burstCapacity) {
+            this.replenishRate = replenishRate;
+            this.burstCapacity = burstCapacity;
+        }
+
+        public double getReplenishRate() {
+            return replenishRate;
+        }
+
+        public int getBurstCapacity() {
+            return burstCapacity;
+        }
+    }
+
+    class Decision {
+        private final boolean allowed;
+        private final long remaining;
+        private final long retryAfterNanos;
+
+        private Decision(boolean allowed, long remaining, long retryAfterNanos) {
+            this.allowed = allowed;
+            this.remaining = remaining;
+            this.retryAfterNanos = retryAfterNanos;
+        }
+
+        public static Decision allowed(long remaining) {
+            return new Decision(true, remaining, 0);
+        }
+
+        public static Decision denied(long remaining, long retryAfterNanos) {
+            return new Decision(false, remaining, retryAfterNanos);
+        }
+
+        public boolean isAllowed() {
+            return allowed;
+        }
+
+        public long getRemaining() {
+            return remaining;
+        }
+
+        public long getRetryAfterNanos() {
+            return retryAfterNanos;
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.dejanvuk.springcloud.gateway.ratelimit;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.RequestRateLimiterGatewayFilterFactory;
+import org.springframework.cloud.gateway.filter.ratelimit.KeyResolver;
+import org.springframework.stereotype.Component;
+
+// RequestRateLimiter, ordered ahead of ResponseCache and response compression. Plain route filters run after both, so
+// cache hits would never be counted against the caller's bucket
+@Component
+public class ClientRateLimiterGatewayFilterFactory extends RequestRateLimiterGatewayFilterFactory {
+
+    public static final int ORDER = NettyWriteResponseFilter.WRITE_RESPONSE_FILTER_ORDER - 3;
+
+    @Autowired
+    public ClientRateLimiterGatewayFilterFactory(TokenBucketRateLimiter rateLimiter, KeyResolver clientKeyResolver) {
+        super(rateLimiter, clientKeyResolver);
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        return new OrderedGatewayFilter(super.apply(config), ORDER);
+    }
+}
@@ -0,0 +1,85 @@
+package com.dejanvuk.springcloud.gateway.ratelimit;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Tokens a node consumed per bucket since its previous report
+public class ConsumptionReport {
+
+    private String node;
+    private List<Entry> entries = new ArrayList<>();
+
+    public ConsumptionReport() {
+    }
+
+    public ConsumptionReport(String node, List<Entry> entries) {
+        this.node = node;
+        this.entries = entries;
+    }
+
+    public String getNode() {
+        return node;
+    }
+
+    public void setNode(String node) {
+        this.node = node;
+    }
+
+    public List<Entry> getEntries() {
+        return entries;
+    }
+
+    public void setEntries(List<Entry> entries) {
+        this.entries = entries;
+    }
+
+    public static class Entry {
+
+        private String key;
+        private long tokens;
+        private double replenishRate;
+        private int burstCapacity;
+
+        public Entry() {
+        }
+
+        public Entry(String key, long tokens, double replenishRate, int burstCapacity) {
+            this.key = key;
+            this.tokens = tokens;
+            this.replenishRate = replenishRate;
+            this.burstCapacity = burstCapacity;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public void setKey(String key) {
+            this.key = key;
+        }
+
+        public long getTokens() {
+            return tokens;
+        }
+
+        public void setTokens(long tokens) {
+            this.tokens = tokens;
+        }
+
+        public double getReplenishRate() {
+            return replenishRate;
+        }
+
+        public void setReplenishRate(double replenishRate) {
+            this.replenishRate = replenishRate;
+        }
+
+        public int getBurstCapacity() {
+            return burstCapacity;
+        }
+
+        public void setBurstCapacity(int burstCapacity) {
+            this.burstCapacity = burstCapacity;
+        }
+    }
+}
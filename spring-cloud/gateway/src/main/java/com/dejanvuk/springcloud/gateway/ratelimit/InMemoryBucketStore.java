@@ -0,0 +1,36 @@
+package com.dejanvuk.springcloud.gateway.ratelimit;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+// Single node store. Buckets of clients that went quiet are dropped after idleTimeout, by then they would be full again
+public class InMemoryBucketStore implements BucketStore {
+
+    private final Cache<String, TokenBucket> buckets;
+
+    public InMemoryBucketStore(long maxKeys, Duration idleTimeout) {
+        this.buckets = Caffeine.newBuilder().maximumSize(maxKeys).expireAfterAccess(idleTimeout).build();
+    }
+
+    @Override
+    public Mono<Decision> tryConsume(String key, Limit limit, int tokens) {
+        return Mono.fromSupplier(() -> consume(key, limit, tokens));
+    }
+
+    Decision consume(String key, Limit limit, int tokens) {
+        long now = System.nanoTime();
+        return bucket(key, limit, now).tryConsume(limit, tokens, now);
+    }
+
+    void drain(String key, Limit limit, double tokens) {
+        long now = System.nanoTime();
+        bucket(key, limit, now).drain(limit, tokens, now);
+    }
+
+    private TokenBucket bucket(String key, Limit limit, long now) {
+        return buckets.get(key, k -> new TokenBucket(limit, now));
+    }
+}
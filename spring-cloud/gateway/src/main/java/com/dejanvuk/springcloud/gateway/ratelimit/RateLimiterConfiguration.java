@@ -0,0 +1,34 @@
+package com.dejanvuk.springcloud.gateway.ratelimit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cloud.gateway.filter.ratelimit.KeyResolver;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+@Configuration
+public class RateLimiterConfiguration {
+
+    @Bean
+    @ConditionalOnProperty(name = "app.rate-limiter.store", havingValue = "memory", matchIfMissing = true)
+    public BucketStore inMemoryBucketStore(@Value("${app.rate-limiter.maxKeys:100000}") long maxKeys,
+                                           @Value("${app.rate-limiter.idleTimeoutSec:600}") int idleTimeoutSec) {
+        return new InMemoryBucketStore(maxKeys, Duration.ofSeconds(idleTimeoutSec));
+    }
+
+    // Limits are per caller: the subject of the token, or its client_id for tokens issued to a client itself
+    @Bean
+    public KeyResolver clientKeyResolver() {
+        return exchange -> exchange.getPrincipal()
+                .filter(JwtAuthenticationToken.class::isInstance)
+                .flatMap(principal -> {
+                    JwtAuthenticationToken token = (JwtAuthenticationToken) principal;
+                    String subject = token.getToken().getSubject();
+                    return Mono.justOrEmpty(subject != null ? subject : token.getToken().getClaimAsString("client_id"));
+                });
+    }
+}
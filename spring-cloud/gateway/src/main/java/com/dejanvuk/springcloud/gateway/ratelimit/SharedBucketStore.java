@@ -0,0 +1,98 @@
+package com.dejanvuk.springcloud.gateway.ratelimit;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+// Cluster wide buckets without a round trip per request: every node decides from its local copy of a bucket, publishes
+// what it consumed every syncInterval and drains the same amount from its copy when a peer reports. A client spread
+// over several nodes can therefore overshoot by at most one sync interval worth of tokens, which is then paid back
+// because a drained bucket may go negative
+public class SharedBucketStore implements BucketStore {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SharedBucketStore.class);
+
+    private final String node;
+    private final InMemoryBucketStore local;
+    private final Consumer<ConsumptionReport> publisher;
+    private final Duration syncInterval;
+
+    private final Cache<String, Pending> pending;
+    private Disposable scheduledSync;
+
+    public SharedBucketStore(String node, InMemoryBucketStore local, Consumer<ConsumptionReport> publisher, Duration syncInterval) {
+        this.node = node;
+        this.local = local;
+        this.publisher = publisher;
+        this.syncInterval = syncInterval;
+
+        // Counters are reset rather than removed on every sync, so a concurrent add can never be lost, and only
+        // dropped once a client has been quiet for a while
+        this.pending = Caffeine.newBuilder().expireAfterAccess(syncInterval.multipliedBy(100)).build();
+    }
+
+    public void start() {
+        scheduledSync = Flux.interval(syncInterval)
+                .doOnNext(tick -> sync())
+                .onErrorContinue((ex, tick) -> LOG.warn("Failed to publish rate limit consumption: {}", ex.toString()))
+                .subscribe();
+    }
+
+    public void stop() {
+        if (scheduledSync != null) scheduledSync.dispose();
+        sync();
+    }
+
+    @Override
+    public Mono<Decision> tryConsume(String key, Limit limit, int tokens) {
+        return Mono.fromSupplier(() -> {
+            Decision decision = local.consume(key, limit, tokens);
+            if (decision.isAllowed()) {
+                pending.get(key, k -> new Pending(limit)).tokens.add(tokens);
+            }
+            return decision;
+        });
+    }
+
+    public void sync() {
+        List<ConsumptionReport.Entry> entries = new ArrayList<>();
+        pending.asMap().forEach((key, consumed) -> {
+            long tokens = consumed.tokens.sumThenReset();
+            if (tokens > 0) {
+                entries.add(new ConsumptionReport.Entry(key, tokens, consumed.limit.getReplenishRate(), consumed.limit.getBurstCapacity()));
+            }
+        });
+
+        if (!entries.isEmpty()) {
+            publisher.accept(new ConsumptionReport(node, entries));
+        }
+    }
+
+    public void apply(ConsumptionReport report) {
+        if (node.equals(report.getNode())) return;
+
+        for (ConsumptionReport.Entry entry : report.getEntries()) {
+            local.drain(entry.getKey(), new Limit(entry.getReplenishRate(), entry.getBurstCapacity()), entry.getTokens());
+        }
+        LOG.debug("Applied consumption of {} buckets reported by {}", report.getEntries().size(), report.getNode());
+    }
+
+    private static class Pending {
+        private final Limit limit;
+        private final LongAdder tokens = new LongAdder();
+
+        Pending(Limit limit) {
+            this.limit = limit;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.dejanvuk.springcloud.gateway.ratelimit;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cloud.stream.annotation.EnableBinding;
+import org.springframework.cloud.stream.annotation.Input;
+import org.springframework.cloud.stream.annotation.Output;
+import org.springframework.cloud.stream.annotation.StreamListener;
+import org.springframework.context.annotation.Bean;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.SubscribableChannel;
+import org.springframework.messaging.support.MessageBuilder;
+
+import java.time.Duration;
+import java.util.UUID;
+
+// Gateway nodes exchange their consumption over the message broker. Every node has to see every report, so the input
+// binding uses no consumer group
+@ConditionalOnProperty(name = "app.rate-limiter.store", havingValue = "shared")
+@EnableBinding(SharedBucketStoreBinding.RateLimitChannels.class)
+public class SharedBucketStoreBinding {
+
+    public interface RateLimitChannels {
+
+        String OUTPUT = "output-rate-limits";
+        String INPUT = "input-rate-limits";
+
+        @Output(OUTPUT)
+        MessageChannel output();
+
+        @Input(INPUT)
+        SubscribableChannel input();
+    }
+
+    private final ObjectProvider<SharedBucketStore> store;
+
+    @Autowired
+    public SharedBucketStoreBinding(ObjectProvider<SharedBucketStore> store) {
+        this.store = store;
+    }
+
+    @Bean(initMethod = "start", destroyMethod = "stop")
+    public SharedBucketStore sharedBucketStore(RateLimitChannels channels,
+                                               @Value("${spring.application.name:gateway}") String applicationName,
+                                               @Value("${app.rate-limiter.maxKeys:100000}") long maxKeys,
+                                               @Value("${app.rate-limiter.idleTimeoutSec:600}") int idleTimeoutSec,
+                                               @Value("${app.rate-limiter.syncIntervalMs:100}") int syncIntervalMs) {
+        InMemoryBucketStore local = new InMemoryBucketStore(maxKeys, Duration.ofSeconds(idleTimeoutSec));
+        String node = applicationName + "-" + UUID.randomUUID();
+
+        return new SharedBucketStore(node, local, report -> channels.output().send(MessageBuilder.withPayload(report).build()),
+                Duration.ofMillis(syncIntervalMs));
+    }
+
+    @StreamListener(target = RateLimitChannels.INPUT)
+    public void process(ConsumptionReport report) {
+        store.getObject().apply(report);
+    }
+}
@@ -0,0 +1,57 @@
+package com.dejanvuk.springcloud.gateway.ratelimit;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+// A token bucket whose whole state is one immutable snapshot swapped with compare-and-set, so concurrent requests of
+// the same client never block each other. Tokens may go below zero when peers report consumption this node didn't see
+class TokenBucket {
+
+    private static final double NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final AtomicReference<State> state;
+
+    TokenBucket(BucketStore.Limit limit, long now) {
+        this.state = new AtomicReference<>(new State(limit.getBurstCapacity(), now));
+    }
+
+    BucketStore.Decision tryConsume(BucketStore.Limit limit, int requested, long now) {
+        while (true) {
+            State current = state.get();
+            double available = current.refill(limit, now);
+
+            if (available < requested) {
+                long retryAfterNanos = (long) Math.ceil((requested - available) / limit.getReplenishRate() * NANOS_PER_SECOND);
+                return BucketStore.Decision.denied((long) Math.max(0, available), retryAfterNanos);
+            }
+
+            State next = new State(available - requested, now);
+            if (state.compareAndSet(current, next)) {
+                return BucketStore.Decision.allowed((long) next.tokens);
+            }
+        }
+    }
+
+    void drain(BucketStore.Limit limit, double consumed, long now) {
+        while (true) {
+            State current = state.get();
+            double remaining = Math.max(-limit.getBurstCapacity(), current.refill(limit, now) - consumed);
+            if (state.compareAndSet(current, new State(remaining, now))) return;
+        }
+    }
+
+    private static class State {
+        private final double tokens;
+        private final long refilledAt;
+
+        State(double tokens, long refilledAt) {
+            this.tokens = tokens;
+            this.refilledAt = refilledAt;
+        }
+
+        double refill(BucketStore.Limit limit, long now) {
+            double elapsedSec = Math.max(0, now - refilledAt) / NANOS_PER_SECOND;
+            return Math.min(limit.getBurstCapacity(), tokens + elapsedSec * limit.getReplenishRate());
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.dejanvuk.springcloud.gateway.ratelimit;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.gateway.filter.ratelimit.AbstractRateLimiter;
+import org.springframework.cloud.gateway.support.ConfigurationService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import javax.validation.constraints.DecimalMin;
+import javax.validation.constraints.Min;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+// Backs the ClientRateLimiter filter with one token bucket per route and client. Routes set their own limits through
+// token-bucket-rate-limiter.replenishRate and token-bucket-rate-limiter.burstCapacity, the rest use app.rate-limiter
+@Component
+public class TokenBucketRateLimiter extends AbstractRateLimiter<TokenBucketRateLimiter.Config> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(TokenBucketRateLimiter.class);
+
+    public static final String CONFIGURATION_PROPERTY_NAME = "token-bucket-rate-limiter";
+
+    public static final String REMAINING_HEADER = "X-RateLimit-Remaining";
+    public static final String REPLENISH_RATE_HEADER = "X-RateLimit-Replenish-Rate";
+    public static final String BURST_CAPACITY_HEADER = "X-RateLimit-Burst-Capacity";
+
+    private static final String METRIC_NAME = "gateway.rate.limiter";
+
+    private final BucketStore store;
+    private final MeterRegistry registry;
+    private final Config defaultConfig;
+
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+
+    @Autowired
+    public TokenBucketRateLimiter(BucketStore store,
+                                  MeterRegistry registry,
+                                  ConfigurationService configurationService,
+                                  @Value("${app.rate-limiter.replenishRate:10}") double replenishRate,
+                                  @Value("${app.rate-limiter.burstCapacity:20}") int burstCapacity) {
+        super(Config.class, CONFIGURATION_PROPERTY_NAME, configurationService);
+        this.store = store;
+        this.registry = registry;
+        this.defaultConfig = new Config().setReplenishRate(replenishRate).setBurstCapacity(burstCapacity);
+
+        LOG.info("Rate limiter store: {}, default replenishRate: {}, burstCapacity: {}", store.getClass().getSimpleName(), replenishRate, burstCapacity);
+    }
+
+    @Override
+    public Mono<Response> isAllowed(String routeId, String id) {
+        Config config = getConfig().getOrDefault(routeId, defaultConfig);
+        BucketStore.Limit limit = new BucketStore.Limit(config.getReplenishRate(), config.getBurstCapacity());
+
+        return store.tryConsume(routeId + ":" + id, limit, config.getRequestedTokens())
+                .map(decision -> {
+                    counter(routeId, decision.isAllowed() ? "allowed" : "denied").increment();
+                    return new Response(decision.isAllowed(), headers(config, decision));
+                })
+                // A broken store must not take the route down with it, so the request is let through
+                .onErrorResume(ex -> {
+                    counter(routeId, "error").increment();
+                    LOG.warn("Rate limiter store failed for route {}, allowing the request: {}", routeId, ex.toString());
+                    return Mono.just(new Response(true, Map.of()));
+                });
+    }
+
+    private static Map<String, String> headers(Config config, BucketStore.Decision decision) {
+        Map<String, String> headers = new HashMap<>();
+        headers.put(REMAINING_HEADER, String.valueOf(decision.getRemaining()));
+        headers.put(REPLENISH_RATE_HEADER, String.valueOf(config.getReplenishRate()));
+        headers.put(BURST_CAPACITY_HEADER, String.valueOf(config.getBurstCapacity()));
+        if (!decision.isAllowed()) {
+            headers.put(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, (decision.getRetryAfterNanos() + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1))));
+        }
+        return headers;
+    }
+
+    private Counter counter(String routeId, String result) {
+        return counters.computeIfAbsent(routeId + ":" + result, key -> registry.counter(METRIC_NAME, "route", routeId, "result", result));
+    }
+
+    public static class Config {
+
+        @DecimalMin(value = "0", inclusive = false)
+        private double replenishRate = 1;
+
+        @Min(1)
+        private int burstCapacity = 1;
+
+        @Min(1)
+        private int requestedTokens = 1;
+
+        public double getReplenishRate() {
+            return replenishRate;
+        }
+
+        public Config setReplenishRate(double replenishRate) {
+            this.replenishRate = replenishRate;
+            return this;
+        }
+
+        public int getBurstCapacity() {
+            return burstCapacity;
+        }
+
+        public Config setBurstCapacity(int burstCapacity) {
+            this.burstCapacity = burstCapacity;
+            return this;
+        }
+
+        public int getRequestedTokens() {
+            return requestedTokens;
+        }
+
+        public Config setRequestedTokens(int requestedTokens) {
+            this.requestedTokens = requestedTokens;
+            return this;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.dejanvuk.springcloud.gateway.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtException;
+import org.springframework.security.oauth2.jwt.ReactiveJwtDecoder;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+
+// Verified tokens are kept by the hash of the token until their exp claim, so the signature of a token is checked once
+// rather than on every request. Only successfully decoded tokens are cached, a rejected one is verified again next time
+public class CachingJwtDecoder implements ReactiveJwtDecoder {
+
+    private static final String METRIC_NAME = "gateway.jwt.cache";
+
+    private final ReactiveJwtDecoder delegate;
+    private final Cache<String, Jwt> verified;
+
+    private final Counter hits;
+    private final Counter misses;
+
+    public CachingJwtDecoder(ReactiveJwtDecoder delegate, MeterRegistry registry, long maxSize, Duration maxTtl) {
+        this.delegate = delegate;
+        this.verified = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new Expiry<String, Jwt>() {
+                    @Override
+                    public long expireAfterCreate(String key, Jwt jwt, long currentTime) {
+                        return timeToLive(jwt, maxTtl).toNanos();
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, Jwt jwt, long currentTime, long currentDuration) {
+                        return timeToLive(jwt, maxTtl).toNanos();
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, Jwt jwt, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+
+        this.hits = registry.counter(METRIC_NAME, "result", "hit");
+        this.misses = registry.counter(METRIC_NAME, "result", "miss");
+        registry.gauge(METRIC_NAME + ".size", verified, Cache::estimatedSize);
+    }
+
+    @Override
+    public Mono<Jwt> decode(String token) throws JwtException {
+        String key = hash(token);
+
+        Jwt jwt = verified.getIfPresent(key);
+        if (jwt != null && (jwt.getExpiresAt() == null || jwt.getExpiresAt().isAfter(Instant.now()))) {
+            hits.increment();
+            return Mono.just(jwt);
+        }
+
+        misses.increment();
+        return Mono.defer(() -> delegate.decode(token)).doOnNext(decoded -> verified.put(key, decoded));
+    }
+
+    static String hash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static Duration timeToLive(Jwt jwt, Duration maxTtl) {
+        if (jwt.getExpiresAt() == null) return maxTtl;
+
+        Duration untilExpiry = Duration.between(Instant.now(), jwt.getExpiresAt());
+        if (untilExpiry.isNegative()) return Duration.ZERO;
+        return untilExpiry.compareTo(maxTtl) < 0 ? untilExpiry : maxTtl;
+    }
+}
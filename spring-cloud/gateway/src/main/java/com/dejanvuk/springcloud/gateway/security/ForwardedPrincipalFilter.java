@@ -0,0 +1,118 @@
+package com.dejanvuk.springcloud.gateway.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.MACSigner;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
+
+// Replaces the caller's RS256 token with an HS256 token carrying the already verified principal, signed with a secret
+// shared with the downstream services, so they check a cheap HMAC instead of verifying the RSA signature again
+@ConditionalOnProperty(name = "app.forwarded-principal.enabled", havingValue = "true")
+@Component
+public class ForwardedPrincipalFilter implements GlobalFilter, Ordered {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ForwardedPrincipalFilter.class);
+
+    private final MACSigner signer;
+    private final String issuer;
+    private final List<String> routes;
+    private final Duration maxTtl;
+
+    private final Cache<String, String> forwardedTokens;
+
+    @Autowired
+    public ForwardedPrincipalFilter(@Value("${app.forwarded-principal.secret}") String secret,
+                                    @Value("${app.forwarded-principal.issuer:gateway}") String issuer,
+                                    @Value("${app.forwarded-principal.routes:university-composite}") List<String> routes,
+                                    @Value("${app.jwt.cache.maxSize:10000}") long maxSize,
+                                    @Value("${app.jwt.cache.maxTtlSec:300}") int maxTtlSec) throws JOSEException {
+        // MACSigner rejects secrets shorter than the 256 bits HS256 needs
+        this.signer = new MACSigner(secret.getBytes(StandardCharsets.UTF_8));
+        this.issuer = issuer;
+        this.routes = routes;
+        this.maxTtl = Duration.ofSeconds(maxTtlSec);
+        this.forwardedTokens = Caffeine.newBuilder().maximumSize(maxSize).expireAfterWrite(maxTtl).build();
+
+        LOG.info("Forwarding verified principals as {} tokens on routes: {}", issuer, routes);
+    }
+
+    @Override
+    public int getOrder() {
+        return 0;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        Route route = exchange.getAttribute(GATEWAY_ROUTE_ATTR);
+        if (route == null || !routes.contains(route.getId())) {
+            return chain.filter(exchange);
+        }
+
+        return ReactiveSecurityContextHolder.getContext()
+                .map(context -> context.getAuthentication())
+                .filter(JwtAuthenticationToken.class::isInstance)
+                .map(authentication -> forwardedToken(((JwtAuthenticationToken) authentication).getToken()))
+                .map(token -> exchange.mutate().request(request -> request.headers(headers -> headers.setBearerAuth(token))).build())
+                .defaultIfEmpty(exchange)
+                .flatMap(chain::filter);
+    }
+
+    private String forwardedToken(Jwt jwt) {
+        return forwardedTokens.get(CachingJwtDecoder.hash(jwt.getTokenValue()), key -> sign(jwt));
+    }
+
+    // The forwarded token never outlives its cache entry, even when the caller's token has no expiry of its own
+    private String sign(Jwt jwt) {
+        Instant expiresAt = Instant.now().plus(maxTtl);
+        if (jwt.getExpiresAt() != null && jwt.getExpiresAt().isBefore(expiresAt)) expiresAt = jwt.getExpiresAt();
+
+        JWTClaimsSet.Builder claims = new JWTClaimsSet.Builder()
+                .issuer(issuer)
+                .subject(jwt.getSubject())
+                .audience(jwt.getAudience())
+                .issueTime(date(jwt.getIssuedAt()))
+                .expirationTime(Date.from(expiresAt));
+        Object scope = jwt.getClaims().get("scope");
+        if (scope != null) claims.claim("scope", scope);
+
+        try {
+            SignedJWT signed = new SignedJWT(new JWSHeader(JWSAlgorithm.HS256), claims.build());
+            signed.sign(signer);
+            return signed.serialize();
+        } catch (JOSEException ex) {
+            throw new IllegalStateException("Failed to sign forwarded principal: " + ex.getMessage(), ex);
+        }
+    }
+
+    private static Date date(Instant instant) {
+        return instant == null ? null : Date.from(instant);
+    }
+}
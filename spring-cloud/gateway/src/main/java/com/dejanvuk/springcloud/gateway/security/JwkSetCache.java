@@ -0,0 +1,129 @@
+package com.dejanvuk.springcloud.gateway.security;
+
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKMatcher;
+import com.nimbusds.jose.jwk.JWKSelector;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jwt.SignedJWT;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Keeps the auth-server's key set in memory and refreshes it in the background, so verifying a token never waits for
+// the auth-server. A failed refresh keeps serving the previous keys, and only a token signed with an unknown kid
+// triggers an early refresh, at most once per minRefreshInterval and shared by all requests waiting for it
+@Component
+public class JwkSetCache {
+
+    private static final Logger LOG = LoggerFactory.getLogger(JwkSetCache.class);
+
+    private static final String METRIC_NAME = "gateway.jwks.refresh";
+
+    private final WebClient webClient;
+    private final String jwkSetUri;
+    private final Duration refreshInterval;
+    private final Duration timeout;
+    private final long minRefreshIntervalNanos;
+
+    private volatile JWKSet keys = new JWKSet();
+    private long lastRefresh;
+    private Mono<JWKSet> pendingRefresh = Mono.empty();
+    private Disposable scheduledRefresh;
+
+    private final Counter succeeded;
+    private final Counter failed;
+
+    @Autowired
+    public JwkSetCache(MeterRegistry registry,
+                       @Value("${spring.security.oauth2.resourceserver.jwt.jwk-set-uri}") String jwkSetUri,
+                       @Value("${app.jwt.jwks.refreshSec:300}") int refreshSec,
+                       @Value("${app.jwt.jwks.timeoutMs:2000}") int timeoutMs,
+                       @Value("${app.jwt.jwks.minRefreshIntervalSec:10}") int minRefreshIntervalSec) {
+        this.webClient = WebClient.create();
+        this.jwkSetUri = jwkSetUri;
+        this.refreshInterval = Duration.ofSeconds(refreshSec);
+        this.timeout = Duration.ofMillis(timeoutMs);
+        this.minRefreshIntervalNanos = TimeUnit.SECONDS.toNanos(minRefreshIntervalSec);
+        this.lastRefresh = System.nanoTime() - minRefreshIntervalNanos;
+
+        this.succeeded = registry.counter(METRIC_NAME, "result", "success");
+        this.failed = registry.counter(METRIC_NAME, "result", "failure");
+        registry.gauge("gateway.jwks.keys", this, cache -> cache.keys.getKeys().size());
+
+        LOG.info("JWK set {} refreshSec: {}, timeoutMs: {}, minRefreshIntervalSec: {}", jwkSetUri, refreshSec, timeoutMs, minRefreshIntervalSec);
+    }
+
+    @PostConstruct
+    public void start() {
+        scheduledRefresh = Flux.interval(Duration.ZERO, refreshInterval)
+                .concatMap(tick -> refresh().onErrorResume(ex -> Mono.empty()))
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (scheduledRefresh != null) scheduledRefresh.dispose();
+    }
+
+    public Flux<JWK> keys(SignedJWT jwt) {
+        JWKSelector selector = new JWKSelector(JWKMatcher.forJWSHeader(jwt.getHeader()));
+
+        List<JWK> matches = selector.select(keys);
+        if (!matches.isEmpty()) {
+            return Flux.fromIterable(matches);
+        }
+
+        // Most likely the auth-server rotated its keys, so fetch them early instead of waiting for the next refresh
+        return refreshIfAllowed()
+                .map(selector::select)
+                .onErrorReturn(Collections.emptyList())
+                .flatMapMany(Flux::fromIterable);
+    }
+
+    private synchronized Mono<JWKSet> refreshIfAllowed() {
+        long now = System.nanoTime();
+        if (now - lastRefresh >= minRefreshIntervalNanos) {
+            lastRefresh = now;
+            pendingRefresh = refresh().cache();
+        }
+        return pendingRefresh.defaultIfEmpty(keys);
+    }
+
+    private Mono<JWKSet> refresh() {
+        return Mono.defer(() -> webClient.get().uri(jwkSetUri).retrieve().bodyToMono(String.class))
+                .timeout(timeout)
+                .map(this::parse)
+                .doOnNext(set -> {
+                    keys = set;
+                    succeeded.increment();
+                    LOG.debug("Refreshed JWK set, {} keys", set.getKeys().size());
+                })
+                .doOnError(ex -> {
+                    failed.increment();
+                    LOG.warn("Failed to refresh JWK set from {}, keeping {} known keys: {}", jwkSetUri, keys.getKeys().size(), ex.toString());
+                });
+    }
+
+    private JWKSet parse(String body) {
+        try {
+            return JWKSet.parse(body);
+        } catch (java.text.ParseException ex) {
+            throw new IllegalStateException("Invalid JWK set: " + ex.getMessage(), ex);
+        }
+    }
+}
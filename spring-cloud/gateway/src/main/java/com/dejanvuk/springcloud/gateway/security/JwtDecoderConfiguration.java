@@ -0,0 +1,22 @@
+package com.dejanvuk.springcloud.gateway.security;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.oauth2.jwt.NimbusReactiveJwtDecoder;
+import org.springframework.security.oauth2.jwt.ReactiveJwtDecoder;
+
+import java.time.Duration;
+
+@Configuration
+public class JwtDecoderConfiguration {
+
+    @Bean
+    public ReactiveJwtDecoder jwtDecoder(JwkSetCache jwkSetCache,
+                                         MeterRegistry registry,
+                                         @Value("${app.jwt.cache.maxSize:10000}") long maxSize,
+                                         @Value("${app.jwt.cache.maxTtlSec:300}") int maxTtlSec) {
+        return new CachingJwtDecoder(NimbusReactiveJwtDecoder.withJwkSource(jwkSetCache::keys).build(), registry, maxSize, Duration.ofSeconds(maxTtlSec));
+    }
+}
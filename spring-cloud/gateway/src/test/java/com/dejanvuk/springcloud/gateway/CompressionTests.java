@@ -0,0 +1,128 @@
+package com.dejanvuk.springcloud.gateway;
+
+import com.dejanvuk.springcloud.gateway.compression.ContentEncoding;
+import com.dejanvuk.springcloud.gateway.compression.CpuBudget;
+import com.dejanvuk.springcloud.gateway.compression.ResponseCompressionFilter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
+
+public class CompressionTests {
+
+    private static final String LARGE_BODY = "{\"students\":[" + "{\"name\":\"student\",\"age\":20},".repeat(200) + "{}]}";
+
+    private MeterRegistry registry;
+
+    @BeforeEach
+    public void setUp() {
+        registry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    public void negotiatesTheEncoding() {
+        assertEquals(ContentEncoding.GZIP, ContentEncoding.negotiate("gzip, deflate, br"));
+        assertEquals(ContentEncoding.DEFLATE, ContentEncoding.negotiate("gzip;q=0.5, deflate"));
+        assertEquals(ContentEncoding.GZIP, ContentEncoding.negotiate("br, *;q=0.1"));
+        assertNull(ContentEncoding.negotiate("gzip;q=0, deflate;q=0"));
+        assertNull(ContentEncoding.negotiate("identity"));
+        assertNull(ContentEncoding.negotiate(null));
+    }
+
+    @Test
+    public void compressesLargeBodiesWithTheNegotiatedEncoding() throws Exception {
+        MockServerWebExchange exchange = exchange("gzip");
+        AtomicReference<String> forwardedAcceptEncoding = new AtomicReference<>("unset");
+
+        filter(1.0).filter(exchange, mutated -> {
+            forwardedAcceptEncoding.set(mutated.getRequest().getHeaders().getFirst(HttpHeaders.ACCEPT_ENCODING));
+            return write(mutated.getResponse(), LARGE_BODY);
+        }).block();
+
+        HttpHeaders headers = exchange.getResponse().getHeaders();
+        assertNull(forwardedAcceptEncoding.get());
+        assertEquals("gzip", headers.getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertEquals("W/\"1\"", headers.getETag());
+        assertTrue(headers.getVary().contains(HttpHeaders.ACCEPT_ENCODING));
+
+        byte[] body = exchange.getResponse().getBody().map(buffer -> {
+            byte[] bytes = new byte[buffer.readableByteCount()];
+            buffer.read(bytes);
+            return bytes;
+        }).blockFirst();
+        assertEquals(body.length, headers.getContentLength());
+        assertEquals(LARGE_BODY, new String(new GZIPInputStream(new ByteArrayInputStream(body)).readAllBytes(), StandardCharsets.UTF_8));
+
+        assertEquals(LARGE_BODY.length(), registry.get("gateway.response.size").tags("route", "university-composite", "stage", "original").summary().totalAmount());
+        assertEquals(body.length, registry.get("gateway.response.size").tags("route", "university-composite", "stage", "sent", "encoding", "gzip").summary().totalAmount());
+        assertEquals(9, registry.get("gateway.response.size").tags("stage", "original").summary().takeSnapshot().histogramCounts().length);
+    }
+
+    @Test
+    public void leavesSmallBodiesAlone() {
+        MockServerWebExchange exchange = exchange("gzip");
+
+        filter(1.0).filter(exchange, mutated -> write(mutated.getResponse(), "{}")).block();
+
+        assertNull(exchange.getResponse().getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertEquals("{}", exchange.getResponse().getBodyAsString().block());
+        assertEquals(1, registry.counter("gateway.response.compression", "route", "university-composite", "result", "small").count());
+    }
+
+    @Test
+    public void skipsCompressionWhenTheClientDoesNotAskForIt() {
+        MockServerWebExchange exchange = exchange(null);
+
+        filter(1.0).filter(exchange, mutated -> write(mutated.getResponse(), LARGE_BODY)).block();
+
+        assertNull(exchange.getResponse().getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertEquals(LARGE_BODY, exchange.getResponse().getBodyAsString().block());
+        assertEquals(1, registry.counter("gateway.response.compression", "route", "university-composite", "result", "not_accepted").count());
+    }
+
+    @Test
+    public void skipsCompressionOverTheCpuBudget() {
+        MockServerWebExchange exchange = exchange("gzip");
+
+        filter(0.0).filter(exchange, mutated -> write(mutated.getResponse(), LARGE_BODY)).block();
+
+        assertNull(exchange.getResponse().getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertEquals(LARGE_BODY, exchange.getResponse().getBodyAsString().block());
+        assertEquals(1, registry.counter("gateway.response.compression", "route", "university-composite", "result", "cpu").count());
+    }
+
+    private ResponseCompressionFilter filter(double maxCpuLoad) {
+        return new ResponseCompressionFilter(registry, new CpuBudget(maxCpuLoad, 1000), 1024, 6, List.of(MediaType.APPLICATION_JSON));
+    }
+
+    private static MockServerWebExchange exchange(String acceptEncoding) {
+        MockServerHttpRequest.BaseBuilder<?> request = MockServerHttpRequest.get("/university-composite/1");
+        if (acceptEncoding != null) request.header(HttpHeaders.ACCEPT_ENCODING, acceptEncoding);
+
+        MockServerWebExchange exchange = MockServerWebExchange.from(request);
+        exchange.getAttributes().put(GATEWAY_ROUTE_ATTR, Route.async().id("university-composite").uri("http://localhost").predicate(e -> true).build());
+        return exchange;
+    }
+
+    private static Mono<Void> write(ServerHttpResponse response, String body) {
+        response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+        response.getHeaders().setETag("\"1\"");
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(body.getBytes(StandardCharsets.UTF_8))));
+    }
+}
@@ -1,15 +1,31 @@
 package com.dejanvuk.springcloud.gateway;
 
 import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.reactive.server.WebTestClient;
 
 import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
 
-@SpringBootTest(webEnvironment=RANDOM_PORT, properties = {"eureka.client.enabled=false","spring.cloud.config.enabled=false"})
+@SpringBootTest(webEnvironment=RANDOM_PORT, properties = {"eureka.client.enabled=false","spring.cloud.config.enabled=false",
+        "spring.config.additional-location=file:../../config-repo/gateway.yml",
+        "app.auth-server=localhost", "app.eureka-server=localhost", "server.ssl.enabled=false"})
 public class GatewayApplicationTests {
 
+    @Autowired
+    private WebTestClient client;
+
     @Test
     public void contextLoads() {
     }
 
+    @Test
+    public void livenessDoesNotIncludeDownstreamServices() {
+        client.get().uri("/actuator/health/liveness").exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.status").isEqualTo("UP")
+                .jsonPath("$.components.healthcheckMicroservices").doesNotExist();
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,71 @@
+package com.dejanvuk.springcloud.gateway;
+
+import com.dejanvuk.springcloud.gateway.health.DownstreamHealthIndicator;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.SimpleStatusAggregator;
+import org.springframework.boot.actuate.health.Status;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HealthCheckTests {
+
+    private final AtomicInteger calls = new AtomicInteger();
+
+    @Test
+    public void checksServicesConcurrentlyWithTimeouts() {
+        Map<String, Supplier<Mono<Health>>> checks = new LinkedHashMap<>();
+        checks.put("slow", () -> delayed(Duration.ofMillis(400)));
+        checks.put("hanging", Mono::never);
+        checks.put("fast", () -> delayed(Duration.ZERO));
+
+        DownstreamHealthIndicator indicator = new DownstreamHealthIndicator(checks, Map.of("hanging", Duration.ofMillis(500)),
+                Duration.ofSeconds(2), new SimpleStatusAggregator(), Duration.ofSeconds(10), Duration.ofMinutes(1));
+
+        long start = System.nanoTime();
+        Health health = indicator.health().block();
+        long elapsedMs = Duration.ofNanos(System.nanoTime() - start).toMillis();
+
+        assertTrue(elapsedMs < 1500, "took " + elapsedMs + " ms");
+        assertEquals(Status.DOWN, health.getStatus());
+        assertEquals(Status.UP, ((Health) health.getDetails().get("slow")).getStatus());
+        assertEquals(Status.DOWN, ((Health) health.getDetails().get("hanging")).getStatus());
+        assertEquals(Status.UP, ((Health) health.getDetails().get("fast")).getStatus());
+    }
+
+    @Test
+    public void servesCachedResultWithinTtl() {
+        DownstreamHealthIndicator indicator = new DownstreamHealthIndicator(Map.of("service", () -> delayed(Duration.ofMillis(50))), Map.of(),
+                Duration.ofSeconds(2), new SimpleStatusAggregator(), Duration.ofSeconds(10), Duration.ofMinutes(1));
+
+        // Concurrent probes on an empty cache share one evaluation
+        Mono.zip(indicator.health(), indicator.health(), indicator.health()).block();
+        assertEquals(Status.UP, indicator.health().block().getStatus());
+
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void reevaluatesOnceTheTtlHasPassed() throws Exception {
+        DownstreamHealthIndicator indicator = new DownstreamHealthIndicator(Map.of("service", () -> delayed(Duration.ZERO)), Map.of(),
+                Duration.ofSeconds(2), new SimpleStatusAggregator(), Duration.ofMillis(50), Duration.ofMinutes(1));
+
+        indicator.health().block();
+        Thread.sleep(100);
+        indicator.health().block();
+
+        assertEquals(2, calls.get());
+    }
+
+    private Mono<Health> delayed(Duration delay) {
+        calls.incrementAndGet();
+        return Mono.delay(delay).map(tick -> Health.up().build());
+    }
+}
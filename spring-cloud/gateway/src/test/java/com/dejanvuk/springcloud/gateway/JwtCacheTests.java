@@ -0,0 +1,113 @@
+package com.dejanvuk.springcloud.gateway;
+
+import com.dejanvuk.springcloud.gateway.security.CachingJwtDecoder;
+import com.dejanvuk.springcloud.gateway.security.ForwardedPrincipalFilter;
+import com.nimbusds.jose.crypto.MACVerifier;
+import com.nimbusds.jwt.SignedJWT;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.ReactiveJwtDecoder;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
+
+public class JwtCacheTests {
+
+    private static final String SECRET = "a-secret-of-at-least-thirty-two-bytes";
+
+    private MeterRegistry registry;
+    private AtomicInteger verifications;
+
+    @BeforeEach
+    public void setUp() {
+        registry = new SimpleMeterRegistry();
+        verifications = new AtomicInteger();
+    }
+
+    @Test
+    public void verifiesEachTokenOnce() {
+        ReactiveJwtDecoder decoder = new CachingJwtDecoder(delegate(Instant.now().plusSeconds(60)), registry, 100, Duration.ofMinutes(5));
+
+        assertEquals("user", decoder.decode("token-1").block().getSubject());
+        assertEquals("user", decoder.decode("token-1").block().getSubject());
+        decoder.decode("token-2").block();
+
+        assertEquals(2, verifications.get());
+        assertEquals(1, registry.counter("gateway.jwt.cache", "result", "hit").count());
+    }
+
+    @Test
+    public void doesNotServeExpiredTokens() {
+        ReactiveJwtDecoder decoder = new CachingJwtDecoder(delegate(Instant.now().minusSeconds(1)), registry, 100, Duration.ofMinutes(5));
+
+        decoder.decode("token").block();
+        decoder.decode("token").block();
+
+        assertEquals(2, verifications.get());
+    }
+
+    @Test
+    public void forwardsASignedPrincipal() throws Exception {
+        SignedJWT token = forward(jwt("original", Instant.now().plusSeconds(60)));
+
+        assertTrue(token.verify(new MACVerifier(SECRET.getBytes(StandardCharsets.UTF_8))));
+        assertEquals("gateway", token.getJWTClaimsSet().getIssuer());
+        assertEquals("user", token.getJWTClaimsSet().getSubject());
+        assertEquals("university:read", token.getJWTClaimsSet().getStringClaim("scope"));
+    }
+
+    @Test
+    public void capsTheLifetimeOfForwardedTokens() throws Exception {
+        Instant maxExpiry = Instant.now().plusSeconds(300);
+
+        Jwt withoutExpiry = Jwt.withTokenValue("no-exp").header("alg", "RS256").subject("user").build();
+        assertFalse(forward(withoutExpiry).getJWTClaimsSet().getExpirationTime().toInstant().isAfter(maxExpiry.plusSeconds(1)));
+
+        Jwt longLived = jwt("long-lived", Instant.now().plus(Duration.ofHours(1)));
+        assertFalse(forward(longLived).getJWTClaimsSet().getExpirationTime().toInstant().isAfter(maxExpiry.plusSeconds(1)));
+    }
+
+    private static SignedJWT forward(Jwt jwt) throws Exception {
+        ForwardedPrincipalFilter filter = new ForwardedPrincipalFilter(SECRET, "gateway", List.of("university-composite"), 100, 300);
+
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/university-composite/1").header(HttpHeaders.AUTHORIZATION, "Bearer original"));
+        exchange.getAttributes().put(GATEWAY_ROUTE_ATTR, Route.async().id("university-composite").uri("http://localhost").predicate(e -> true).build());
+
+        AtomicReference<String> forwarded = new AtomicReference<>();
+        filter.filter(exchange, mutated -> {
+            forwarded.set(mutated.getRequest().getHeaders().getFirst(HttpHeaders.AUTHORIZATION));
+            return Mono.empty();
+        }).subscriberContext(ReactiveSecurityContextHolder.withAuthentication(new JwtAuthenticationToken(jwt))).block();
+
+        return SignedJWT.parse(forwarded.get().substring("Bearer ".length()));
+    }
+
+    private ReactiveJwtDecoder delegate(Instant expiresAt) {
+        return token -> {
+            verifications.incrementAndGet();
+            return Mono.just(jwt(token, expiresAt));
+        };
+    }
+
+    private static Jwt jwt(String token, Instant expiresAt) {
+        return Jwt.withTokenValue(token).header("alg", "RS256").subject("user").claim("scope", "university:read")
+                .issuedAt(expiresAt.minusSeconds(120)).expiresAt(expiresAt).build();
+    }
+}
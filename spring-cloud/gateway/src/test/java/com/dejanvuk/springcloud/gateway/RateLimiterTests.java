@@ -0,0 +1,158 @@
+package com.dejanvuk.springcloud.gateway;
+
+import com.dejanvuk.springcloud.gateway.cache.ResponseCacheGatewayFilterFactory;
+import com.dejanvuk.springcloud.gateway.ratelimit.BucketStore;
+import com.dejanvuk.springcloud.gateway.ratelimit.ClientRateLimiterGatewayFilterFactory;
+import com.dejanvuk.springcloud.gateway.ratelimit.ConsumptionReport;
+import com.dejanvuk.springcloud.gateway.ratelimit.InMemoryBucketStore;
+import com.dejanvuk.springcloud.gateway.ratelimit.RateLimiterConfiguration;
+import com.dejanvuk.springcloud.gateway.ratelimit.SharedBucketStore;
+import com.dejanvuk.springcloud.gateway.ratelimit.TokenBucketRateLimiter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.RequestRateLimiterGatewayFilterFactory;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ConfigurationService;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
+
+public class RateLimiterTests {
+
+    private static final BucketStore.Limit LIMIT = new BucketStore.Limit(1, 2);
+
+    private MeterRegistry registry;
+
+    @BeforeEach
+    public void setUp() {
+        registry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    public void deniesOnceTheBurstIsUsedUp() {
+        BucketStore store = new InMemoryBucketStore(100, Duration.ofMinutes(1));
+
+        assertTrue(store.tryConsume("client", LIMIT, 1).block().isAllowed());
+        assertTrue(store.tryConsume("client", LIMIT, 1).block().isAllowed());
+
+        BucketStore.Decision denied = store.tryConsume("client", LIMIT, 1).block();
+        assertFalse(denied.isAllowed());
+        assertTrue(denied.getRetryAfterNanos() > 0 && denied.getRetryAfterNanos() <= TimeUnit.SECONDS.toNanos(1));
+
+        assertTrue(store.tryConsume("other-client", LIMIT, 1).block().isAllowed());
+    }
+
+    @Test
+    public void neverGrantsMoreThanTheBurstUnderContention() throws Exception {
+        BucketStore store = new InMemoryBucketStore(100, Duration.ofMinutes(1));
+        BucketStore.Limit limit = new BucketStore.Limit(0.001, 50);
+
+        AtomicInteger allowed = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 200; i++) {
+            executor.submit(() -> {
+                start.await();
+                if (store.tryConsume("client", limit, 1).block().isAllowed()) allowed.incrementAndGet();
+                return null;
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(50, allowed.get());
+    }
+
+    @Test
+    public void nodesShareConsumptionThroughTheStore() {
+        List<SharedBucketStore> nodes = new ArrayList<>();
+        // Stands in for the broker: every report is delivered to every node, the publisher included
+        for (String name : List.of("node-1", "node-2")) {
+            nodes.add(new SharedBucketStore(name, new InMemoryBucketStore(100, Duration.ofMinutes(1)),
+                    report -> nodes.forEach(node -> node.apply(report)), Duration.ofMillis(100)));
+        }
+
+        assertTrue(nodes.get(0).tryConsume("client", LIMIT, 1).block().isAllowed());
+        assertTrue(nodes.get(0).tryConsume("client", LIMIT, 1).block().isAllowed());
+        nodes.get(0).sync();
+
+        assertFalse(nodes.get(1).tryConsume("client", LIMIT, 1).block().isAllowed());
+        assertFalse(nodes.get(0).tryConsume("client", LIMIT, 1).block().isAllowed());
+    }
+
+    @Test
+    public void ignoresItsOwnReports() {
+        InMemoryBucketStore local = new InMemoryBucketStore(100, Duration.ofMinutes(1));
+        SharedBucketStore store = new SharedBucketStore("node-1", local, report -> {}, Duration.ofMillis(100));
+
+        store.apply(new ConsumptionReport("node-1", List.of(new ConsumptionReport.Entry("client", 2, 1, 2))));
+
+        assertTrue(store.tryConsume("client", LIMIT, 1).block().isAllowed());
+    }
+
+    @Test
+    public void answersTooManyRequestsWithRetryAfter() {
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(new InMemoryBucketStore(100, Duration.ofMinutes(1)), registry,
+                new ConfigurationService(), 1, 1);
+        GatewayFilter filter = new ClientRateLimiterGatewayFilterFactory(limiter, new RateLimiterConfiguration().clientKeyResolver())
+                .apply(new RequestRateLimiterGatewayFilterFactory.Config());
+
+        ServerWebExchange first = exchange("user");
+        filter.filter(first, e -> Mono.empty()).block();
+        assertNotEquals(HttpStatus.TOO_MANY_REQUESTS, first.getResponse().getStatusCode());
+
+        ServerWebExchange second = exchange("user");
+        filter.filter(second, e -> Mono.empty()).block();
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, second.getResponse().getStatusCode());
+        assertEquals("1", second.getResponse().getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+
+        ServerWebExchange otherUser = exchange("another-user");
+        filter.filter(otherUser, e -> Mono.empty()).block();
+        assertNotEquals(HttpStatus.TOO_MANY_REQUESTS, otherUser.getResponse().getStatusCode());
+
+        assertEquals(2, registry.counter("gateway.rate.limiter", "route", "university-composite", "result", "allowed").count());
+        assertEquals(1, registry.counter("gateway.rate.limiter", "route", "university-composite", "result", "denied").count());
+    }
+
+    @Test
+    public void limitsBeforeTheResponseCacheAnswers() {
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(new InMemoryBucketStore(100, Duration.ofMinutes(1)), registry,
+                new ConfigurationService(), 1, 1);
+        GatewayFilter rateLimiter = new ClientRateLimiterGatewayFilterFactory(limiter, new RateLimiterConfiguration().clientKeyResolver())
+                .apply(new RequestRateLimiterGatewayFilterFactory.Config());
+        GatewayFilter responseCache = new ResponseCacheGatewayFilterFactory(registry, 1, 1024)
+                .apply(new ResponseCacheGatewayFilterFactory.Config());
+
+        assertTrue(((Ordered) rateLimiter).getOrder() < ((Ordered) responseCache).getOrder());
+    }
+
+    private static ServerWebExchange exchange(String subject) {
+        Jwt jwt = Jwt.withTokenValue("token").header("alg", "RS256").subject(subject).claim("client_id", "reader").build();
+
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/university-composite/1"));
+        exchange.getAttributes().put(GATEWAY_ROUTE_ATTR, Route.async().id("university-composite").uri("http://localhost").predicate(e -> true).build());
+        return exchange.mutate().principal(Mono.just(new JwtAuthenticationToken(jwt))).build();
+    }
+}
@@ -0,0 +1,160 @@
+package com.dejanvuk.springcloud.gateway;
+
+import com.dejanvuk.springcloud.gateway.cache.ResponseCacheGatewayFilterFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
+
+public class ResponseCacheTests {
+
+    private static final String PATH = "/university-composite/1";
+
+    private MeterRegistry registry;
+    private GatewayFilter filter;
+    private AtomicInteger upstreamCalls;
+    private String cacheControl;
+
+    @BeforeEach
+    public void setUp() {
+        registry = new SimpleMeterRegistry();
+        filter = new ResponseCacheGatewayFilterFactory(registry, 1, 64).apply(new ResponseCacheGatewayFilterFactory.Config());
+        upstreamCalls = new AtomicInteger();
+        cacheControl = null;
+    }
+
+    @Test
+    public void servesRepeatedGetsFromTheCache() {
+        MockServerWebExchange first = get(PATH, "university:read", null);
+        assertEquals("MISS", first.getResponse().getHeaders().getFirst("X-Cache"));
+        String etag = first.getResponse().getHeaders().getETag();
+        assertNotNull(etag);
+
+        MockServerWebExchange second = get(PATH, "university:read", null);
+        assertEquals(1, upstreamCalls.get());
+        assertEquals("HIT", second.getResponse().getHeaders().getFirst("X-Cache"));
+        assertEquals(etag, second.getResponse().getHeaders().getETag());
+        assertEquals(first.getResponse().getBodyAsString().block(), second.getResponse().getBodyAsString().block());
+
+        MockServerWebExchange conditional = get(PATH, "university:read", etag);
+        assertEquals(HttpStatus.NOT_MODIFIED, conditional.getResponse().getStatusCode());
+        assertEquals(1, upstreamCalls.get());
+
+        assertEquals(1, registry.counter("gateway.response.cache", "route", "university-composite", "result", "hit").count());
+        assertEquals(1, registry.counter("gateway.response.cache", "route", "university-composite", "result", "not_modified").count());
+    }
+
+    @Test
+    public void partitionsByScopeClaim() {
+        get(PATH, "university:read", null);
+        get(PATH, "university:read university:write", null);
+
+        assertEquals(2, upstreamCalls.get());
+    }
+
+    @Test
+    public void writesEvictThePath() {
+        get(PATH, "university:read", null);
+
+        write(MockServerHttpRequest.delete(PATH));
+
+        get(PATH, "university:read", null);
+        assertEquals(2, upstreamCalls.get());
+    }
+
+    @Test
+    public void postsEvictTheirCollection() {
+        get(PATH, "university:read", null);
+        get("/university-composite/2", "university:read", null);
+
+        write(MockServerHttpRequest.post("/university-composite"));
+
+        get(PATH, "university:read", null);
+        get("/university-composite/2", "university:read", null);
+        assertEquals(4, upstreamCalls.get());
+
+        write(MockServerHttpRequest.post("/university-composite/bulk"));
+
+        get(PATH, "university:read", null);
+        assertEquals(5, upstreamCalls.get());
+    }
+
+    @Test
+    public void readPathsDoNotEvict() {
+        ResponseCacheGatewayFilterFactory.Config config = new ResponseCacheGatewayFilterFactory.Config();
+        config.setReadPaths(List.of("/university-composite/batch"));
+        filter = new ResponseCacheGatewayFilterFactory(registry, 1, 64).apply(config);
+
+        get(PATH, "university:read", null);
+        write(MockServerHttpRequest.post("/university-composite/batch"));
+        get(PATH, "university:read", null);
+
+        assertEquals(1, upstreamCalls.get());
+    }
+
+    @Test
+    public void honorsUpstreamNoStore() {
+        cacheControl = "no-store";
+        get(PATH, "university:read", null);
+        get(PATH, "university:read", null);
+
+        assertEquals(2, upstreamCalls.get());
+    }
+
+    private MockServerWebExchange get(String path, String scope, String ifNoneMatch) {
+        MockServerHttpRequest.BaseBuilder<?> request = MockServerHttpRequest.get(path).accept(MediaType.APPLICATION_JSON);
+        if (ifNoneMatch != null) request.ifNoneMatch(ifNoneMatch);
+
+        MockServerWebExchange exchange = MockServerWebExchange.from(request);
+        exchange.getAttributes().put(GATEWAY_ROUTE_ATTR, route());
+
+        Jwt jwt = Jwt.withTokenValue("token").header("alg", "none").claim("scope", scope).build();
+        filter.filter(exchange, upstream())
+                .subscriberContext(ReactiveSecurityContextHolder.withAuthentication(new JwtAuthenticationToken(jwt)))
+                .block();
+        return exchange;
+    }
+
+    private void write(MockServerHttpRequest.BaseBuilder<?> request) {
+        MockServerWebExchange exchange = MockServerWebExchange.from(request);
+        exchange.getAttributes().put(GATEWAY_ROUTE_ATTR, route());
+        filter.filter(exchange, e -> Mono.empty()).block();
+    }
+
+    private GatewayFilterChain upstream() {
+        return exchange -> {
+            upstreamCalls.incrementAndGet();
+            ServerHttpResponse response = exchange.getResponse();
+            response.setStatusCode(HttpStatus.OK);
+            response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+            if (cacheControl != null) response.getHeaders().set(HttpHeaders.CACHE_CONTROL, cacheControl);
+
+            byte[] body = ("{\"universityId\":1,\"call\":" + upstreamCalls.get() + "}").getBytes(StandardCharsets.UTF_8);
+            return response.writeWith(Mono.just(response.bufferFactory().wrap(body)));
+        };
+    }
+
+    private static Route route() {
+        return Route.async().id("university-composite").uri("http://localhost").predicate(exchange -> true).build();
+    }
+}
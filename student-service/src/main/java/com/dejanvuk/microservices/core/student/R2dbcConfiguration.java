@@ -0,0 +1,82 @@
+package com.dejanvuk.microservices.core.student;
+
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.io.Resource;
+import org.springframework.data.r2dbc.config.AbstractR2dbcConfiguration;
+import org.springframework.data.r2dbc.connectionfactory.R2dbcTransactionManager;
+import org.springframework.data.r2dbc.connectionfactory.init.ConnectionFactoryInitializer;
+import org.springframework.data.r2dbc.connectionfactory.init.ResourceDatabasePopulator;
+import org.springframework.transaction.ReactiveTransactionManager;
+import org.springframework.transaction.reactive.TransactionalOperator;
+
+import static io.r2dbc.spi.ConnectionFactoryOptions.PASSWORD;
+import static io.r2dbc.spi.ConnectionFactoryOptions.USER;
+
+@Profile("r2dbc")
+@Configuration
+public class R2dbcConfiguration extends AbstractR2dbcConfiguration {
+
+    private static final Logger LOG = LoggerFactory.getLogger(R2dbcConfiguration.class);
+
+    private final String url;
+    private final String username;
+    private final String password;
+    private final int poolInitialSize;
+    private final int poolMaxSize;
+
+    public R2dbcConfiguration(@Value("${app.r2dbc.url}") String url,
+                              @Value("${app.r2dbc.username:}") String username,
+                              @Value("${app.r2dbc.password:}") String password,
+                              @Value("${app.r2dbc.pool.initialSize:10}") int poolInitialSize,
+                              @Value("${app.r2dbc.pool.maxSize:10}") int poolMaxSize) {
+        this.url = url;
+        this.username = username;
+        this.password = password;
+        this.poolInitialSize = poolInitialSize;
+        this.poolMaxSize = poolMaxSize;
+    }
+
+    @Bean
+    @Override
+    public ConnectionFactory connectionFactory() {
+        LOG.info("Creates an R2DBC connection pool for {} with maxSize = {}", url, poolMaxSize);
+
+        ConnectionFactoryOptions options = ConnectionFactoryOptions.parse(url).mutate()
+                .option(USER, username)
+                .option(PASSWORD, password)
+                .build();
+
+        return new ConnectionPool(ConnectionPoolConfiguration.builder(ConnectionFactories.get(options))
+                .initialSize(poolInitialSize)
+                .maxSize(poolMaxSize)
+                .build());
+    }
+
+    @Bean
+    public ReactiveTransactionManager transactionManager(ConnectionFactory connectionFactory) {
+        return new R2dbcTransactionManager(connectionFactory);
+    }
+
+    @Bean
+    public TransactionalOperator transactionalOperator(ReactiveTransactionManager transactionManager) {
+        return TransactionalOperator.create(transactionManager);
+    }
+
+    @Bean
+    public ConnectionFactoryInitializer connectionFactoryInitializer(ConnectionFactory connectionFactory, @Value("${app.r2dbc.schema}") Resource schema) {
+        ConnectionFactoryInitializer initializer = new ConnectionFactoryInitializer();
+        initializer.setConnectionFactory(connectionFactory);
+        initializer.setDatabasePopulator(new ResourceDatabasePopulator(schema));
+        return initializer;
+    }
+}
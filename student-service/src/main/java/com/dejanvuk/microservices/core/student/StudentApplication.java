@@ -9,13 +9,14 @@ import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.ConfigurableApplicationContext;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Profile;
 import reactor.core.scheduler.Scheduler;
 import reactor.core.scheduler.Schedulers;
 
 import java.util.concurrent.Executors;
 
 @SpringBootApplication
-@ComponentScan("com.dejanvuk")
+@ComponentScan({"com.dejanvuk.microservices.core.student", "com.dejanvuk.util"})
 public class StudentApplication {
 
     private static final Logger LOG = LoggerFactory.getLogger(StudentApplication.class);
@@ -27,6 +28,7 @@ public class StudentApplication {
         this.connectionPoolSize = connectionPoolSize;
     }
 
+    @Profile("!r2dbc")
     @Bean
     public Scheduler jdbcScheduler() {
         LOG.info("Creates a jdbcScheduler with connectionPoolSize = " + connectionPoolSize);
@@ -12,8 +12,13 @@ import javax.persistence.*;
 @Table(name = "students", indexes = { @Index(name = "students_index", unique = true, columnList = "universityId,studentId") })
 public class StudentEntity {
 
+    public static final int ID_ALLOCATION_SIZE = 50;
+
+    // Pooled allocation on the shared hibernate_sequence, databases that allocated one id at a time are moved past
+    // their existing ids by jpa/data-mysql.sql before the first block is reserved
     @Id
-    @GeneratedValue
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "student_sequence")
+    @SequenceGenerator(name = "student_sequence", sequenceName = "hibernate_sequence", allocationSize = ID_ALLOCATION_SIZE)
     private int id;
 
     @Version
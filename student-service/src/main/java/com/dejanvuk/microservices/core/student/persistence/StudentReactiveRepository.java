@@ -0,0 +1,130 @@
+package com.dejanvuk.microservices.core.student.persistence;
+
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.Row;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+
+@Profile("r2dbc")
+@Repository
+public class StudentReactiveRepository {
+
+    private static final String SELECT_STUDENTS = "SELECT id, version, university_id, student_id, first_name, last_name, section FROM students";
+
+    private final DatabaseClient client;
+    private final TransactionalOperator transactionalOperator;
+    private final boolean mysql;
+    private final IdBlock ids = new IdBlock();
+
+    @Autowired
+    public StudentReactiveRepository(DatabaseClient client, TransactionalOperator transactionalOperator, ConnectionFactory connectionFactory) {
+        this.client = client;
+        this.transactionalOperator = transactionalOperator;
+        this.mysql = connectionFactory.getMetadata().getName().toLowerCase().contains("mysql");
+    }
+
+    public Mono<StudentEntity> save(StudentEntity entity) {
+        return nextId()
+                .flatMap(id -> client.execute("INSERT INTO students (id, version, university_id, student_id, first_name, last_name, section) " +
+                        "VALUES (:id, :version, :universityId, :studentId, :firstName, :lastName, :section)")
+                        .bind("id", id)
+                        .bind("version", entity.getVersion())
+                        .bind("universityId", entity.getUniversityId())
+                        .bind("studentId", entity.getStudentId())
+                        .bind("firstName", entity.getFirstName())
+                        .bind("lastName", entity.getLastName())
+                        .bind("section", entity.getSection())
+                        .fetch().rowsUpdated()
+                        .map(rows -> {
+                            entity.setId(id);
+                            return entity;
+                        })
+                        .as(transactionalOperator::transactional));
+    }
+
+    public Flux<StudentEntity> findByUniversityId(int universityId) {
+        return client.execute(SELECT_STUDENTS + " WHERE university_id = :universityId ORDER BY student_id")
+                .bind("universityId", universityId)
+                .map((row, metadata) -> toEntity(row))
+                .all();
+    }
+
+    public Flux<StudentEntity> findByUniversityIdIn(Collection<Integer> universityIds) {
+        return client.execute(SELECT_STUDENTS + " WHERE university_id IN (:universityIds)")
+                .bind("universityIds", universityIds)
+                .map((row, metadata) -> toEntity(row))
+                .all();
+    }
+
+    public Mono<Integer> deleteByUniversityId(int universityId) {
+        return client.execute("DELETE FROM students WHERE university_id = :universityId")
+                .bind("universityId", universityId)
+                .fetch().rowsUpdated();
+    }
+
+    private Mono<Integer> nextId() {
+        return Mono.defer(() -> {
+            Integer id = ids.take();
+            return id != null ? Mono.just(id) : nextBlock().map(ids::refill);
+        });
+    }
+
+    // Shares Hibernate's pooled hibernate_sequence so both persistence modes can run against the same schema: the value
+    // read is the upper bound of a block of ID_ALLOCATION_SIZE ids. The block is reserved in a transaction of its own,
+    // so a failed insert can't roll the sequence back under ids that are still handed out
+    private Mono<Integer> nextBlock() {
+        if (!mysql) {
+            return client.execute("SELECT NEXT VALUE FOR hibernate_sequence")
+                    .map((row, metadata) -> row.get(0, Long.class).intValue())
+                    .one();
+        }
+
+        return client.execute("UPDATE hibernate_sequence SET next_val = LAST_INSERT_ID(next_val + :increment)")
+                .bind("increment", StudentEntity.ID_ALLOCATION_SIZE)
+                .fetch().rowsUpdated()
+                .then(client.execute("SELECT LAST_INSERT_ID()")
+                        .map((row, metadata) -> row.get(0, Long.class).intValue() - StudentEntity.ID_ALLOCATION_SIZE)
+                        .one())
+                .as(transactionalOperator::transactional);
+    }
+
+    private StudentEntity toEntity(Row row) {
+        StudentEntity entity = new StudentEntity(
+                row.get("university_id", Integer.class),
+                row.get("student_id", Integer.class),
+                row.get("first_name", String.class),
+                row.get("last_name", String.class),
+                row.get("section", String.class));
+        entity.setId(row.get("id", Integer.class));
+        entity.setVersion(row.get("version", Integer.class));
+        return entity;
+    }
+
+    static class IdBlock {
+        private int next = 1;
+        private int last = 0;
+
+        synchronized Integer take() {
+            return next <= last ? next++ : null;
+        }
+
+        // Returns the first id of the block ending at hi. The rest replaces the current block once that one is used up,
+        // a block fetched concurrently by another caller leaves its remainder unused. The first block of a sequence
+        // starting at 1 is cut off at 1, like Hibernate's pooled optimizer does
+        synchronized int refill(int hi) {
+            int first = Math.max(1, hi - StudentEntity.ID_ALLOCATION_SIZE + 1);
+            if (next > last) {
+                next = first + 1;
+                last = hi;
+            }
+            return first;
+        }
+    }
+}
@@ -1,6 +1,9 @@
 package com.dejanvuk.microservices.core.student.persistence;
 
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -11,4 +14,14 @@ public interface StudentRepository extends CrudRepository<StudentEntity, Integer
 
     @Transactional(readOnly = true)
     List<StudentEntity> findByUniversityId(int productId);
-}
\ No newline at end of file
+
+    @Transactional
+    @Modifying
+    @Query("delete from StudentEntity s where s.universityId = :universityId")
+    int deleteByUniversityId(@Param("universityId") int universityId);
+
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM students WHERE university_id = :universityId LIMIT :limit", nativeQuery = true)
+    int deleteChunkByUniversityId(@Param("universityId") int universityId, @Param("limit") int limit);
+}
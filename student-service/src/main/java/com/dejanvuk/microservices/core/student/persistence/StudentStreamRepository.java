@@ -0,0 +1,49 @@
+package com.dejanvuk.microservices.core.student.persistence;
+
+import org.hibernate.jpa.QueryHints;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.TypedQuery;
+import java.util.Collection;
+import java.util.function.Function;
+
+@Profile("!r2dbc")
+@Repository
+public class StudentStreamRepository {
+
+    private final EntityManagerFactory entityManagerFactory;
+    private final int fetchSize;
+
+    @Autowired
+    public StudentStreamRepository(EntityManagerFactory entityManagerFactory, @Value("${app.student.fetchSize:500}") int fetchSize) {
+        this.entityManagerFactory = entityManagerFactory;
+        this.fetchSize = fetchSize;
+    }
+
+    public Flux<StudentEntity> streamByUniversityId(int universityId) {
+        return stream(em -> em.createQuery("select s from StudentEntity s where s.universityId = :universityId order by s.studentId", StudentEntity.class)
+                .setParameter("universityId", universityId));
+    }
+
+    public Flux<StudentEntity> streamByUniversityIdIn(Collection<Integer> universityIds) {
+        return stream(em -> em.createQuery("select s from StudentEntity s where s.universityId in :universityIds", StudentEntity.class)
+                .setParameter("universityIds", universityIds));
+    }
+
+    private Flux<StudentEntity> stream(Function<EntityManager, TypedQuery<StudentEntity>> query) {
+        return Flux.using(
+                entityManagerFactory::createEntityManager,
+                em -> Flux.fromStream(() -> query.apply(em)
+                        .setHint(QueryHints.HINT_FETCH_SIZE, fetchSize)
+                        .setHint(QueryHints.HINT_READONLY, true)
+                        .getResultStream())
+                        .doOnNext(em::detach),
+                EntityManager::close);
+    }
+}
@@ -0,0 +1,169 @@
+package com.dejanvuk.microservices.core.student.services;
+
+import com.dejanvuk.api.core.student.Student;
+import com.dejanvuk.api.event.Event;
+import com.dejanvuk.util.exceptions.EventProcessingException;
+import com.dejanvuk.util.exceptions.InvalidPayloadException;
+import com.dejanvuk.util.messaging.DeadLetterConfiguration;
+import com.dejanvuk.util.messaging.DeferredAcknowledgement;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cloud.stream.annotation.EnableBinding;
+import org.springframework.cloud.stream.annotation.StreamListener;
+import org.springframework.cloud.stream.messaging.Sink;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.UnicastProcessor;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.concurrent.Queues;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+@ConditionalOnProperty(name = "app.messaging.batch.enabled", havingValue = "true")
+@EnableBinding(Sink.class)
+public class BatchMessageProcessor {
+
+    private static final Logger LOG = LoggerFactory.getLogger(BatchMessageProcessor.class);
+
+    private final StudentBatchWriter writer;
+    private final int maxAttempts;
+    private final Duration backoff;
+    private final Semaphore inFlight;
+    private final Scheduler writerScheduler;
+    private final FluxSink<PendingEvent> pending;
+    private final Disposable subscription;
+    private final MessageChannel errorChannel;
+    private final AtomicBoolean unbatchedWarned = new AtomicBoolean();
+
+    @Autowired
+    public BatchMessageProcessor(StudentBatchWriter writer,
+                                 @Value("${app.messaging.maxInFlight:250}") int maxInFlight,
+                                 @Value("${app.messaging.maxAttempts:3}") int maxAttempts,
+                                 @Value("${app.messaging.backoffMs:500}") int backoffMs,
+                                 @Value("${app.messaging.batch.maxSize:100}") int maxSize,
+                                 @Value("${app.messaging.batch.maxWaitMs:50}") int maxWaitMs,
+                                 @Qualifier(DeadLetterConfiguration.INPUT_ERROR_CHANNEL) ObjectProvider<MessageChannel> errorChannel) {
+        this.writer = writer;
+        this.errorChannel = errorChannel.getIfAvailable();
+        this.maxAttempts = maxAttempts;
+        this.backoff = Duration.ofMillis(backoffMs);
+        this.inFlight = new Semaphore(maxInFlight);
+        this.writerScheduler = Schedulers.newSingle("student-batch-writer");
+
+        // Batches are written one after the other, a failed one is retried event by event before the next starts.
+        // bufferTimeout does not wait for requests, the buffer is bounded by maxInFlight
+        UnicastProcessor<PendingEvent> queue = UnicastProcessor.create(Queues.<PendingEvent>unboundedMultiproducer().get());
+        this.pending = queue.sink();
+        this.subscription = queue
+                .bufferTimeout(maxSize, Duration.ofMillis(maxWaitMs))
+                .onBackpressureBuffer()
+                .concatMap(this::write)
+                .subscribe();
+
+        LOG.info("Batch consumer enabled with maxSize: {}, maxWaitMs: {}, maxInFlight: {}", maxSize, maxWaitMs, maxInFlight);
+    }
+
+    // Batching needs manual acknowledgements: the listener only queues the event, batches fill up from the broker's
+    // prefetch and every message is acknowledged once its batch is committed. The single writer keeps the arrival
+    // order, both for the writes and for the acknowledgements
+    @StreamListener(target = Sink.INPUT)
+    public void process(Message<Event<Integer, Student>> message) {
+        Event<Integer, Student> event = message.getPayload();
+
+        LOG.debug("Event created at {} ", event.getCreationDate());
+
+        DeferredAcknowledgement acknowledgement = DeferredAcknowledgement.from(message, errorChannel);
+        if (acknowledgement != null) {
+            inFlight.acquireUninterruptibly();
+            pending.next(new PendingEvent(event, acknowledgement));
+            return;
+        }
+
+        // The binder acknowledges as soon as the listener returns, and retries and dead-letters what it throws, so
+        // there is nothing to batch. The event is written on the listener thread
+        if (unbatchedWarned.compareAndSet(false, true)) {
+            LOG.warn("Messages arrive without manual acknowledgements, student events are written one by one");
+        }
+        writer.writeOne(event);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        subscription.dispose();
+        writerScheduler.dispose();
+    }
+
+    private Mono<Void> write(List<PendingEvent> batch) {
+        return Mono.fromCallable(() -> writeBatch(batch))
+                .subscribeOn(writerScheduler)
+                .flatMap(written -> written
+                        ? Mono.fromRunnable(() -> batch.forEach(p -> p.complete(null)))
+                        : Flux.fromIterable(batch).concatMap(this::writeOne).then());
+    }
+
+    private boolean writeBatch(List<PendingEvent> batch) {
+        try {
+            writer.write(batch.stream().map(p -> p.event).collect(Collectors.toList()));
+            LOG.debug("Wrote a batch of {} events", batch.size());
+            return true;
+
+        } catch (RuntimeException ex) {
+            LOG.warn("Batch of {} events failed, retrying them one by one: {}", batch.size(), ex.toString());
+            return false;
+        }
+    }
+
+    // Backing off holds back the events queued behind this one, but not the writer thread
+    private Mono<Void> writeOne(PendingEvent p) {
+        return Mono.fromRunnable(() -> writer.writeOne(p.event))
+                .subscribeOn(writerScheduler)
+                .retryWhen(errors -> errors.index().concatMap(failure -> {
+                    long attempt = failure.getT1() + 1;
+                    Throwable ex = failure.getT2();
+                    if (attempt >= maxAttempts || ex instanceof InvalidPayloadException || ex instanceof EventProcessingException) {
+                        return Mono.error(ex);
+                    }
+                    LOG.debug("Attempt {} to write event {} failed, retrying: {}", attempt, p.event.getKey(), ex.toString());
+                    return Mono.delay(backoff.multipliedBy(1L << Math.min(attempt - 1, 10)));
+                }))
+                .then(Mono.<Throwable>empty())
+                .onErrorResume(Mono::just)
+                .doOnSuccess(p::complete)
+                .then();
+    }
+
+    private class PendingEvent {
+        private final Event<Integer, Student> event;
+        private final DeferredAcknowledgement acknowledgement;
+
+        private PendingEvent(Event<Integer, Student> event, DeferredAcknowledgement acknowledgement) {
+            this.event = event;
+            this.acknowledgement = acknowledgement;
+        }
+
+        private void complete(Throwable error) {
+            inFlight.release();
+            if (error == null) {
+                acknowledgement.accept();
+            } else {
+                LOG.warn("Rejecting student event {}: {}", event.getKey(), error.toString());
+                acknowledgement.reject(error);
+            }
+        }
+    }
+}
@@ -4,13 +4,29 @@ import com.dejanvuk.api.core.student.Student;
 import com.dejanvuk.api.core.student.StudentService;
 import com.dejanvuk.api.event.Event;
 import com.dejanvuk.util.exceptions.EventProcessingException;
+import com.dejanvuk.util.exceptions.InvalidPayloadException;
+import com.dejanvuk.util.messaging.DeadLetterConfiguration;
+import com.dejanvuk.util.messaging.DeferredAcknowledgement;
+import com.dejanvuk.util.messaging.OrderedEventConsumer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.cloud.stream.annotation.EnableBinding;
 import org.springframework.cloud.stream.annotation.StreamListener;
 import org.springframework.cloud.stream.messaging.Sink;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import reactor.core.publisher.Mono;
 
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.Objects;
+
+@ConditionalOnProperty(name = "app.messaging.batch.enabled", havingValue = "false", matchIfMissing = true)
 @EnableBinding(Sink.class)
 public class MessageProcessor {
 
@@ -18,27 +34,69 @@ public class MessageProcessor {
 
     private final StudentService studentService;
 
+    private final OrderedEventConsumer<Event<Integer, Student>> consumer;
+
+    private final MessageChannel errorChannel;
+
     @Autowired
-    public MessageProcessor(StudentService studentService) {
+    public MessageProcessor(StudentService studentService,
+                            @Value("${app.messaging.processingTimeoutSec:10}") int processingTimeoutSec,
+                            @Value("${app.messaging.lanes:8}") int lanes,
+                            @Value("${app.messaging.maxInFlight:256}") int maxInFlight,
+                            @Value("${app.messaging.maxAttempts:3}") int maxAttempts,
+                            @Value("${app.messaging.backoffMs:500}") int backoffMs,
+                            @Qualifier(DeadLetterConfiguration.INPUT_ERROR_CHANNEL) ObjectProvider<MessageChannel> errorChannel) {
         this.studentService = studentService;
+        this.errorChannel = errorChannel.getIfAvailable();
+        this.consumer = new OrderedEventConsumer<>("student", lanes, maxInFlight, Duration.ofSeconds(processingTimeoutSec),
+                maxAttempts, Duration.ofMillis(backoffMs), Event::getKey, this::processEvent,
+                ex -> !(ex instanceof InvalidPayloadException || ex instanceof EventProcessingException));
     }
 
     @StreamListener(target = Sink.INPUT)
-    public void process(Event<Integer, Student> event) {
+    public void process(Message<Event<Integer, Student>> message) {
+        Event<Integer, Student> event = message.getPayload();
 
-        LOG.info("Event created at {} ", event.getCreationDate());
+        LOG.debug("Event created at {} ", event.getCreationDate());
+
+        DeferredAcknowledgement acknowledgement = DeferredAcknowledgement.from(message, errorChannel);
+        if (acknowledgement != null) {
+            // Acknowledged once written, events of the same university are applied in the order they arrived
+            consumer.accept(event, acknowledgement);
+        } else {
+            // The binder acknowledges as soon as the listener returns, so it has to wait for the write
+            consumer.process(event).block();
+        }
+    }
 
+    public Mono<Void> processEvent(Event<Integer, Student> event) {
         switch (event.getEventType()) {
             case CREATE:
                 Student student = event.getData();
-                studentService.createStudent(student);
-                break;
+                return studentService.createStudent(student)
+                        .onErrorResume(InvalidPayloadException.class, ex -> alreadyCreated(student, ex))
+                        .then();
             case DELETE:
                 int universityId = event.getKey();
-                studentService.deleteStudents(universityId);
-                break;
+                return studentService.deleteStudents(universityId);
             default:
-                throw new EventProcessingException("Invalid event!");
+                return Mono.error(new EventProcessingException("Invalid event!"));
         }
     }
+
+    // A retry after a timed out attempt, or a redelivery, finds its own earlier write
+    private Mono<Student> alreadyCreated(Student student, InvalidPayloadException ex) {
+        return studentService.getStudents(student.getUniversityId())
+                .filter(existing -> existing.getStudentId() == student.getStudentId()
+                        && Objects.equals(existing.getFirstName(), student.getFirstName())
+                        && Objects.equals(existing.getLastName(), student.getLastName())
+                        && Objects.equals(existing.getSection(), student.getSection()))
+                .next()
+                .switchIfEmpty(Mono.error(ex));
+    }
+
+    @PreDestroy
+    public void stop() {
+        consumer.dispose();
+    }
 }
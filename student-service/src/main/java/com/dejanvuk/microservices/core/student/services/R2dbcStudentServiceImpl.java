@@ -0,0 +1,72 @@
+package com.dejanvuk.microservices.core.student.services;
+
+import com.dejanvuk.api.core.student.Student;
+import com.dejanvuk.api.core.student.StudentService;
+import com.dejanvuk.microservices.core.student.persistence.StudentReactiveRepository;
+import com.dejanvuk.util.exceptions.InvalidPayloadException;
+import com.dejanvuk.util.http.ServiceUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Objects;
+
+@Profile("r2dbc")
+@RestController
+public class R2dbcStudentServiceImpl implements StudentService {
+    private static final Logger LOG = LoggerFactory.getLogger(R2dbcStudentServiceImpl.class);
+
+    private final ServiceUtil serviceUtil;
+    private final StudentMapper mapper;
+    private final StudentReactiveRepository repository;
+
+    @Autowired
+    public R2dbcStudentServiceImpl(ServiceUtil serviceUtil, StudentMapper mapper, StudentReactiveRepository repository) {
+        this.serviceUtil = serviceUtil;
+        this.mapper = mapper;
+        this.repository = repository;
+    }
+
+    @Override
+    public Mono<Student> createStudent(Student body) {
+        Objects.requireNonNull(body);
+
+        return repository.save(mapper.apiToEntity(body))
+                .map(e -> mapper.entityToApi(e))
+                .onErrorMap(DataIntegrityViolationException.class,
+                        ex -> new InvalidPayloadException("The student with universityId: " + body.getUniversityId() + " and studentId:" + body.getStudentId() + "already exists!"));
+    }
+
+    @Override
+    public Flux<Student> getStudents(int universityId) {
+        if (universityId < 1) throw new InvalidPayloadException("Invalid universityId: " + universityId);
+
+        return repository.findByUniversityId(universityId)
+                .map(e -> mapper.entityToApi(e))
+                .map(e -> {e.setServiceAddress(serviceUtil.getServiceAddress()); return e;});
+    }
+
+    @Override
+    public Flux<Student> getStudentsByUniversityIds(List<Integer> universityIds) {
+        universityIds.forEach(universityId -> {
+            if (universityId < 1) throw new InvalidPayloadException("Invalid universityId: " + universityId);
+        });
+
+        return repository.findByUniversityIdIn(universityIds)
+                .map(e -> mapper.entityToApi(e))
+                .map(e -> {e.setServiceAddress(serviceUtil.getServiceAddress()); return e;});
+    }
+
+    @Override
+    public Mono<Void> deleteStudents(int universityId) {
+        return repository.deleteByUniversityId(universityId)
+                .doOnNext(count -> LOG.info("Deleted {} students with universityId: {}", count, universityId))
+                .then();
+    }
+}
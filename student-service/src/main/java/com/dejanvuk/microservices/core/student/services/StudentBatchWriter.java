@@ -0,0 +1,100 @@
+package com.dejanvuk.microservices.core.student.services;
+
+import com.dejanvuk.api.core.student.Student;
+import com.dejanvuk.api.event.Event;
+import com.dejanvuk.microservices.core.student.persistence.StudentEntity;
+import com.dejanvuk.microservices.core.student.persistence.StudentRepository;
+import com.dejanvuk.util.exceptions.EventProcessingException;
+import com.dejanvuk.util.exceptions.InvalidPayloadException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+import static java.util.Collections.singletonList;
+
+@Profile("!r2dbc")
+@Component
+public class StudentBatchWriter {
+
+    private final StudentRepository repository;
+    private final StudentMapper mapper;
+    private final TransactionTemplate transactionTemplate;
+
+    @Autowired
+    public StudentBatchWriter(StudentRepository repository, StudentMapper mapper, PlatformTransactionManager transactionManager) {
+        this.repository = repository;
+        this.mapper = mapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    public void write(List<Event<Integer, Student>> events) {
+        transactionTemplate.executeWithoutResult(status -> apply(events));
+    }
+
+    public void writeOne(Event<Integer, Student> event) {
+        try {
+            write(singletonList(event));
+        } catch (DataIntegrityViolationException dive) {
+            Student body = event.getData();
+            if (alreadyCreated(body)) return;
+
+            throw new InvalidPayloadException("The student with universityId: " + body.getUniversityId() + " and studentId:" + body.getStudentId() + "already exists!");
+        }
+    }
+
+    // A redelivered event finds its own earlier write, only a different student under the same ids is rejected
+    private boolean alreadyCreated(Student body) {
+        return repository.findByUniversityId(body.getUniversityId()).stream()
+                .anyMatch(existing -> existing.getStudentId() == body.getStudentId()
+                        && Objects.equals(existing.getFirstName(), body.getFirstName())
+                        && Objects.equals(existing.getLastName(), body.getLastName())
+                        && Objects.equals(existing.getSection(), body.getSection()));
+    }
+
+    // Keeps the event order: pending inserts are flushed before a delete and pending deletes before an insert
+    private void apply(List<Event<Integer, Student>> events) {
+        List<StudentEntity> creates = new ArrayList<>();
+        Set<Integer> deletes = new LinkedHashSet<>();
+
+        for (Event<Integer, Student> event : events) {
+            switch (event.getEventType()) {
+                case CREATE:
+                    flushDeletes(deletes);
+                    creates.add(mapper.apiToEntity(event.getData()));
+                    break;
+                case DELETE:
+                    flushCreates(creates);
+                    deletes.add(event.getKey());
+                    break;
+                default:
+                    throw new EventProcessingException("Invalid event!");
+            }
+        }
+
+        flushCreates(creates);
+        flushDeletes(deletes);
+    }
+
+    private void flushCreates(List<StudentEntity> creates) {
+        if (creates.isEmpty()) return;
+
+        repository.saveAll(creates);
+        creates.clear();
+    }
+
+    private void flushDeletes(Set<Integer> universityIds) {
+        if (universityIds.isEmpty()) return;
+
+        universityIds.forEach(universityId -> repository.deleteByUniversityId(universityId));
+        universityIds.clear();
+    }
+}
@@ -4,20 +4,26 @@ import com.dejanvuk.api.core.student.Student;
 import com.dejanvuk.api.core.student.StudentService;
 import com.dejanvuk.util.exceptions.InvalidPayloadException;
 import com.dejanvuk.util.http.ServiceUtil;
+import com.dejanvuk.util.tracing.SignalTracer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.web.bind.annotation.RestController;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 import reactor.core.scheduler.Scheduler;
 import com.dejanvuk.microservices.core.student.persistence.StudentEntity;
 import com.dejanvuk.microservices.core.student.persistence.StudentRepository;
+import com.dejanvuk.microservices.core.student.persistence.StudentStreamRepository;
 
 
 import java.util.List;
 import java.util.Objects;
 
+@Profile("!r2dbc")
 @RestController
 public class StudentServiceImpl implements StudentService {
     private static final Logger LOG = LoggerFactory.getLogger(StudentServiceImpl.class);
@@ -25,54 +31,85 @@ public class StudentServiceImpl implements StudentService {
     private final ServiceUtil serviceUtil;
     private final StudentMapper mapper;
     private final StudentRepository repository;
+    private final StudentStreamRepository streamRepository;
     private final Scheduler scheduler;
+    private final SignalTracer tracer;
+    private final int deleteChunkSize;
 
     @Autowired
-    public StudentServiceImpl(ServiceUtil serviceUtil, StudentMapper mapper, StudentRepository repository, Scheduler scheduler) {
+    public StudentServiceImpl(ServiceUtil serviceUtil, StudentMapper mapper, StudentRepository repository, StudentStreamRepository streamRepository, Scheduler scheduler, SignalTracer tracer,
+                              @Value("${app.student.deleteChunkSize:0}") int deleteChunkSize) {
         this.serviceUtil = serviceUtil;
         this.mapper = mapper;
         this.repository = repository;
+        this.streamRepository = streamRepository;
         this.scheduler = scheduler;
+        this.tracer = tracer;
+        this.deleteChunkSize = deleteChunkSize;
     }
 
     @Override
-    public Student createStudent(Student body) {
+    public Mono<Student> createStudent(Student body) {
         Objects.requireNonNull(body);
 
-        try {
-            StudentEntity entity = mapper.apiToEntity(body);
-            StudentEntity newEntity = repository.save(entity);
-
-            return mapper.entityToApi(newEntity);
-
-        } catch (DataIntegrityViolationException dive) {
-            throw new InvalidPayloadException("The student with universityId: " + body.getUniversityId() + " and studentId:" + body.getStudentId() + "already exists!");
-        }
+        return Mono.fromCallable(() -> internalCreateStudent(body)).subscribeOn(scheduler);
     }
 
     @Override
     public Flux<Student> getStudents(int universityId) {
         if (universityId < 1) throw new InvalidPayloadException("Invalid universityId: " + universityId);
 
-        return asyncFlux(getByUniversityId(universityId)).log();
+        return tracer.trace("student-get", streamRepository.streamByUniversityId(universityId)
+                .map(e -> mapper.entityToApi(e))
+                .map(e -> {e.setServiceAddress(serviceUtil.getServiceAddress()); return e;})
+                .subscribeOn(scheduler));
     }
 
     @Override
-    public void deleteStudents(int universityId) {
-        repository.deleteAll(repository.findByUniversityId(universityId));
+    public Flux<Student> getStudentsByUniversityIds(List<Integer> universityIds) {
+        universityIds.forEach(universityId -> {
+            if (universityId < 1) throw new InvalidPayloadException("Invalid universityId: " + universityId);
+        });
+
+        return streamRepository.streamByUniversityIdIn(universityIds)
+                .map(e -> mapper.entityToApi(e))
+                .map(e -> {e.setServiceAddress(serviceUtil.getServiceAddress()); return e;})
+                .subscribeOn(scheduler);
     }
 
-    protected List<Student> getByUniversityId(int universityId) {
+    @Override
+    public Mono<Void> deleteStudents(int universityId) {
+        return Mono.fromCallable(() -> deleteByUniversityId(universityId))
+                .doOnNext(count -> LOG.info("Deleted {} students with universityId: {}", count, universityId))
+                .subscribeOn(scheduler)
+                .then();
+    }
 
-        List<StudentEntity> entityList = repository.findByUniversityId(universityId);
-        List<Student> list = mapper.entityListToApiList(entityList);
-        list.forEach(e -> e.setServiceAddress(serviceUtil.getServiceAddress()));
+    // With a chunk size every DELETE runs in its own transaction, so row locks are only held for one chunk at a time
+    protected int deleteByUniversityId(int universityId) {
+        if (deleteChunkSize <= 0) {
+            return repository.deleteByUniversityId(universityId);
+        }
 
-        return list;
-    }
+        int total = 0;
+        int deleted;
+        do {
+            deleted = repository.deleteChunkByUniversityId(universityId, deleteChunkSize);
+            total += deleted;
+        } while (deleted == deleteChunkSize);
 
-    private <T> Flux<T> asyncFlux(Iterable<T> iterable) {
-        return Flux.fromIterable(iterable).publishOn(scheduler);
+        return total;
     }
 
+    protected Student internalCreateStudent(Student body) {
+        try {
+            StudentEntity entity = mapper.apiToEntity(body);
+            StudentEntity newEntity = repository.save(entity);
+
+            return mapper.entityToApi(newEntity);
+
+        } catch (DataIntegrityViolationException dive) {
+            throw new InvalidPayloadException("The student with universityId: " + body.getUniversityId() + " and studentId:" + body.getStudentId() + "already exists!");
+        }
+    }
 }
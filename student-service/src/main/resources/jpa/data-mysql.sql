@@ -0,0 +1,4 @@
+-- hibernate_sequence is read with a pooled optimizer, which hands out the block ending at next_val. Databases created
+-- while ids were allocated one at a time have next_val = MAX(id) + 1, so it is moved past the ids already in use.
+-- 51 is StudentEntity.ID_ALLOCATION_SIZE + 1, on a database that is already migrated the statement changes nothing.
+UPDATE hibernate_sequence SET next_val = GREATEST(next_val, (SELECT COALESCE(MAX(id), 0) + 51 FROM students));
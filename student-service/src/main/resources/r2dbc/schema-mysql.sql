@@ -0,0 +1,20 @@
+CREATE TABLE IF NOT EXISTS students (
+    id INT NOT NULL,
+    version INT NOT NULL,
+    university_id INT NOT NULL,
+    student_id INT NOT NULL,
+    first_name VARCHAR(255),
+    last_name VARCHAR(255),
+    section VARCHAR(255),
+    PRIMARY KEY (id),
+    UNIQUE KEY students_index (university_id, student_id)
+);
+
+CREATE TABLE IF NOT EXISTS hibernate_sequence (
+    next_val BIGINT
+);
+
+INSERT INTO hibernate_sequence (next_val) SELECT 1 FROM DUAL WHERE NOT EXISTS (SELECT * FROM hibernate_sequence);
+
+-- Moves a sequence left behind by one-at-a-time allocation past the ids in use, see jpa/data-mysql.sql
+UPDATE hibernate_sequence SET next_val = GREATEST(next_val, (SELECT COALESCE(MAX(id), 0) + 51 FROM students));
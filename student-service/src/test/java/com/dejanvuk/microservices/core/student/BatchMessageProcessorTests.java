@@ -0,0 +1,226 @@
+package com.dejanvuk.microservices.core.student;
+
+import com.dejanvuk.api.core.student.Student;
+import com.dejanvuk.api.event.Event;
+import com.dejanvuk.microservices.core.student.persistence.StudentRepository;
+import com.dejanvuk.util.exceptions.InvalidPayloadException;
+import com.dejanvuk.util.messaging.DeadLetterConfiguration;
+import com.rabbitmq.client.Channel;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.amqp.support.AmqpHeaders;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cloud.stream.messaging.Sink;
+import org.springframework.integration.IntegrationMessageHeaderAccessor;
+import org.springframework.integration.StaticMessageHeaderAccessor;
+import org.springframework.integration.channel.AbstractMessageChannel;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.MessagingException;
+import org.springframework.messaging.SubscribableChannel;
+import org.springframework.messaging.support.GenericMessage;
+import org.springframework.messaging.support.MessageBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static com.dejanvuk.api.event.Event.Type.CREATE;
+import static com.dejanvuk.api.event.Event.Type.DELETE;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@SpringBootTest(properties = {"spring.datasource.url=jdbc:h2:mem:student-db-batch", "eureka.client.enabled=false", "spring.cloud.config.enabled=false",
+        "app.messaging.batch.enabled=true", "app.messaging.batch.maxSize=10", "app.messaging.batch.maxWaitMs=200",
+        "spring.cloud.stream.bindings.input.destination=students", "spring.cloud.stream.bindings.input.group=studentsGroup"})
+class BatchMessageProcessorTests {
+
+    @Autowired
+    private StudentRepository repository;
+
+    @Autowired
+    private Sink channels;
+
+    @Autowired
+    @Qualifier(DeadLetterConfiguration.INPUT_ERROR_CHANNEL)
+    private SubscribableChannel errorChannel;
+
+    private AbstractMessageChannel input = null;
+
+    private ExecutorService executor;
+
+    @BeforeEach
+    public void setupDb() {
+        input = (AbstractMessageChannel) channels.input();
+        executor = Executors.newFixedThreadPool(10);
+        repository.deleteAll();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void concurrentCreates() {
+
+        List<CompletableFuture<Void>> sends = new ArrayList<>();
+        for (int studentId = 1; studentId <= 25; studentId++) {
+            sends.add(sendAsync(createEvent(1, studentId)));
+        }
+
+        sends.forEach(CompletableFuture::join);
+
+        assertEquals(25, repository.findByUniversityId(1).size());
+    }
+
+    @Test
+    public void writesEventsWithoutManualAcksRightAway() {
+
+        long start = System.currentTimeMillis();
+        for (int studentId = 1; studentId <= 30; studentId++) {
+            send(createEvent(1, studentId));
+        }
+
+        // Without manual acks there is nothing to batch, no event waits out maxWaitMs
+        assertTrue(System.currentTimeMillis() - start < 30 * 200 / 2, "Events waited for their batch");
+        assertEquals(30, repository.findByUniversityId(1).size());
+    }
+
+    @Test
+    public void duplicateOnlyFailsItsOwnEvent() {
+
+        send(createEvent(1, 1));
+
+        // A redelivery of the same event is accepted, a different student under the same ids is not
+        send(createEvent(1, 1));
+
+        List<CompletableFuture<Void>> sends = new ArrayList<>();
+        sends.add(sendAsync(createEvent(1, 1, "other firstName")));
+        for (int studentId = 2; studentId <= 5; studentId++) {
+            sends.add(sendAsync(createEvent(1, studentId)));
+        }
+
+        try {
+            sends.get(0).join();
+            fail("Expected the duplicate to fail!");
+        } catch (RuntimeException ex) {
+            assertTrue(ex.getCause() instanceof MessagingException);
+            assertTrue(ex.getCause().getCause() instanceof InvalidPayloadException);
+        }
+        sends.subList(1, sends.size()).forEach(CompletableFuture::join);
+
+        assertEquals(5, repository.findByUniversityId(1).size());
+    }
+
+    @Test
+    public void deletesFollowEventOrder() {
+
+        send(createEvent(1, 1));
+        send(createEvent(2, 1));
+
+        send(new Event(DELETE, 1, null));
+        send(createEvent(1, 2));
+
+        assertEquals(1, repository.findByUniversityId(1).size());
+        assertEquals(2, repository.findByUniversityId(1).get(0).getStudentId());
+        assertEquals(1, repository.findByUniversityId(2).size());
+    }
+
+    @Test
+    public void acknowledgesOnceTheBatchIsWritten() throws Exception {
+
+        Channel channel = mock(Channel.class);
+        for (int studentId = 1; studentId <= 5; studentId++) {
+            sendWithManualAck(createEvent(1, studentId), channel, studentId);
+        }
+
+        InOrder inOrder = inOrder(channel);
+        for (long deliveryTag = 1; deliveryTag <= 5; deliveryTag++) {
+            inOrder.verify(channel, timeout(5000)).basicAck(deliveryTag, false);
+        }
+        assertEquals(5, repository.findByUniversityId(1).size());
+    }
+
+    @Test
+    public void rejectsAConflictingDuplicate() throws Exception {
+
+        send(createEvent(1, 1));
+
+        Channel channel = mock(Channel.class);
+        sendWithManualAck(createEvent(1, 1, "other firstName"), channel, 1);
+        sendWithManualAck(createEvent(1, 2), channel, 2);
+
+        verify(channel, timeout(5000)).basicNack(1L, false, false);
+        verify(channel, timeout(5000)).basicAck(2L, false);
+        assertEquals(2, repository.findByUniversityId(1).size());
+    }
+
+    @Test
+    public void deadLettersAFailedKafkaRecordOnItsOwn() throws Exception {
+
+        send(createEvent(1, 1));
+
+        List<Message<?>> deadLetters = new CopyOnWriteArrayList<>();
+        MessageHandler dlq = deadLetters::add;
+        errorChannel.subscribe(dlq);
+        try {
+            Acknowledgment acknowledgment = mock(Acknowledgment.class);
+            ConsumerRecord<byte[], byte[]> poison = new ConsumerRecord<>("students", 0, 1L, null, new byte[0]);
+            sendWithKafkaAck(createEvent(1, 1, "other firstName"), acknowledgment, poison);
+            sendWithKafkaAck(createEvent(1, 2), acknowledgment, new ConsumerRecord<>("students", 0, 2L, null, new byte[0]));
+
+            verify(acknowledgment, timeout(5000).times(2)).acknowledge();
+            assertEquals(1, deadLetters.size());
+            assertSame(poison, StaticMessageHeaderAccessor.getSourceData(deadLetters.get(0)));
+            assertTrue(((Throwable) deadLetters.get(0).getPayload()).getCause() instanceof InvalidPayloadException);
+            assertEquals(2, repository.findByUniversityId(1).size());
+        } finally {
+            errorChannel.unsubscribe(dlq);
+        }
+    }
+
+    private Event<Integer, Student> createEvent(int universityId, int studentId) {
+        return createEvent(universityId, studentId, "firstName " + studentId);
+    }
+
+    private Event<Integer, Student> createEvent(int universityId, int studentId, String firstName) {
+        Student student = new Student(universityId, studentId, firstName, "lastName " + studentId, "section" + studentId, "SA");
+        return new Event(CREATE, universityId, student);
+    }
+
+    private CompletableFuture<Void> sendAsync(Event<Integer, Student> event) {
+        return CompletableFuture.runAsync(() -> send(event), executor);
+    }
+
+    private void send(Event<Integer, Student> event) {
+        input.send(new GenericMessage<>(event));
+    }
+
+    // The listener returns right away and settles the delivery on the channel, as with acknowledgeMode MANUAL
+    private void sendWithManualAck(Event<Integer, Student> event, Channel channel, long deliveryTag) {
+        input.send(MessageBuilder.withPayload(event)
+                .setHeader(AmqpHeaders.CHANNEL, channel)
+                .setHeader(AmqpHeaders.DELIVERY_TAG, deliveryTag)
+                .build());
+    }
+
+    // As a Kafka binding with autoCommitOffset false, with the raw record bound to the message
+    private void sendWithKafkaAck(Event<Integer, Student> event, Acknowledgment acknowledgment, ConsumerRecord<byte[], byte[]> record) {
+        input.send(MessageBuilder.withPayload(event)
+                .setHeader(KafkaHeaders.ACKNOWLEDGMENT, acknowledgment)
+                .setHeader(KafkaHeaders.OFFSET, record.offset())
+                .setHeader(IntegrationMessageHeaderAccessor.SOURCE_DATA, record)
+                .build());
+    }
+}
@@ -0,0 +1,94 @@
+package com.dejanvuk.microservices.core.student;
+
+import com.dejanvuk.api.core.student.Student;
+import com.dejanvuk.api.core.student.StudentService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+
+/**
+ * Compares the JPA and R2DBC persistence modes under concurrent load, run with -Dbenchmark=true.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class PersistenceModeBenchmarkTests {
+
+    private static final Logger LOG = LoggerFactory.getLogger(PersistenceModeBenchmarkTests.class);
+
+    private static final int UNIVERSITIES = 20;
+    private static final int STUDENTS_PER_UNIVERSITY = 50;
+    private static final int REQUESTS = Integer.getInteger("benchmark.requests", 5000);
+    private static final int CONCURRENCY = Integer.getInteger("benchmark.concurrency", 256);
+
+    @Test
+    public void compareJpaAndR2dbc() {
+        long[] jpa = run("jpa",
+                "spring.datasource.url=jdbc:h2:mem:student-db-benchmark");
+
+        long[] r2dbc = run("r2dbc",
+                "spring.autoconfigure.exclude=org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration," +
+                        "org.springframework.boot.autoconfigure.jdbc.DataSourceTransactionManagerAutoConfiguration," +
+                        "org.springframework.boot.autoconfigure.orm.jpa.HibernateJpaAutoConfiguration",
+                "app.r2dbc.url=r2dbc:h2:mem:///student-db-benchmark?options=DB_CLOSE_DELAY=-1",
+                "app.r2dbc.schema=classpath:r2dbc/schema-h2.sql");
+
+        report("jpa", jpa);
+        report("r2dbc", r2dbc);
+    }
+
+    private long[] run(String profile, String... properties) {
+        try (ConfigurableApplicationContext ctx = new SpringApplicationBuilder(StudentApplication.class)
+                .profiles(profile)
+                .properties("server.port=0", "eureka.client.enabled=false", "spring.cloud.config.enabled=false", "logging.level.root=WARN")
+                .properties(properties)
+                .run()) {
+
+            StudentService service = ctx.getBean(StudentService.class);
+            Flux.range(1, UNIVERSITIES)
+                    .concatMap(universityId -> Flux.range(1, STUDENTS_PER_UNIVERSITY)
+                            .concatMap(studentId -> service.createStudent(new Student(universityId, studentId, "f", "l", "s", null))))
+                    .blockLast();
+
+            WebClient client = WebClient.create("http://localhost:" + ctx.getEnvironment().getProperty("local.server.port"));
+
+            long start = System.nanoTime();
+            long[] latencies = Flux.range(0, REQUESTS)
+                    .flatMap(i -> {
+                        long requestStart = System.nanoTime();
+                        return client.get().uri("/student?universityId=" + (i % UNIVERSITIES + 1)).accept(APPLICATION_JSON)
+                                .retrieve().bodyToFlux(Student.class).count()
+                                .doOnNext(count -> assertEquals(STUDENTS_PER_UNIVERSITY, count.intValue()))
+                                .map(count -> System.nanoTime() - requestStart);
+                    }, CONCURRENCY)
+                    .collectList()
+                    .block()
+                    .stream().mapToLong(Long::longValue).sorted().toArray();
+
+            LOG.warn("{}: {} requests in {} ms", profile, REQUESTS, (System.nanoTime() - start) / 1_000_000);
+            return latencies;
+        }
+    }
+
+    private void report(String mode, long[] latencies) {
+        LOG.warn("{}: p50 = {} ms, p99 = {} ms, max = {} ms, mean = {} ms",
+                mode, millis(percentile(latencies, 50)), millis(percentile(latencies, 99)), millis(latencies[latencies.length - 1]),
+                millis((long) Arrays.stream(latencies).average().orElse(0)));
+    }
+
+    private long percentile(long[] sorted, int percentile) {
+        return sorted[Math.max(0, (int) Math.ceil(percentile / 100.0 * sorted.length) - 1)];
+    }
+
+    private double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
@@ -69,6 +69,29 @@ public class PersistenceTests {
         assertFalse(repository.existsById(savedEntity.getId()));
     }
 
+    @Test
+    public void deleteByUniversityId() {
+        repository.save(new StudentEntity(1, 3, "firstName", "lastName", "section"));
+        repository.save(new StudentEntity(2, 1, "firstName", "lastName", "section"));
+
+        assertEquals(2, repository.deleteByUniversityId(1));
+
+        assertThat(repository.findByUniversityId(1), hasSize(0));
+        assertThat(repository.findByUniversityId(2), hasSize(1));
+    }
+
+    @Test
+    public void deleteChunkByUniversityId() {
+        repository.save(new StudentEntity(1, 3, "firstName", "lastName", "section"));
+        repository.save(new StudentEntity(1, 4, "firstName", "lastName", "section"));
+
+        assertEquals(2, repository.deleteChunkByUniversityId(1, 2));
+        assertEquals(1, repository.deleteChunkByUniversityId(1, 2));
+        assertEquals(0, repository.deleteChunkByUniversityId(1, 2));
+
+        assertThat(repository.findByUniversityId(1), hasSize(0));
+    }
+
     @Test
     public void getByUniversityId() {
         List<StudentEntity> entityList = repository.findByUniversityId(savedEntity.getUniversityId());
@@ -0,0 +1,193 @@
+package com.dejanvuk.microservices.core.student;
+
+import com.dejanvuk.api.core.student.Student;
+import com.dejanvuk.api.core.university.University;
+import com.dejanvuk.api.event.Event;
+import com.dejanvuk.microservices.core.student.persistence.StudentEntity;
+import com.dejanvuk.microservices.core.student.persistence.StudentReactiveRepository;
+import com.dejanvuk.util.exceptions.InvalidPayloadException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cloud.stream.messaging.Sink;
+import org.springframework.data.r2dbc.core.DatabaseClient;
+import org.springframework.integration.channel.AbstractMessageChannel;
+import org.springframework.messaging.MessagingException;
+import org.springframework.messaging.support.GenericMessage;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import static com.dejanvuk.api.event.Event.Type.CREATE;
+import static com.dejanvuk.api.event.Event.Type.DELETE;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+import static org.springframework.http.HttpStatus.OK;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.http.MediaType.APPLICATION_STREAM_JSON;
+
+@ActiveProfiles("r2dbc")
+@AutoConfigureWebTestClient
+@SpringBootTest(webEnvironment=RANDOM_PORT, properties = {
+        "spring.autoconfigure.exclude=org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration," +
+                "org.springframework.boot.autoconfigure.jdbc.DataSourceTransactionManagerAutoConfiguration," +
+                "org.springframework.boot.autoconfigure.orm.jpa.HibernateJpaAutoConfiguration",
+        "app.r2dbc.url=r2dbc:h2:mem:///student-db-r2dbc?options=DB_CLOSE_DELAY=-1",
+        "app.r2dbc.schema=classpath:r2dbc/schema-h2.sql",
+        "eureka.client.enabled=false", "spring.cloud.config.enabled=false"})
+class R2dbcStudentApplicationTests {
+
+    @Autowired
+    private WebTestClient client;
+
+    @Autowired
+    private StudentReactiveRepository repository;
+
+    @Autowired
+    private DatabaseClient databaseClient;
+
+    @Autowired
+    private Sink channels;
+
+    private AbstractMessageChannel input = null;
+
+    @BeforeEach
+    public void setupDb() {
+        input = (AbstractMessageChannel) channels.input();
+        databaseClient.execute("DELETE FROM students").fetch().rowsUpdated().block();
+    }
+
+    @Test
+    public void getStudentsByUniversityId() {
+
+        int universityId = 1;
+
+        sendCreateStudentEvent(universityId, 1);
+        sendCreateStudentEvent(universityId, 2);
+        sendCreateStudentEvent(universityId, 3);
+
+        assertEquals(3, count(universityId));
+
+        client.get()
+                .uri("/student?universityId=" + universityId)
+                .accept(APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isEqualTo(OK)
+                .expectHeader().contentType(APPLICATION_JSON)
+                .expectBody()
+                .jsonPath("$.length()").isEqualTo(3)
+                .jsonPath("$[2].universityId").isEqualTo(universityId)
+                .jsonPath("$[2].studentId").isEqualTo(3);
+    }
+
+    @Test
+    public void getStudentsAsStream() {
+
+        int universityId = 1;
+
+        sendCreateStudentEvent(universityId, 1);
+        sendCreateStudentEvent(universityId, 2);
+
+        Flux<Student> students = client.get()
+                .uri("/student?universityId=" + universityId)
+                .accept(APPLICATION_STREAM_JSON)
+                .exchange()
+                .expectStatus().isEqualTo(OK)
+                .returnResult(Student.class)
+                .getResponseBody();
+
+        StepVerifier.create(students)
+                .expectNextMatches(student -> student.getStudentId() == 1 && student.getServiceAddress() != null)
+                .expectNextCount(1)
+                .verifyComplete();
+    }
+
+    @Test
+    public void getStudentsByUniversityIds() {
+
+        sendCreateStudentEvent(1, 1);
+        sendCreateStudentEvent(1, 2);
+        sendCreateStudentEvent(2, 1);
+        sendCreateStudentEvent(3, 1);
+
+        client.get()
+                .uri("/student?universityIds=1,2")
+                .accept(APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isEqualTo(OK)
+                .expectBody()
+                .jsonPath("$.length()").isEqualTo(3);
+    }
+
+    @Test
+    public void duplicateError() {
+
+        int universityId = 1;
+        int studentId = 1;
+
+        sendCreateStudentEvent(universityId, studentId);
+
+        // A redelivery of the same event is accepted, a different student under the same ids is not
+        sendCreateStudentEvent(universityId, studentId);
+
+        try {
+            sendCreateStudentEvent(universityId, studentId, "other firstName");
+            fail("Expected a MessagingException here!");
+        } catch (MessagingException me) {
+            if (me.getCause() instanceof InvalidPayloadException)	{
+                InvalidPayloadException iie = (InvalidPayloadException)me.getCause();
+                assertEquals("The student with universityId: " + universityId +  " and studentId:" + studentId + "already exists!" , iie.getMessage());
+            } else {
+                fail("Expected a InvalidInputException as the root cause!");
+            }
+        }
+
+        assertEquals(1, count(universityId));
+    }
+
+    @Test
+    public void deleteStudents() {
+
+        int universityId = 1;
+
+        sendCreateStudentEvent(universityId, 1);
+        assertEquals(1, count(universityId));
+
+        sendDeleteStudentEvent(universityId);
+        assertEquals(0, count(universityId));
+
+        sendDeleteStudentEvent(universityId);
+    }
+
+    @Test
+    public void savesTakeIdsFromTheReservedBlock() {
+        int first = repository.save(new StudentEntity(1, 1, "first", "last", "section")).block().getId();
+        int second = repository.save(new StudentEntity(1, 2, "first", "last", "section")).block().getId();
+        int third = repository.save(new StudentEntity(1, 3, "first", "last", "section")).block().getId();
+
+        assertEquals(first + 1, second);
+        assertEquals(second + 1, third);
+    }
+
+    private long count(int universityId) {
+        return repository.findByUniversityId(universityId).count().block();
+    }
+
+    private void sendCreateStudentEvent(int universityId, int studentId) {
+        sendCreateStudentEvent(universityId, studentId, "firstName " + studentId);
+    }
+
+    private void sendCreateStudentEvent(int universityId, int studentId, String firstName) {
+        Student student = new Student(universityId, studentId, firstName, "lastName " + studentId, "section" + studentId, "SA");
+        Event<Integer, University> event = new Event(CREATE, universityId, student);
+        input.send(new GenericMessage<>(event));
+    }
+
+    private void sendDeleteStudentEvent(int universityId) {
+        Event<Integer, University> event = new Event(DELETE, universityId, null);
+        input.send(new GenericMessage<>(event));
+    }
+}
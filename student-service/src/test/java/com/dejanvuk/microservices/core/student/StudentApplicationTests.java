@@ -5,6 +5,7 @@ import com.dejanvuk.api.core.student.Student;
 import com.dejanvuk.api.event.Event;
 import com.dejanvuk.microservices.core.student.persistence.StudentRepository;
 import com.dejanvuk.util.exceptions.InvalidPayloadException;
+import com.dejanvuk.util.messaging.SmileMessageConverter;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -13,13 +14,17 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.cloud.stream.messaging.Sink;
 import org.springframework.http.HttpStatus;
 import org.springframework.integration.channel.AbstractMessageChannel;
+import org.springframework.messaging.Message;
 import org.springframework.messaging.MessagingException;
 import org.springframework.messaging.support.GenericMessage;
 import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
 
 
 import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
 import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.http.MediaType.APPLICATION_STREAM_JSON;
 
 import static com.dejanvuk.api.event.Event.Type.*;
 
@@ -67,6 +72,54 @@ class StudentApplicationTests {
                 .jsonPath("$[2].studentId").isEqualTo(3);
     }
 
+    @Test
+    public void getStudentsAsStream() {
+
+        int universityId = 1;
+
+        sendCreateStudentEvent(universityId, 1);
+        sendCreateStudentEvent(universityId, 2);
+        sendCreateStudentEvent(universityId, 3);
+
+        Flux<Student> students = client.get()
+                .uri("/student?universityId=" + universityId)
+                .accept(APPLICATION_STREAM_JSON)
+                .exchange()
+                .expectStatus().isEqualTo(OK)
+                .expectHeader().contentType(APPLICATION_STREAM_JSON)
+                .returnResult(Student.class)
+                .getResponseBody();
+
+        StepVerifier.create(students)
+                .expectNextMatches(student -> student.getStudentId() == 1 && student.getServiceAddress() != null)
+                .expectNextCount(2)
+                .verifyComplete();
+    }
+
+    @Test
+    public void createStudentFromSmileEvent() {
+
+        int universityId = 1;
+
+        Student student = new Student(universityId, 1, "firstName", "lastName", "section", "SA");
+        Message<?> message = new SmileMessageConverter().toMessage(new Event(CREATE, universityId, student), null);
+        input.send(message);
+
+        assertEquals(1, repository.findByUniversityId(universityId).size());
+    }
+
+    @Test
+    public void getStudentsByUniversityIds() {
+
+        sendCreateStudentEvent(1, 1);
+        sendCreateStudentEvent(1, 2);
+        sendCreateStudentEvent(2, 1);
+        sendCreateStudentEvent(3, 1);
+
+        getAndVerifyStudentsByUniversityId("?universityIds=1,2", OK)
+                .jsonPath("$.length()").isEqualTo(3);
+    }
+
     @Test
     public void duplicateError() {
 
@@ -79,8 +132,11 @@ class StudentApplicationTests {
 
         assertEquals(1, repository.count());
 
+        // A redelivery of the same event is accepted, a different student under the same ids is not
+        sendCreateStudentEvent(universityId, studentId);
+
         try {
-            sendCreateStudentEvent(universityId, studentId);
+            sendCreateStudentEvent(universityId, studentId, "other firstName");
             fail("Expected a MessagingException here!");
         } catch (MessagingException me) {
             if (me.getCause() instanceof InvalidPayloadException)	{
@@ -157,7 +213,11 @@ class StudentApplicationTests {
     }
 
     private void sendCreateStudentEvent(int universityId, int studentId) {
-        Student student = new Student(universityId, studentId, "firstName " + studentId, "lastName " + studentId, "section" + studentId, "SA");
+        sendCreateStudentEvent(universityId, studentId, "firstName " + studentId);
+    }
+
+    private void sendCreateStudentEvent(int universityId, int studentId, String firstName) {
+        Student student = new Student(universityId, studentId, firstName, "lastName " + studentId, "section" + studentId, "SA");
         Event<Integer, University> event = new Event(CREATE, universityId, student);
         input.send(new GenericMessage<>(event));
     }
@@ -0,0 +1,12 @@
+CREATE TABLE IF NOT EXISTS students (
+    id INT NOT NULL PRIMARY KEY,
+    version INT NOT NULL,
+    university_id INT NOT NULL,
+    student_id INT NOT NULL,
+    first_name VARCHAR(255),
+    last_name VARCHAR(255),
+    section VARCHAR(255),
+    CONSTRAINT students_index UNIQUE (university_id, student_id)
+);
+
+CREATE SEQUENCE IF NOT EXISTS hibernate_sequence START WITH 1 INCREMENT BY 50;
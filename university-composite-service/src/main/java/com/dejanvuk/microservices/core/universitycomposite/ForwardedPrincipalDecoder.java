@@ -0,0 +1,49 @@
+package com.dejanvuk.microservices.core.universitycomposite;
+
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.util.Base64URL;
+import org.springframework.security.oauth2.jose.jws.MacAlgorithm;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtException;
+import org.springframework.security.oauth2.jwt.JwtValidators;
+import org.springframework.security.oauth2.jwt.NimbusReactiveJwtDecoder;
+import org.springframework.security.oauth2.jwt.ReactiveJwtDecoder;
+import reactor.core.publisher.Mono;
+
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+
+// Requests through the gateway carry its HS256 token with the already verified principal, only the HMAC and the
+// issuer are checked for those. Any other token is still verified against the auth-server's keys
+public class ForwardedPrincipalDecoder implements ReactiveJwtDecoder {
+
+    private final ReactiveJwtDecoder forwarded;
+    private final ReactiveJwtDecoder direct;
+
+    public ForwardedPrincipalDecoder(String secret, String issuer, String jwkSetUri) {
+        NimbusReactiveJwtDecoder forwarded = NimbusReactiveJwtDecoder
+                .withSecretKey(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"))
+                .macAlgorithm(MacAlgorithm.HS256)
+                .build();
+        forwarded.setJwtValidator(JwtValidators.createDefaultWithIssuer(issuer));
+
+        this.forwarded = forwarded;
+        this.direct = NimbusReactiveJwtDecoder.withJwkSetUri(jwkSetUri).build();
+    }
+
+    @Override
+    public Mono<Jwt> decode(String token) throws JwtException {
+        int headerEnd = token.indexOf('.');
+        if (headerEnd < 0) return direct.decode(token);
+
+        try {
+            JWSHeader header = JWSHeader.parse(new Base64URL(token.substring(0, headerEnd)));
+            ReactiveJwtDecoder decoder = JWSAlgorithm.HS256.equals(header.getAlgorithm()) ? forwarded : direct;
+            return Mono.defer(() -> decoder.decode(token));
+        } catch (ParseException ex) {
+            return Mono.error(new JwtException("Malformed token header: " + ex.getMessage(), ex));
+        }
+    }
+}
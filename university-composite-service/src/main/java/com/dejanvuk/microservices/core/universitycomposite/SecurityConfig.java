@@ -1,8 +1,11 @@
 package com.dejanvuk.microservices.core.universitycomposite;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.security.config.annotation.web.reactive.EnableWebFluxSecurity;
 import org.springframework.security.config.web.server.ServerHttpSecurity;
+import org.springframework.security.oauth2.jwt.ReactiveJwtDecoder;
 import org.springframework.security.web.server.SecurityWebFilterChain;
 
 import static org.springframework.http.HttpMethod.*;
@@ -14,7 +17,9 @@ public class SecurityConfig {
     SecurityWebFilterChain springSecurityFilterChain(ServerHttpSecurity http) {
         http
                 .authorizeExchange()
+                .pathMatchers(POST, "/actuator/aggregateview").hasAuthority("SCOPE_university:write")
                 .pathMatchers("/actuator/**").permitAll()
+                .pathMatchers(POST, "/university-composite/batch").hasAuthority("SCOPE_university:read")
                 .pathMatchers(POST, "/university-composite/**").hasAuthority("SCOPE_university:write")
                 .pathMatchers(DELETE, "/university-composite/**").hasAuthority("SCOPE_university:write")
                 .pathMatchers(GET, "/university-composite/**").hasAuthority("SCOPE_university:read")
@@ -24,4 +29,12 @@ public class SecurityConfig {
                 .jwt();
         return http.build();
     }
-}
\ No newline at end of file
+
+    @Bean
+    @ConditionalOnProperty(name = "app.forwarded-principal.enabled", havingValue = "true")
+    ReactiveJwtDecoder jwtDecoder(@Value("${app.forwarded-principal.secret}") String secret,
+                                  @Value("${app.forwarded-principal.issuer:gateway}") String issuer,
+                                  @Value("${spring.security.oauth2.resourceserver.jwt.jwk-set-uri}") String jwkSetUri) {
+        return new ForwardedPrincipalDecoder(secret, issuer, jwkSetUri);
+    }
+}
@@ -1,18 +1,22 @@
 package com.dejanvuk.microservices.core.universitycomposite;
 
+import com.dejanvuk.microservices.core.universitycomposite.loadbalancer.LatencyAwareLoadBalancer;
 import com.dejanvuk.microservices.core.universitycomposite.services.UniversityCompositeIntegration;
+import io.micrometer.core.instrument.config.MeterFilter;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.cloud.client.loadbalancer.LoadBalanced;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Primary;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.reactive.function.client.WebClient;
 
 
 @SpringBootApplication
-@ComponentScan("com.dejanvuk")
+@ComponentScan({"com.dejanvuk.microservices.core.universitycomposite", "com.dejanvuk.util"})
 public class UniversityCompositeApplication {
 
     @Bean
@@ -24,12 +28,27 @@ public class UniversityCompositeApplication {
     UniversityCompositeIntegration integration;
 
     @Bean
+    @Primary
     @LoadBalanced
+    @ConditionalOnProperty(name = "app.load-balancer.strategy", havingValue = "round-robin")
     public WebClient.Builder loadBalancedWebClientBuilder() {
         final WebClient.Builder builder = WebClient.builder();
         return builder;
     }
 
+    @Bean
+    @Primary
+    @ConditionalOnProperty(name = "app.load-balancer.strategy", havingValue = "p2c", matchIfMissing = true)
+    public WebClient.Builder latencyAwareWebClientBuilder(LatencyAwareLoadBalancer loadBalancer) {
+        return WebClient.builder().filter(loadBalancer);
+    }
+
+    // Reactor Netty tags its per-request client meters with the raw request URI, only its pool gauges are kept
+    @Bean
+    public MeterFilter reactorNettyClientMeterFilter() {
+        return MeterFilter.denyNameStartsWith("reactor.netty.http.client");
+    }
+
     public static void main(String[] args) {
         SpringApplication.run(UniversityCompositeApplication.class, args);
     }
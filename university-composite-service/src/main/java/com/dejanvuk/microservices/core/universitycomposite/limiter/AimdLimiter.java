@@ -0,0 +1,127 @@
+package com.dejanvuk.microservices.core.universitycomposite.limiter;
+
+import com.dejanvuk.util.exceptions.ServiceUnavailableException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Additive increase, multiplicative decrease: every fast success grows the limit by 1 / limit, so it grows by about one
+// per round trip, while a timeout, server error or slow response cuts it by backoffRatio, at most once per backoffInterval
+public class AimdLimiter {
+
+    private static final String METRIC_NAME = "university.composite.concurrency";
+
+    private final String backend;
+    private final int minLimit;
+    private final int maxLimit;
+    private final double backoffRatio;
+    private final long latencyThresholdNanos;
+    private final long backoffIntervalNanos;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile double limit;
+    private long lastBackoff;
+
+    private final Counter rejected;
+
+    public AimdLimiter(String backend, MeterRegistry registry, int initialLimit, int minLimit, int maxLimit, double backoffRatio,
+                       long latencyThresholdMs, long backoffIntervalMs) {
+        this.backend = backend;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.backoffRatio = backoffRatio;
+        this.latencyThresholdNanos = TimeUnit.MILLISECONDS.toNanos(latencyThresholdMs);
+        this.backoffIntervalNanos = TimeUnit.MILLISECONDS.toNanos(backoffIntervalMs);
+        this.limit = initialLimit;
+        this.lastBackoff = System.nanoTime() - backoffIntervalNanos;
+
+        Tags tags = Tags.of("backend", backend);
+        registry.gauge(METRIC_NAME + ".limit", tags, this, AimdLimiter::getLimit);
+        registry.gauge(METRIC_NAME + ".inflight", tags, inFlight);
+        this.rejected = registry.counter(METRIC_NAME + ".rejected", tags);
+    }
+
+    public <T> Mono<T> limit(Mono<T> source) {
+        return Mono.defer(() -> {
+            if (!tryAcquire()) return Mono.error(rejection());
+
+            long start = System.nanoTime();
+            return source.doFinally(signal -> release(signal, start))
+                    .doOnError(ex -> onError(ex, start));
+        });
+    }
+
+    public <T> Flux<T> limit(Flux<T> source) {
+        return Flux.defer(() -> {
+            if (!tryAcquire()) return Flux.error(rejection());
+
+            long start = System.nanoTime();
+            return source.doFinally(signal -> release(signal, start))
+                    .doOnError(ex -> onError(ex, start));
+        });
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    private boolean tryAcquire() {
+        int current;
+        do {
+            current = inFlight.get();
+            if (current >= (int) limit) {
+                rejected.increment();
+                return false;
+            }
+        } while (!inFlight.compareAndSet(current, current + 1));
+        return true;
+    }
+
+    private ServiceUnavailableException rejection() {
+        return new ServiceUnavailableException("Concurrency limit of " + getLimit() + " reached for " + backend);
+    }
+
+    private void release(SignalType signal, long start) {
+        int outstanding = inFlight.getAndDecrement();
+        if (signal == SignalType.ON_COMPLETE) {
+            onSample(System.nanoTime() - start, false, outstanding);
+        }
+    }
+
+    private void onError(Throwable ex, long start) {
+        onSample(System.nanoTime() - start, isOverload(ex), inFlight.get());
+    }
+
+    private synchronized void onSample(long rttNanos, boolean dropped, int outstanding) {
+        if (dropped || rttNanos > latencyThresholdNanos) {
+            long now = System.nanoTime();
+            if (now - lastBackoff >= backoffIntervalNanos) {
+                limit = Math.max(minLimit, limit * backoffRatio);
+                lastBackoff = now;
+            }
+        } else if (outstanding * 2 >= limit) {
+            // Only grow while the limit is actually being used, otherwise an idle backend would drift to maxLimit
+            limit = Math.min(maxLimit, limit + 1 / limit);
+        }
+    }
+
+    private static boolean isOverload(Throwable ex) {
+        if (ex instanceof WebClientResponseException) {
+            return ((WebClientResponseException) ex).getStatusCode().is5xxServerError();
+        }
+        return ex instanceof TimeoutException || ex instanceof IOException;
+    }
+}
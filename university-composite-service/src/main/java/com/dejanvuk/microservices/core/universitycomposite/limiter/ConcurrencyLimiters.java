@@ -0,0 +1,66 @@
+package com.dejanvuk.microservices.core.universitycomposite.limiter;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Component
+public class ConcurrencyLimiters {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ConcurrencyLimiters.class);
+
+    private final MeterRegistry registry;
+
+    private final boolean enabled;
+    private final int initialLimit;
+    private final int minLimit;
+    private final int maxLimit;
+    private final double backoffRatio;
+    private final long latencyThresholdMs;
+    private final long backoffIntervalMs;
+
+    private final Map<String, AimdLimiter> limiters = new ConcurrentHashMap<>();
+
+    @Autowired
+    public ConcurrencyLimiters(MeterRegistry registry,
+                               @Value("${app.concurrency-limit.enabled:true}") boolean enabled,
+                               @Value("${app.concurrency-limit.initialLimit:20}") int initialLimit,
+                               @Value("${app.concurrency-limit.minLimit:4}") int minLimit,
+                               @Value("${app.concurrency-limit.maxLimit:200}") int maxLimit,
+                               @Value("${app.concurrency-limit.backoffRatio:0.9}") double backoffRatio,
+                               @Value("${app.concurrency-limit.latencyThresholdMs:1000}") long latencyThresholdMs,
+                               @Value("${app.concurrency-limit.backoffIntervalMs:100}") long backoffIntervalMs) {
+        this.registry = registry;
+        this.enabled = enabled;
+        this.initialLimit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.backoffRatio = backoffRatio;
+        this.latencyThresholdMs = latencyThresholdMs;
+        this.backoffIntervalMs = backoffIntervalMs;
+
+        LOG.info("Concurrency limit enabled: {}, initialLimit: {}, minLimit: {}, maxLimit: {}, latencyThresholdMs: {}",
+                enabled, initialLimit, minLimit, maxLimit, latencyThresholdMs);
+    }
+
+    public <T> Mono<T> limit(String backend, Mono<T> source) {
+        return enabled ? limiter(backend).limit(source) : source;
+    }
+
+    public <T> Flux<T> limit(String backend, Flux<T> source) {
+        return enabled ? limiter(backend).limit(source) : source;
+    }
+
+    public AimdLimiter limiter(String backend) {
+        return limiters.computeIfAbsent(backend, name ->
+                new AimdLimiter(name, registry, initialLimit, minLimit, maxLimit, backoffRatio, latencyThresholdMs, backoffIntervalMs));
+    }
+}
@@ -0,0 +1,71 @@
+package com.dejanvuk.microservices.core.universitycomposite.loadbalancer;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Peak EWMA: a slower response is taken over immediately, faster ones decay the average with a time constant of decayNanos
+class InstanceStats {
+
+    private final String uri;
+    private final long decayNanos;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+
+    private double ewmaNanos;
+    private long lastUpdate;
+
+    InstanceStats(String uri, long initialLatencyNanos, long decayNanos) {
+        this.uri = uri;
+        this.decayNanos = decayNanos;
+        this.ewmaNanos = initialLatencyNanos;
+        this.lastUpdate = System.nanoTime();
+    }
+
+    // Outstanding requests are counted as well, so a stalled instance keeps getting more expensive before any of them returns
+    double cost() {
+        return currentEwma() * (inFlight.get() + 1);
+    }
+
+    void start() {
+        inFlight.incrementAndGet();
+        requests.incrementAndGet();
+    }
+
+    void finish() {
+        inFlight.decrementAndGet();
+    }
+
+    void recordError(long penaltyNanos) {
+        errors.incrementAndGet();
+        record(penaltyNanos);
+    }
+
+    synchronized void record(long latencyNanos) {
+        long now = System.nanoTime();
+        if (latencyNanos > ewmaNanos) {
+            ewmaNanos = latencyNanos;
+        } else {
+            double weight = Math.exp(-(double) (now - lastUpdate) / decayNanos);
+            ewmaNanos = ewmaNanos * weight + latencyNanos * (1 - weight);
+        }
+        lastUpdate = now;
+    }
+
+    private synchronized double currentEwma() {
+        return ewmaNanos;
+    }
+
+    Map<String, Object> toMap() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("uri", uri);
+        map.put("inFlight", inFlight.get());
+        map.put("ewmaMs", currentEwma() / 1_000_000);
+        map.put("requests", requests.get());
+        map.put("errors", errors.get());
+        return map;
+    }
+}
@@ -0,0 +1,165 @@
+package com.dejanvuk.microservices.core.universitycomposite.loadbalancer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.cloud.client.loadbalancer.LoadBalancerUriTools;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+import static org.springframework.http.HttpStatus.SERVICE_UNAVAILABLE;
+
+// Power of two choices: two random instances are compared and the request goes to the one with the lower
+// EWMA latency weighted by its outstanding requests. The host of the request URL is the service id.
+@ConditionalOnProperty(name = "app.load-balancer.strategy", havingValue = "p2c", matchIfMissing = true)
+@Component
+public class LatencyAwareLoadBalancer implements ExchangeFilterFunction {
+
+    private static final Logger LOG = LoggerFactory.getLogger(LatencyAwareLoadBalancer.class);
+
+    // A Set<URI> shared by the requests of one logical call, e.g. a primary and its hedge. Each request adds the
+    // instance it was sent to and the next one avoids those, as long as there are others left
+    public static final String USED_INSTANCES = LatencyAwareLoadBalancer.class.getName() + ".usedInstances";
+
+    private final DiscoveryClient discoveryClient;
+
+    private final long initialLatencyNanos;
+    private final long decayNanos;
+    private final long errorPenaltyNanos;
+
+    private final Map<String, InstanceStats> stats = new ConcurrentHashMap<>();
+
+    @Autowired
+    public LatencyAwareLoadBalancer(DiscoveryClient discoveryClient,
+                                    @Value("${app.load-balancer.initialLatencyMs:10}") long initialLatencyMs,
+                                    @Value("${app.load-balancer.decayMs:10000}") long decayMs,
+                                    @Value("${app.load-balancer.errorPenaltyMs:1000}") long errorPenaltyMs) {
+        this.discoveryClient = discoveryClient;
+        this.initialLatencyNanos = TimeUnit.MILLISECONDS.toNanos(initialLatencyMs);
+        this.decayNanos = TimeUnit.MILLISECONDS.toNanos(decayMs);
+        this.errorPenaltyNanos = TimeUnit.MILLISECONDS.toNanos(errorPenaltyMs);
+
+        LOG.info("Latency aware load balancer initialLatencyMs: {}, decayMs: {}, errorPenaltyMs: {}", initialLatencyMs, decayMs, errorPenaltyMs);
+    }
+
+    @Override
+    public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+        String serviceId = request.url().getHost();
+
+        List<ServiceInstance> instances = discoveryClient.getInstances(serviceId);
+        prune(serviceId, instances);
+        if (instances.isEmpty()) {
+            LOG.warn("No instances available for {}", serviceId);
+            return Mono.just(ClientResponse.create(SERVICE_UNAVAILABLE).build());
+        }
+
+        Set<URI> used = usedInstances(request);
+        ServiceInstance instance = choose(unused(instances, used));
+        if (used != null) used.add(instance.getUri());
+        InstanceStats instanceStats = statsFor(instance);
+        URI url = LoadBalancerUriTools.reconstructURI(instance, request.url());
+
+        ClientRequest newRequest = ClientRequest.from(request).url(url).build();
+
+        // The request stays in flight until its body is read, or until it fails or is cancelled before the response
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            AtomicBoolean finished = new AtomicBoolean();
+            Runnable finish = () -> {
+                if (finished.compareAndSet(false, true)) instanceStats.finish();
+            };
+            instanceStats.start();
+
+            return next.exchange(newRequest)
+                    .doOnSuccess(response -> {
+                        if (response == null) {
+                            finish.run();
+                        } else if (response.statusCode().is5xxServerError()) {
+                            instanceStats.recordError(Math.max(errorPenaltyNanos, System.nanoTime() - start));
+                        } else {
+                            instanceStats.record(System.nanoTime() - start);
+                        }
+                    })
+                    .doOnError(ex -> {
+                        instanceStats.recordError(Math.max(errorPenaltyNanos, System.nanoTime() - start));
+                        finish.run();
+                    })
+                    .doOnCancel(finish)
+                    .map(response -> ClientResponse.from(response)
+                            .body(response.bodyToFlux(DataBuffer.class).doFinally(signal -> finish.run()))
+                            .build());
+        });
+    }
+
+    public Map<String, List<Map<String, Object>>> getStats() {
+        Map<String, List<Map<String, Object>>> services = new LinkedHashMap<>();
+        for (String serviceId : discoveryClient.getServices()) {
+            services.put(serviceId, discoveryClient.getInstances(serviceId).stream()
+                    .map(instance -> statsFor(instance).toMap())
+                    .collect(Collectors.toList()));
+        }
+        return services;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Set<URI> usedInstances(ClientRequest request) {
+        return (Set<URI>) request.attribute(USED_INSTANCES).orElse(null);
+    }
+
+    private List<ServiceInstance> unused(List<ServiceInstance> instances, Set<URI> used) {
+        if (used == null) return instances;
+
+        List<ServiceInstance> unused = instances.stream().filter(instance -> !used.contains(instance.getUri())).collect(Collectors.toList());
+        return unused.isEmpty() ? instances : unused;
+    }
+
+    private ServiceInstance choose(List<ServiceInstance> instances) {
+        if (instances.size() == 1) {
+            return instances.get(0);
+        }
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(instances.size());
+        int second = random.nextInt(instances.size() - 1);
+        if (second >= first) second++;
+
+        ServiceInstance a = instances.get(first);
+        ServiceInstance b = instances.get(second);
+        return statsFor(a).cost() <= statsFor(b).cost() ? a : b;
+    }
+
+    private InstanceStats statsFor(ServiceInstance instance) {
+        return stats.computeIfAbsent(key(instance), k -> new InstanceStats(instance.getUri().toString(), initialLatencyNanos, decayNanos));
+    }
+
+    // Drops the stats of instances that left, so the map doesn't grow with every restart or rescheduled instance
+    private void prune(String serviceId, List<ServiceInstance> instances) {
+        String prefix = serviceId + "@";
+        Set<String> current = instances.stream().map(this::key).collect(Collectors.toSet());
+        stats.keySet().removeIf(key -> key.startsWith(prefix) && !current.contains(key));
+    }
+
+    private String key(ServiceInstance instance) {
+        return instance.getServiceId() + "@" + instance.getUri();
+    }
+}
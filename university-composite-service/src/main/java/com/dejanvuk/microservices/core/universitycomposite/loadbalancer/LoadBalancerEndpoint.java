@@ -0,0 +1,26 @@
+package com.dejanvuk.microservices.core.universitycomposite.loadbalancer;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+
+@ConditionalOnProperty(name = "app.load-balancer.strategy", havingValue = "p2c", matchIfMissing = true)
+@Endpoint(id = "loadbalancer")
+@Component
+public class LoadBalancerEndpoint {
+
+    private final LatencyAwareLoadBalancer loadBalancer;
+
+    public LoadBalancerEndpoint(LatencyAwareLoadBalancer loadBalancer) {
+        this.loadBalancer = loadBalancer;
+    }
+
+    @ReadOperation
+    public Map<String, List<Map<String, Object>>> instances() {
+        return loadBalancer.getStats();
+    }
+}
@@ -0,0 +1,62 @@
+package com.dejanvuk.microservices.core.universitycomposite.services;
+
+import io.netty.channel.ChannelOption;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.http.client.reactive.ClientHttpConnector;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.stereotype.Component;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Every backend gets its own connection pool, so a slow backend can only exhaust its own connections. The pools
+// publish reactor.netty.connection.provider.<backend>.{total,active,idle,pending}.connections gauges.
+@Component
+@EnableConfigurationProperties(HttpClientProperties.class)
+public class BackendConnectors {
+
+    private static final Logger LOG = LoggerFactory.getLogger(BackendConnectors.class);
+
+    private final HttpClientProperties properties;
+
+    private final Map<String, ConnectionProvider> providers = new ConcurrentHashMap<>();
+    private final Map<String, ClientHttpConnector> connectors = new ConcurrentHashMap<>();
+
+    @Autowired
+    public BackendConnectors(HttpClientProperties properties) {
+        this.properties = properties;
+    }
+
+    public ClientHttpConnector connector(String backend) {
+        return connectors.computeIfAbsent(backend, this::createConnector);
+    }
+
+    private ClientHttpConnector createConnector(String backend) {
+        HttpClientProperties.Backend config = properties.getBackend(backend);
+
+        ConnectionProvider provider = providers.computeIfAbsent(backend, name -> ConnectionProvider.fixed(name,
+                config.getMaxConnections(), config.getAcquireTimeoutMs(), Duration.ofMillis(config.getMaxIdleTimeMs())));
+
+        HttpClient httpClient = HttpClient.create(provider)
+                .keepAlive(config.isKeepAlive())
+                .tcpConfiguration(tcpClient -> tcpClient.option(ChannelOption.SO_KEEPALIVE, config.isKeepAlive()))
+                .metrics(true);
+
+        LOG.info("Connection pool for {}: maxConnections: {}, acquireTimeoutMs: {}, maxIdleTimeMs: {}, keepAlive: {}", backend,
+                config.getMaxConnections(), config.getAcquireTimeoutMs(), config.getMaxIdleTimeMs(), config.isKeepAlive());
+
+        return new ReactorClientHttpConnector(httpClient);
+    }
+
+    @PreDestroy
+    public void dispose() {
+        providers.values().forEach(ConnectionProvider::dispose);
+    }
+}
@@ -0,0 +1,57 @@
+package com.dejanvuk.microservices.core.universitycomposite.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+// Lets the gateway and clients keep successful aggregate reads for maxAgeSec. Spring Security only writes its
+// no-cache defaults when a response has no Cache-Control of its own, so this runs ahead of it and its commit action
+// wins. Stale responses and errors keep the defaults
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@Component
+public class CacheControlWebFilter implements WebFilter {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CacheControlWebFilter.class);
+
+    private static final String PATH_PREFIX = "/university-composite/";
+
+    private final int maxAgeSec;
+
+    @Autowired
+    public CacheControlWebFilter(@Value("${app.cache-control.maxAgeSec:5}") int maxAgeSec) {
+        this.maxAgeSec = maxAgeSec;
+
+        LOG.info("Cache-Control max-age of composite reads: {}s", maxAgeSec);
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        if (maxAgeSec > 0 && exchange.getRequest().getMethod() == HttpMethod.GET && exchange.getRequest().getPath().value().startsWith(PATH_PREFIX)) {
+            ServerHttpResponse response = exchange.getResponse();
+            response.beforeCommit(() -> {
+                HttpHeaders headers = response.getHeaders();
+                HttpStatus status = response.getStatusCode();
+                if ((status == null || status == HttpStatus.OK) && !headers.containsKey(HttpHeaders.WARNING) && !headers.containsKey(HttpHeaders.CACHE_CONTROL)) {
+                    headers.setCacheControl(CacheControl.maxAge(Duration.ofSeconds(maxAgeSec)));
+                }
+                return Mono.empty();
+            });
+        }
+        return chain.filter(exchange);
+    }
+}
@@ -0,0 +1,129 @@
+package com.dejanvuk.microservices.core.universitycomposite.services;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+// Times the legs of a composite read. A leg publishes a Sample in the subscriber context, so the integration can count
+// retried attempts and the fallback branch can flag the leg, without either of them knowing about the timers
+@Component
+public class CompositeMetrics {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CompositeMetrics.class);
+
+    private static final String METRIC_NAME = "university.composite.leg";
+
+    public static final String SECURITY_CONTEXT = "security-context";
+    public static final String UNIVERSITY = "university";
+    public static final String STUDENTS = "students";
+    public static final String AGGREGATE = "aggregate";
+
+    private final MeterRegistry registry;
+    private final double[] percentiles;
+    private final boolean histogram;
+
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+    private final DistributionSummary studentCount;
+
+    @Autowired
+    public CompositeMetrics(MeterRegistry registry,
+                            @Value("${app.composite-metrics.percentiles:0.5,0.95,0.99}") double[] percentiles,
+                            @Value("${app.composite-metrics.histogram:true}") boolean histogram) {
+        this.registry = registry;
+        this.percentiles = percentiles;
+        this.histogram = histogram;
+
+        this.studentCount = DistributionSummary.builder("university.composite.students")
+                .baseUnit("students")
+                .publishPercentiles(percentiles)
+                .publishPercentileHistogram(histogram)
+                .register(registry);
+
+        LOG.info("Composite leg metrics percentiles: {}, histogram: {}", Arrays.toString(percentiles), histogram);
+    }
+
+    public <T> Mono<T> timeLeg(String leg, Mono<T> source) {
+        return Mono.defer(() -> {
+            Sample sample = new Sample();
+            return source
+                    .doOnError(ex -> sample.error = ex)
+                    .doFinally(signal -> timer(leg, sample.outcome(signal)).record(System.nanoTime() - sample.start, TimeUnit.NANOSECONDS))
+                    .subscriberContext(context -> context.put(Sample.class, sample));
+        });
+    }
+
+    public <T> T timeAggregate(Supplier<T> aggregate) {
+        long start = System.nanoTime();
+        String outcome = "error";
+        try {
+            T value = aggregate.get();
+            outcome = "success";
+            return value;
+        } finally {
+            timer(AGGREGATE, outcome).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    public void recordStudentCount(int count) {
+        studentCount.record(count);
+    }
+
+    // Called once per subscription to the remote call, so a resubscribing retry operator shows up as extra attempts
+    public static <T> Mono<T> countAttempt(Mono<T> source) {
+        return Mono.subscriberContext()
+                .doOnNext(context -> context.<Sample>getOrEmpty(Sample.class).ifPresent(sample -> sample.attempts++))
+                .then(source);
+    }
+
+    // Only a fallback that actually produced a value counts, an empty one leaves the leg's error outcome in place
+    public static <T> Mono<T> markFallback(Mono<T> fallback) {
+        return Mono.subscriberContext().flatMap(context -> fallback
+                .doOnNext(value -> context.<Sample>getOrEmpty(Sample.class).ifPresent(sample -> sample.fallback = true)));
+    }
+
+    private Timer timer(String leg, String outcome) {
+        return timers.computeIfAbsent(leg + ":" + outcome, key -> Timer.builder(METRIC_NAME)
+                .tag("leg", leg)
+                .tag("outcome", outcome)
+                .publishPercentiles(percentiles)
+                .publishPercentileHistogram(histogram)
+                .register(registry));
+    }
+
+    private static class Sample {
+
+        private final long start = System.nanoTime();
+
+        private volatile int attempts;
+        private volatile boolean fallback;
+        private volatile Throwable error;
+
+        private String outcome(SignalType signal) {
+            if (fallback) return "fallback";
+            if (signal == SignalType.ON_ERROR) return isTimeout(error) ? "timeout" : "error";
+            if (signal == SignalType.CANCEL) return "cancelled";
+            return attempts > 1 ? "retry" : "success";
+        }
+
+        private static boolean isTimeout(Throwable ex) {
+            for (Throwable cause = ex; cause != null; cause = cause.getCause()) {
+                if (cause instanceof TimeoutException) return true;
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.dejanvuk.microservices.core.universitycomposite.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// The hedge delay is either fixed or the configured percentile of the recently observed latencies. Every primary
+// request earns budgetPercent / 100 of a hedge, up to budgetBurst hedges, so hedging adds at most budgetPercent of load.
+// Only the p2c load balancer keeps a hedge off the instance its primary went to, with round-robin hedging stays off
+@Component
+public class HedgingPolicy {
+
+    private static final Logger LOG = LoggerFactory.getLogger(HedgingPolicy.class);
+
+    private static final String METRIC_NAME = "university.composite.hedge";
+
+    private static final long TOKEN = 1000;
+
+    private final boolean enabled;
+    private final long fixedDelayMs;
+    private final long minDelayMs;
+    private final long maxDelayMs;
+    private final long minSamples;
+
+    private final long tokensPerRequest;
+    private final long maxTokens;
+    private final AtomicLong tokens;
+
+    private final Timer latencies;
+    private final Counter sent;
+    private final Counter won;
+    private final Counter rejected;
+
+    @Autowired
+    public HedgingPolicy(MeterRegistry registry,
+                         @Value("${app.university-service.hedging.enabled:false}") boolean enabled,
+                         @Value("${app.load-balancer.strategy:p2c}") String loadBalancerStrategy,
+                         @Value("${app.university-service.hedging.delayMs:0}") long fixedDelayMs,
+                         @Value("${app.university-service.hedging.percentile:0.95}") double percentile,
+                         @Value("${app.university-service.hedging.minDelayMs:10}") long minDelayMs,
+                         @Value("${app.university-service.hedging.maxDelayMs:500}") long maxDelayMs,
+                         @Value("${app.university-service.hedging.minSamples:100}") long minSamples,
+                         @Value("${app.university-service.hedging.windowSec:60}") int windowSec,
+                         @Value("${app.university-service.hedging.budgetPercent:10}") int budgetPercent,
+                         @Value("${app.university-service.hedging.budgetBurst:10}") int budgetBurst) {
+        this.enabled = enabled && "p2c".equals(loadBalancerStrategy);
+        if (enabled && !this.enabled) {
+            LOG.warn("Hedging disabled: the {} load balancer can't keep a hedge off the instance of its primary", loadBalancerStrategy);
+        }
+        this.fixedDelayMs = fixedDelayMs;
+        this.minDelayMs = minDelayMs;
+        this.maxDelayMs = maxDelayMs;
+        this.minSamples = minSamples;
+
+        this.tokensPerRequest = TOKEN * budgetPercent / 100;
+        this.maxTokens = TOKEN * budgetBurst;
+        this.tokens = new AtomicLong(maxTokens);
+
+        this.latencies = Timer.builder(METRIC_NAME + ".latency")
+                .publishPercentiles(percentile)
+                .distributionStatisticExpiry(Duration.ofSeconds(windowSec))
+                .register(registry);
+        this.sent = registry.counter(METRIC_NAME, "result", "sent");
+        this.won = registry.counter(METRIC_NAME, "result", "won");
+        this.rejected = registry.counter(METRIC_NAME, "result", "budget_exhausted");
+
+        LOG.info("Hedging enabled: {}, delayMs: {}, percentile: {}, budgetPercent: {}", this.enabled, fixedDelayMs, percentile, budgetPercent);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public Duration hedgeDelay() {
+        if (fixedDelayMs > 0) {
+            return Duration.ofMillis(fixedDelayMs);
+        }
+        if (latencies.count() < minSamples) {
+            return Duration.ofMillis(maxDelayMs);
+        }
+
+        long observedMs = maxDelayMs;
+        for (ValueAtPercentile value : latencies.takeSnapshot().percentileValues()) {
+            observedMs = (long) value.value(TimeUnit.MILLISECONDS);
+        }
+        return Duration.ofMillis(Math.max(minDelayMs, Math.min(maxDelayMs, observedMs)));
+    }
+
+    public void onRequest() {
+        tokens.accumulateAndGet(tokensPerRequest, (current, deposit) -> Math.min(maxTokens, current + deposit));
+    }
+
+    public boolean tryAcquire() {
+        long current;
+        do {
+            current = tokens.get();
+            if (current < TOKEN) {
+                rejected.increment();
+                return false;
+            }
+        } while (!tokens.compareAndSet(current, current - TOKEN));
+
+        sent.increment();
+        return true;
+    }
+
+    public void onHedgeWon() {
+        won.increment();
+    }
+
+    public void recordLatency(long nanos) {
+        latencies.record(nanos, TimeUnit.NANOSECONDS);
+    }
+}
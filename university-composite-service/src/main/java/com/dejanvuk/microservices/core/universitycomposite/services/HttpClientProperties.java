@@ -0,0 +1,64 @@
+package com.dejanvuk.microservices.core.universitycomposite.services;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@ConfigurationProperties(prefix = "app.http-client")
+public class HttpClientProperties {
+
+    private Map<String, Backend> backends = new HashMap<>();
+
+    public Map<String, Backend> getBackends() {
+        return backends;
+    }
+
+    public void setBackends(Map<String, Backend> backends) {
+        this.backends = backends;
+    }
+
+    public Backend getBackend(String name) {
+        return backends.getOrDefault(name, new Backend());
+    }
+
+    public static class Backend {
+
+        private int maxConnections = 100;
+        private long acquireTimeoutMs = 2000;
+        private long maxIdleTimeMs = 30000;
+        private boolean keepAlive = true;
+
+        public int getMaxConnections() {
+            return maxConnections;
+        }
+
+        public void setMaxConnections(int maxConnections) {
+            this.maxConnections = maxConnections;
+        }
+
+        public long getAcquireTimeoutMs() {
+            return acquireTimeoutMs;
+        }
+
+        public void setAcquireTimeoutMs(long acquireTimeoutMs) {
+            this.acquireTimeoutMs = acquireTimeoutMs;
+        }
+
+        public long getMaxIdleTimeMs() {
+            return maxIdleTimeMs;
+        }
+
+        public void setMaxIdleTimeMs(long maxIdleTimeMs) {
+            this.maxIdleTimeMs = maxIdleTimeMs;
+        }
+
+        public boolean isKeepAlive() {
+            return keepAlive;
+        }
+
+        public void setKeepAlive(boolean keepAlive) {
+            this.keepAlive = keepAlive;
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.dejanvuk.microservices.core.universitycomposite.services;
+
+import com.dejanvuk.api.composite.university.UniversityAggregate;
+import com.dejanvuk.api.core.student.Student;
+import com.dejanvuk.api.core.university.University;
+import com.dejanvuk.util.exceptions.InvalidPayloadException;
+import com.dejanvuk.util.exceptions.NotFoundException;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+// Keeps the last successful university and student reads as serialized JSON, so the store is bounded by bytes rather
+// than entries and, with offHeap, the values live in direct buffers outside the Java heap
+@Component
+public class LastKnownGoodStore {
+
+    private static final Logger LOG = LoggerFactory.getLogger(LastKnownGoodStore.class);
+
+    private static final String METRIC_NAME = "university.composite.last-known-good";
+
+    private final ObjectMapper mapper;
+    private final JavaType universityType;
+    private final JavaType studentsType;
+
+    private final boolean enabled;
+    private final boolean offHeap;
+
+    private final Cache<String, StoredValue> values;
+    private final Cache<UniversityAggregate, Long> staleAggregates;
+
+    private final Counter served;
+    private final Counter missing;
+
+    @Autowired
+    public LastKnownGoodStore(MeterRegistry registry,
+                              ObjectMapper mapper,
+                              @Value("${app.last-known-good.enabled:true}") boolean enabled,
+                              @Value("${app.last-known-good.maxSizeMb:64}") long maxSizeMb,
+                              @Value("${app.last-known-good.offHeap:false}") boolean offHeap,
+                              @Value("${app.last-known-good.maxAgeSec:86400}") int maxAgeSec) {
+        this.mapper = mapper;
+        this.universityType = mapper.getTypeFactory().constructType(University.class);
+        this.studentsType = mapper.getTypeFactory().constructCollectionType(List.class, Student.class);
+        this.enabled = enabled;
+        this.offHeap = offHeap;
+
+        this.values = Caffeine.newBuilder()
+                .maximumWeight(maxSizeMb * 1024 * 1024)
+                .weigher((String key, StoredValue value) -> value.size())
+                .expireAfterWrite(Duration.ofSeconds(maxAgeSec))
+                .build();
+        this.staleAggregates = Caffeine.newBuilder().weakKeys().build();
+
+        this.served = registry.counter(METRIC_NAME, "result", "served");
+        this.missing = registry.counter(METRIC_NAME, "result", "missing");
+        registry.gauge(METRIC_NAME + ".bytes", values, cache -> cache.policy().eviction().map(eviction -> eviction.weightedSize().orElse(0)).orElse(0L));
+
+        LOG.info("Last known good store enabled: {}, maxSizeMb: {}, offHeap: {}, maxAgeSec: {}", enabled, maxSizeMb, offHeap, maxAgeSec);
+    }
+
+    // Only failures that say nothing about the data itself are answered from the store
+    public static boolean isUnavailable(Throwable ex) {
+        return !(ex instanceof NotFoundException) && !(ex instanceof InvalidPayloadException);
+    }
+
+    public void putUniversity(University university) {
+        put("university:" + university.getUniversityId(), university);
+    }
+
+    public void putStudents(int universityId, List<Student> students) {
+        put("students:" + universityId, students);
+    }
+
+    public Mono<Stored<University>> getUniversity(int universityId) {
+        return get("university:" + universityId, universityType);
+    }
+
+    public Mono<Stored<List<Student>>> getStudents(int universityId) {
+        return get("students:" + universityId, studentsType);
+    }
+
+    public void markStale(UniversityAggregate aggregate, long ageMs) {
+        staleAggregates.put(aggregate, ageMs);
+    }
+
+    public Optional<Long> staleAgeMs(UniversityAggregate aggregate) {
+        return Optional.ofNullable(staleAggregates.getIfPresent(aggregate));
+    }
+
+    private void put(String key, Object value) {
+        if (!enabled) return;
+
+        try {
+            byte[] bytes = mapper.writeValueAsBytes(value);
+            values.put(key, new StoredValue(bytes, offHeap));
+        } catch (IOException ex) {
+            LOG.warn("Failed to store last known good value for {}: {}", key, ex.toString());
+        }
+    }
+
+    private <T> Mono<Stored<T>> get(String key, JavaType type) {
+        return Mono.fromCallable(() -> {
+            StoredValue value = values.getIfPresent(key);
+            if (value == null) {
+                missing.increment();
+                return null;
+            }
+
+            served.increment();
+            return new Stored<T>(mapper.readValue(value.bytes(), type), System.currentTimeMillis() - value.storedAt);
+        });
+    }
+
+    public static class Stored<T> {
+        private final T value;
+        private final long ageMs;
+
+        Stored(T value, long ageMs) {
+            this.value = value;
+            this.ageMs = ageMs;
+        }
+
+        public T getValue() {
+            return value;
+        }
+
+        public long getAgeMs() {
+            return ageMs;
+        }
+    }
+
+    private static class StoredValue {
+        private final ByteBuffer data;
+        private final long storedAt = System.currentTimeMillis();
+
+        StoredValue(byte[] bytes, boolean offHeap) {
+            this.data = offHeap ? ByteBuffer.allocateDirect(bytes.length).put(bytes).flip() : ByteBuffer.wrap(bytes);
+        }
+
+        int size() {
+            return data.capacity();
+        }
+
+        byte[] bytes() {
+            byte[] bytes = new byte[data.capacity()];
+            data.duplicate().get(bytes);
+            return bytes;
+        }
+    }
+}
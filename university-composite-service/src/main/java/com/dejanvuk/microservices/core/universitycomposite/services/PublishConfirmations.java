@@ -0,0 +1,104 @@
+package com.dejanvuk.microservices.core.universitycomposite.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.integration.annotation.ServiceActivator;
+import org.springframework.integration.channel.DirectChannel;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessagingException;
+import org.springframework.messaging.support.ErrorMessage;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoProcessor;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Turns a send into a Mono that completes once the broker has confirmed the event. Rabbit routes its publisher
+// confirms (confirmAckChannel) and Kafka its record metadata (recordMetadataChannel) to CONFIRMS_CHANNEL, nacks,
+// returns and failed sends arrive on the binding's error channel. Without confirms a send completes when it returns
+@Component
+public class PublishConfirmations {
+
+    private static final Logger LOG = LoggerFactory.getLogger(PublishConfirmations.class);
+
+    public static final String CONFIRMS_CHANNEL = "publish-confirms";
+
+    private static final String PUBLISH_ID = "publishId";
+
+    private final boolean enabled;
+    private final Duration timeout;
+
+    private final Map<String, MonoProcessor<Void>> pending = new ConcurrentHashMap<>();
+
+    public PublishConfirmations(@Value("${app.messaging.confirms.enabled:false}") boolean enabled,
+                                @Value("${app.messaging.confirms.timeoutMs:10000}") int timeoutMs) {
+        this.enabled = enabled;
+        this.timeout = Duration.ofMillis(timeoutMs);
+
+        LOG.info("Publisher confirms enabled: {}, timeout: {}", enabled, timeout);
+    }
+
+    @Bean(CONFIRMS_CHANNEL)
+    public MessageChannel confirmsChannel() {
+        return new DirectChannel();
+    }
+
+    public Mono<Void> send(MessageChannel channel, Object payload) {
+        return Mono.defer(() -> {
+            if (!enabled) {
+                channel.send(MessageBuilder.withPayload(payload).build());
+                return Mono.empty();
+            }
+
+            String publishId = UUID.randomUUID().toString();
+            MonoProcessor<Void> confirmed = MonoProcessor.create();
+            pending.put(publishId, confirmed);
+            try {
+                channel.send(MessageBuilder.withPayload(payload).setHeader(PUBLISH_ID, publishId).build());
+            } catch (RuntimeException ex) {
+                pending.remove(publishId);
+                return Mono.error(ex);
+            }
+
+            return confirmed.timeout(timeout).doFinally(signal -> pending.remove(publishId));
+        });
+    }
+
+    @ServiceActivator(inputChannel = CONFIRMS_CHANNEL)
+    public void confirmed(Message<?> confirm) {
+        // Rabbit sends the published message as the payload, Kafka copies its headers onto the confirm
+        Message<?> published = confirm.getPayload() instanceof Message ? (Message<?>) confirm.getPayload() : confirm;
+        MonoProcessor<Void> confirmed = pending.remove(String.valueOf(published.getHeaders().get(PUBLISH_ID)));
+        if (confirmed != null) confirmed.onComplete();
+    }
+
+    // The producer error channels are named after the destinations of the output bindings
+    @ServiceActivator(inputChannel = "universities.errors")
+    public void universityFailed(ErrorMessage error) {
+        failed(error);
+    }
+
+    @ServiceActivator(inputChannel = "students.errors")
+    public void studentFailed(ErrorMessage error) {
+        failed(error);
+    }
+
+    private void failed(ErrorMessage error) {
+        Throwable cause = error.getPayload();
+        Message<?> published = cause instanceof MessagingException ? ((MessagingException) cause).getFailedMessage() : error.getOriginalMessage();
+        if (published == null) {
+            LOG.warn("Publish failed without the published message: {}", cause.toString());
+            return;
+        }
+
+        MonoProcessor<Void> confirmed = pending.remove(String.valueOf(published.getHeaders().get(PUBLISH_ID)));
+        if (confirmed != null) confirmed.onError(cause);
+    }
+}
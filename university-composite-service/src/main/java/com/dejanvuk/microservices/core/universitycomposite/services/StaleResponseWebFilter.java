@@ -0,0 +1,31 @@
+package com.dejanvuk.microservices.core.universitycomposite.services;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+// Makes the response reachable from the subscriber context, so a handler can flag it as served from stale data
+@Component
+public class StaleResponseWebFilter implements WebFilter {
+
+    private static final Class<ServerHttpResponse> RESPONSE_KEY = ServerHttpResponse.class;
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        return chain.filter(exchange).subscriberContext(context -> context.put(RESPONSE_KEY, exchange.getResponse()));
+    }
+
+    public static Mono<Void> markStale(long ageMs) {
+        return Mono.subscriberContext()
+                .doOnNext(context -> context.<ServerHttpResponse>getOrEmpty(RESPONSE_KEY).ifPresent(response -> {
+                    HttpHeaders headers = response.getHeaders();
+                    headers.set(HttpHeaders.WARNING, "110 - \"Response is Stale\"");
+                    headers.set(HttpHeaders.AGE, String.valueOf(ageMs / 1000));
+                }))
+                .then();
+    }
+}
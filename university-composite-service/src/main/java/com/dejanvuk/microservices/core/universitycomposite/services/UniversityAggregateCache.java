@@ -0,0 +1,97 @@
+package com.dejanvuk.microservices.core.universitycomposite.services;
+
+import com.dejanvuk.api.composite.university.UniversityAggregate;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+@Component
+public class UniversityAggregateCache {
+
+    private static final Logger LOG = LoggerFactory.getLogger(UniversityAggregateCache.class);
+
+    private static final String METRIC_NAME = "university.composite.aggregate.cache";
+
+    private final boolean enabled;
+
+    private final Cache<Integer, CachedAggregate> cache;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter coalesced;
+
+    @Autowired
+    public UniversityAggregateCache(MeterRegistry registry,
+                                    @Value("${app.aggregate-cache.enabled:true}") boolean enabled,
+                                    @Value("${app.aggregate-cache.maxSize:10000}") long maxSize,
+                                    @Value("${app.aggregate-cache.ttlSec:5}") int ttlSec) {
+        this.enabled = enabled;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSec))
+                .build();
+
+        this.hits = registry.counter(METRIC_NAME, "result", "hit");
+        this.misses = registry.counter(METRIC_NAME, "result", "miss");
+        this.coalesced = registry.counter(METRIC_NAME, "result", "coalesced");
+        registry.gauge(METRIC_NAME + ".size", cache, Cache::estimatedSize);
+
+        LOG.info("Aggregate cache enabled: {}, maxSize: {}, ttlSec: {}", enabled, maxSize, ttlSec);
+    }
+
+    public Mono<UniversityAggregate> get(int universityId, Supplier<Mono<UniversityAggregate>> loader) {
+        if (!enabled) {
+            return Mono.defer(loader);
+        }
+        return Mono.defer(() -> lookup(universityId, loader));
+    }
+
+    public void evict(int universityId) {
+        cache.invalidate(universityId);
+    }
+
+    private Mono<UniversityAggregate> lookup(int universityId, Supplier<Mono<UniversityAggregate>> loader) {
+        CachedAggregate cached = cache.getIfPresent(universityId);
+        if (cached != null) {
+            return recordShared(cached);
+        }
+
+        CachedAggregate created = new CachedAggregate();
+        created.aggregate = Mono.defer(loader)
+                .doOnSuccess(aggregate -> created.resolved = true)
+                .doOnError(ex -> cache.asMap().remove(universityId, created))
+                .cache();
+
+        CachedAggregate existing = cache.asMap().putIfAbsent(universityId, created);
+        if (existing != null) {
+            return recordShared(existing);
+        }
+
+        misses.increment();
+        return created.aggregate;
+    }
+
+    private Mono<UniversityAggregate> recordShared(CachedAggregate cached) {
+        if (cached.resolved) {
+            hits.increment();
+        } else {
+            coalesced.increment();
+        }
+        return cached.aggregate;
+    }
+
+    private static class CachedAggregate {
+        private Mono<UniversityAggregate> aggregate;
+        private volatile boolean resolved;
+    }
+}
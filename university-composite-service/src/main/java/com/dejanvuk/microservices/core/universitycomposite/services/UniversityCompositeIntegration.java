@@ -3,14 +3,18 @@ package com.dejanvuk.microservices.core.universitycomposite.services;
 import com.dejanvuk.api.core.student.Student;
 import com.dejanvuk.api.core.university.University;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.dejanvuk.microservices.core.universitycomposite.limiter.ConcurrencyLimiters;
+import com.dejanvuk.microservices.core.universitycomposite.loadbalancer.LatencyAwareLoadBalancer;
+import io.github.resilience4j.bulkhead.annotation.Bulkhead;
 import io.github.resilience4j.retry.annotation.Retry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
 import org.springframework.cloud.stream.annotation.EnableBinding;
 import org.springframework.cloud.stream.annotation.Output;
 import org.springframework.messaging.MessageChannel;
-import org.springframework.messaging.support.MessageBuilder;
 import org.springframework.retry.annotation.CircuitBreaker;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
@@ -24,12 +28,18 @@ import com.dejanvuk.api.event.Event;
 import com.dejanvuk.util.exceptions.InvalidPayloadException;
 import com.dejanvuk.util.exceptions.NotFoundException;
 import com.dejanvuk.util.http.HttpErrorInfo;
+import com.dejanvuk.util.tracing.SignalTracer;
 
 import java.io.IOException;
 import java.net.URI;
 import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
 
-import static reactor.core.publisher.Flux.empty;
+import static org.springframework.http.MediaType.APPLICATION_STREAM_JSON;
 
 import static com.dejanvuk.api.event.Event.Type.CREATE;
 import static com.dejanvuk.api.event.Event.Type.DELETE;
@@ -42,15 +52,23 @@ public class UniversityCompositeIntegration implements UniversityService, Studen
 
     private final String universityServiceUrl = "http://university";
     private final String studentServiceUrl = "http://student";
+    private final String universityServiceId = "university";
+    private final String studentServiceId = "student";
 
     private final ObjectMapper mapper;
 
-    private final WebClient.Builder webClientBuilder;
-    private WebClient webClient;
+    private final WebClient universityWebClient;
+    private final WebClient studentWebClient;
+
+    private final DiscoveryClient discoveryClient;
+    private final HedgingPolicy hedgingPolicy;
+    private final ConcurrencyLimiters concurrencyLimiters;
+    private final SignalTracer tracer;
 
     private final int universityServiceTimeoutSec;
 
     private MessageSources messageSources;
+    private final PublishConfirmations confirmations;
 
     public interface MessageSources {
 
@@ -65,59 +83,136 @@ public class UniversityCompositeIntegration implements UniversityService, Studen
     }
 
     public UniversityCompositeIntegration(MessageSources messageSources,
+                                          PublishConfirmations confirmations,
                                           WebClient.Builder webClientBuilder,
+                                          DiscoveryClient discoveryClient,
+                                          HedgingPolicy hedgingPolicy,
+                                          BackendConnectors connectors,
+                                          ConcurrencyLimiters concurrencyLimiters,
+                                          SignalTracer tracer,
                                           ObjectMapper mapper,
                                           @Value("${app.university-service.timeoutSec}") int universityServiceTimeoutSec) {
-        this.webClientBuilder = webClientBuilder;
+        this.universityWebClient = webClientBuilder.clone().clientConnector(connectors.connector(universityServiceId)).build();
+        this.studentWebClient = webClientBuilder.clone().clientConnector(connectors.connector(studentServiceId)).build();
+        this.discoveryClient = discoveryClient;
+        this.hedgingPolicy = hedgingPolicy;
+        this.concurrencyLimiters = concurrencyLimiters;
+        this.tracer = tracer;
         this.mapper = mapper;
         this.messageSources = messageSources;
+        this.confirmations = confirmations;
         this.universityServiceTimeoutSec = universityServiceTimeoutSec;
     }
 
-    private WebClient getWebClient() {
-        if (webClient == null) {
-            webClient = webClientBuilder.build();
-        }
-        return webClient;
-    }
-
     @Override
-    public University createUniversity(University body) {
-        messageSources.outputUniversities().send(MessageBuilder.withPayload(new Event(CREATE, body.getUniversityId(), body)).build());
-        return body;
+    public Mono<University> createUniversity(University body) {
+        return confirmations.send(messageSources.outputUniversities(), new Event(CREATE, body.getUniversityId(), body)).thenReturn(body);
     }
 
     @Retry(name = "university")
     @CircuitBreaker(label = "university")
+    @Bulkhead(name = "university")
     @Override
     public Mono<University> getUniversity(int universityId, int delay, int faultPercent) {
-        URI url = UriComponentsBuilder.fromUriString(universityServiceUrl + "/university/{universityId}?delay={delay}&faultPercent={faultPercent}").build(universityId, delay, faultPercent);
+        return CompositeMetrics.countAttempt(
+                tracer.trace("university-client-get", concurrencyLimiters.limit(universityServiceId, requestUniversity(universityId, delay, faultPercent))));
+    }
+
+    private Mono<University> requestUniversity(int universityId, int delay, int faultPercent) {
+        String path = "/university/{universityId}?delay={delay}&faultPercent={faultPercent}";
+
+        List<ServiceInstance> instances = hedgingPolicy.isEnabled() ? discoveryClient.getInstances(universityServiceId) : List.of();
+        if (instances.size() < 2) {
+            URI url = UriComponentsBuilder.fromUriString(universityServiceUrl + path).build(universityId, delay, faultPercent);
+
+            return universityWebClient.get().uri(url).retrieve().bodyToMono(University.class).onErrorMap(WebClientResponseException.class, ex -> handleException(ex))
+                    .timeout(Duration.ofSeconds(universityServiceTimeoutSec));
+        }
+
+        // Both requests go through the load balancer, which keeps the hedge off the instance the primary is waiting on.
+        // Only a response wins: a failing request drops out and leaves the race to the other one, unless it is a 4xx,
+        // which the other instance would answer the same way
+        URI url = UriComponentsBuilder.fromUriString(universityServiceUrl + path).build(universityId, delay, faultPercent);
+        Set<URI> usedInstances = ConcurrentHashMap.newKeySet();
+        AtomicReference<Throwable> lastError = new AtomicReference<>();
+
+        Mono<University> primary = Mono.defer(() -> {
+            hedgingPolicy.onRequest();
+            return getUniversityFromInstance(url, usedInstances);
+        });
+        Mono<University> hedge = Mono.defer(() -> Mono.delay(hedgingPolicy.hedgeDelay()))
+                .flatMap(tick -> hedgingPolicy.tryAcquire() ? getUniversityFromInstance(url, usedInstances).doOnNext(university -> hedgingPolicy.onHedgeWon()) : Mono.empty());
+
+        return Flux.merge(dropFailure(primary, lastError), dropFailure(hedge, lastError))
+                .next()
+                .switchIfEmpty(Mono.defer(() -> Mono.error(lastError.get())))
+                .onErrorMap(WebClientResponseException.class, ex -> handleException(ex))
+                .timeout(Duration.ofSeconds(universityServiceTimeoutSec));
+    }
 
-        return getWebClient().get().uri(url).retrieve().bodyToMono(University.class).log().onErrorMap(WebClientResponseException.class, ex -> handleException(ex))
+    private Mono<University> dropFailure(Mono<University> request, AtomicReference<Throwable> lastError) {
+        return request.onErrorResume(ex -> !(ex instanceof WebClientResponseException && ((WebClientResponseException) ex).getStatusCode().is4xxClientError()), ex -> {
+            lastError.set(ex);
+            return Mono.empty();
+        });
+    }
+
+    // Only answers are recorded, failures and hedges that lost and were cancelled would skew the hedge delay
+    private Mono<University> getUniversityFromInstance(URI url, Set<URI> usedInstances) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return universityWebClient.get().uri(url).attribute(LatencyAwareLoadBalancer.USED_INSTANCES, usedInstances)
+                    .retrieve().bodyToMono(University.class)
+                    .doOnSuccess(university -> hedgingPolicy.recordLatency(System.nanoTime() - start));
+        });
+    }
+
+    @Override
+    public Flux<University> getUniversities(List<Integer> universityIds) {
+        URI url = UriComponentsBuilder.fromUriString(universityServiceUrl + "/university")
+                .queryParam("universityIds", joinIds(universityIds)).build().toUri();
+
+        return universityWebClient.get().uri(url).accept(APPLICATION_STREAM_JSON).retrieve().bodyToFlux(University.class)
+                .onErrorMap(WebClientResponseException.class, ex -> handleException(ex))
                 .timeout(Duration.ofSeconds(universityServiceTimeoutSec));
     }
 
     @Override
-    public void deleteUniversity(int universityId) {
-        messageSources.outputUniversities().send(MessageBuilder.withPayload(new Event(DELETE, universityId, null)).build());
+    public Mono<Void> deleteUniversity(int universityId) {
+        return confirmations.send(messageSources.outputUniversities(), new Event(DELETE, universityId, null));
     }
 
     @Override
-    public Student createStudent(Student body) {
-        messageSources.outputStudents().send(MessageBuilder.withPayload(new Event(CREATE, body.getUniversityId(), body)).build());
-        return body;
+    public Mono<Student> createStudent(Student body) {
+        return confirmations.send(messageSources.outputStudents(), new Event(CREATE, body.getUniversityId(), body)).thenReturn(body);
     }
 
+    @Bulkhead(name = "student")
     @Override
     public Flux<Student> getStudents(int universityId) {
         String url = studentServiceUrl + "/student?universityId=" + universityId;
 
-        return getWebClient().get().uri(url).retrieve().bodyToFlux(Student.class).log().onErrorResume(error -> empty());
+        return tracer.trace("student-client-get",
+                concurrencyLimiters.limit(studentServiceId, studentWebClient.get().uri(url).accept(APPLICATION_STREAM_JSON).retrieve().bodyToFlux(Student.class)));
     }
 
     @Override
-    public void deleteStudents(int universityId) {
-        messageSources.outputStudents().send(MessageBuilder.withPayload(new Event(DELETE, universityId, null)).build());
+    public Flux<Student> getStudentsByUniversityIds(List<Integer> universityIds) {
+        URI url = UriComponentsBuilder.fromUriString(studentServiceUrl + "/student")
+                .queryParam("universityIds", joinIds(universityIds)).build().toUri();
+
+        // A failed read must not look like universities without students, so the error is passed on to the caller
+        return studentWebClient.get().uri(url).accept(APPLICATION_STREAM_JSON).retrieve().bodyToFlux(Student.class)
+                .onErrorMap(WebClientResponseException.class, ex -> handleException(ex));
+    }
+
+    @Override
+    public Mono<Void> deleteStudents(int universityId) {
+        return confirmations.send(messageSources.outputStudents(), new Event(DELETE, universityId, null));
+    }
+
+    private String joinIds(List<Integer> ids) {
+        return ids.stream().map(String::valueOf).collect(Collectors.joining(","));
     }
 
     private Throwable handleException(Throwable ex) {
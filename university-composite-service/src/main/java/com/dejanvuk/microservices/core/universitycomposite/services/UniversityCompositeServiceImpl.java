@@ -3,105 +3,265 @@ package com.dejanvuk.microservices.core.universitycomposite.services;
 import com.dejanvuk.api.composite.university.*;
 import com.dejanvuk.api.core.student.Student;
 import com.dejanvuk.api.core.university.University;
+import com.dejanvuk.microservices.core.universitycomposite.view.AggregateView;
 import io.github.resilience4j.reactor.retry.RetryExceptionWrapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.integration.handler.advice.RequestHandlerCircuitBreakerAdvice;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.context.ReactiveSecurityContextHolder;
 import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.core.context.SecurityContextImpl;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
 import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import com.dejanvuk.util.exceptions.InvalidPayloadException;
+import com.dejanvuk.util.exceptions.ServiceUnavailableException;
 import com.dejanvuk.util.http.ServiceUtil;
+import com.dejanvuk.util.tracing.SignalTracer;
 
 import com.dejanvuk.api.composite.university.ServiceAddresses;
 
 import java.net.URL;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
+import static java.util.Collections.emptyList;
+
 @RestController
 public class UniversityCompositeServiceImpl implements UniversityCompositeService {
     private final ServiceUtil serviceUtil;
     private UniversityCompositeIntegration integration;
+    private final UniversityAggregateCache aggregateCache;
+    private final LastKnownGoodStore lastKnownGood;
+    private final CompositeMetrics metrics;
+    private final AggregateView aggregateView;
+    private final SignalTracer tracer;
+    private final Set<Integer> refreshing = ConcurrentHashMap.newKeySet();
     private final SecurityContext nullSC = new SecurityContextImpl();
     private static final Logger LOG = LoggerFactory.getLogger(UniversityCompositeServiceImpl.class);
 
+    private final int batchMaxSize;
+    private final int batchChunkSize;
+    private final int batchConcurrency;
+    private final int bulkPrefetch;
+
     @Autowired
-    public UniversityCompositeServiceImpl(ServiceUtil serviceUtil, UniversityCompositeIntegration integration) {
+    public UniversityCompositeServiceImpl(ServiceUtil serviceUtil,
+                                          UniversityCompositeIntegration integration,
+                                          UniversityAggregateCache aggregateCache,
+                                          LastKnownGoodStore lastKnownGood,
+                                          CompositeMetrics metrics,
+                                          AggregateView aggregateView,
+                                          SignalTracer tracer,
+                                          @Value("${app.batch.maxSize:1000}") int batchMaxSize,
+                                          @Value("${app.batch.chunkSize:100}") int batchChunkSize,
+                                          @Value("${app.batch.concurrency:2}") int batchConcurrency,
+                                          @Value("${app.bulk.prefetch:256}") int bulkPrefetch) {
         this.serviceUtil = serviceUtil;
         this.integration = integration;
+        this.aggregateCache = aggregateCache;
+        this.lastKnownGood = lastKnownGood;
+        this.metrics = metrics;
+        this.aggregateView = aggregateView;
+        this.tracer = tracer;
+        this.batchMaxSize = batchMaxSize;
+        this.batchChunkSize = batchChunkSize;
+        this.batchConcurrency = batchConcurrency;
+        this.bulkPrefetch = bulkPrefetch;
     }
 
     @Override
     public Mono<Void> createCompositeUniversity(UniversityAggregate body) {
-        return ReactiveSecurityContextHolder.getContext().doOnSuccess(sc -> internalCreateCompositeUniversity(sc, body)).then();
+        return ReactiveSecurityContextHolder.getContext().defaultIfEmpty(nullSC).flatMap(sc -> internalCreateCompositeUniversity(sc, body));
     }
 
     @Override
     public Mono<UniversityAggregate> getCompositeUniversity(int universityId, int delay, int faultPercent) {
-        return Mono.zip(
-                values -> createUniversityAggregate((SecurityContext) values[0], (University) values[1], (List<Student>) values[2], serviceUtil.getServiceAddress()),
-                ReactiveSecurityContextHolder.getContext().defaultIfEmpty(nullSC),
-                integration.getUniversity(universityId, delay, faultPercent)
-                        .onErrorMap(RetryExceptionWrapper.class, retryException -> retryException.getCause())
-                        .onErrorReturn(RequestHandlerCircuitBreakerAdvice.CircuitBreakerOpenException.class, getUniversityFallbackValue(universityId)),
-                integration.getStudents(universityId).collectList())
-                .doOnError(ex -> LOG.warn("GET Composite University fail: {}", ex.toString()))
-                .log();
+        boolean faultInjected = delay > 0 || faultPercent > 0;
+
+        Mono<UniversityAggregate> aggregate = faultInjected ?
+                fetchUniversityAggregate(universityId, delay, faultPercent) :
+                aggregateCache.get(universityId, () -> fetchUniversityAggregate(universityId, delay, faultPercent));
+
+        if (!faultInjected && aggregateView.isServing()) {
+            aggregate = Mono.defer(() -> Mono.justOrEmpty(aggregateView.get(universityId))).switchIfEmpty(aggregate);
+        }
+
+        Mono<SecurityContext> securityContext = metrics.timeLeg(CompositeMetrics.SECURITY_CONTEXT,
+                ReactiveSecurityContextHolder.getContext().defaultIfEmpty(nullSC).doOnNext(sc -> logAuthorizationInfo(sc)));
+
+        return tracer.trace("composite-get", securityContext
+                .then(aggregate)
+                .flatMap(value -> lastKnownGood.staleAgeMs(value)
+                        .map(ageMs -> StaleResponseWebFilter.markStale(ageMs).thenReturn(value))
+                        .orElse(Mono.just(value)))
+                .doOnError(ex -> LOG.warn("GET Composite University fail: {}", ex.toString())));
     }
 
-    @Override
-    public Mono<Void> deleteCompositeUniversity(int universityId) {
-        return ReactiveSecurityContextHolder.getContext().doOnSuccess(sc -> internalDeleteCompositeUniversity(sc, universityId)).then();
+    private Mono<UniversityAggregate> fetchUniversityAggregate(int universityId, int delay, int faultPercent) {
+        AtomicLong staleAgeMs = new AtomicLong(-1);
+
+        Mono<University> university = metrics.timeLeg(CompositeMetrics.UNIVERSITY, integration.getUniversity(universityId, delay, faultPercent)
+                .onErrorMap(RetryExceptionWrapper.class, retryException -> retryException.getCause())
+                .doOnNext(value -> lastKnownGood.putUniversity(value))
+                .onErrorResume(LastKnownGoodStore::isUnavailable, ex -> CompositeMetrics.markFallback(lastKnownGood.getUniversity(universityId)
+                        .doOnNext(stored -> staleAgeMs.accumulateAndGet(stored.getAgeMs(), Math::max))
+                        .map(LastKnownGoodStore.Stored::getValue))
+                        .switchIfEmpty(Mono.error(() -> new ServiceUnavailableException("University " + universityId + " is unavailable: " + ex.getMessage(), ex)))));
+
+        Mono<List<Student>> students = metrics.timeLeg(CompositeMetrics.STUDENTS, integration.getStudents(universityId).collectList()
+                .doOnNext(value -> {
+                    metrics.recordStudentCount(value.size());
+                    lastKnownGood.putStudents(universityId, value);
+                })
+                .onErrorResume(LastKnownGoodStore::isUnavailable, ex -> CompositeMetrics.markFallback(lastKnownGood.getStudents(universityId)
+                        .doOnNext(stored -> staleAgeMs.accumulateAndGet(stored.getAgeMs(), Math::max))
+                        .map(LastKnownGoodStore.Stored::getValue)
+                        // Nothing stored: answer without students, but as stale so it is neither cached nor served as fresh
+                        .switchIfEmpty(Mono.fromSupplier(() -> {
+                            staleAgeMs.accumulateAndGet(0, Math::max);
+                            return emptyList();
+                        })))));
+
+        return Mono.zip(university, students)
+                .map(tuple -> metrics.timeAggregate(() -> createUniversityAggregate(tuple.getT1(), tuple.getT2(), serviceUtil.getServiceAddress())))
+                .doOnNext(aggregate -> {
+                    if (staleAgeMs.get() >= 0) {
+                        lastKnownGood.markStale(aggregate, staleAgeMs.get());
+                        aggregateCache.evict(universityId);
+                        refreshInBackground(universityId);
+                    }
+                });
     }
 
-    public void internalCreateCompositeUniversity(SecurityContext sc, UniversityAggregate body) {
+    // Stale-while-revalidate: one refresh per university at a time, a successful one replaces the stored values
+    private void refreshInBackground(int universityId) {
+        if (!refreshing.add(universityId)) return;
 
-        try {
+        Mono.zip(integration.getUniversity(universityId, 0, 0), integration.getStudents(universityId).collectList())
+                .doFinally(signal -> refreshing.remove(universityId))
+                .subscribe(tuple -> {
+                    lastKnownGood.putUniversity(tuple.getT1());
+                    lastKnownGood.putStudents(universityId, tuple.getT2());
+                    aggregateCache.evict(universityId);
+                }, ex -> LOG.debug("Background refresh of university {} failed: {}", universityId, ex.toString()));
+    }
 
-            logAuthorizationInfo(sc);
+    @Override
+    public Flux<UniversityAggregate> getCompositeUniversities(List<Integer> universityIds) {
+        if (universityIds.size() > batchMaxSize) throw new InvalidPayloadException("Batch size " + universityIds.size() + " exceeds the maximum of " + batchMaxSize);
 
-            University university = new University(body.getUniversityId(), body.getName(), body.getCountry(), null);
-            integration.createUniversity(university);
+        // Chunks are fetched concurrently but emitted in order, so the aggregates follow the requested ids
+        Flux<UniversityAggregate> aggregates = Flux.fromIterable(universityIds)
+                .distinct()
+                .buffer(batchChunkSize)
+                .flatMapSequential(chunk -> fetchUniversityAggregates(chunk), batchConcurrency, 1);
 
-            if (body.getStudents() != null) {
-                body.getStudents().forEach(r -> {
-                    Student student = new Student(body.getUniversityId(), r.getStudentId(),r.getFirstName(), r.getLastName(), r.getSection(), null);
-                    integration.createStudent(student);
-                });
-            }
+        return ReactiveSecurityContextHolder.getContext().defaultIfEmpty(nullSC)
+                .doOnNext(sc -> logAuthorizationInfo(sc))
+                .thenMany(aggregates)
+                .doOnError(ex -> LOG.warn("GET Composite University batch fail: {}", ex.toString()));
+    }
 
-        } catch (RuntimeException ex) {
-            throw ex;
-        }
+    private Flux<UniversityAggregate> fetchUniversityAggregates(List<Integer> universityIds) {
+        return Mono.zip(
+                integration.getUniversities(universityIds).collectMap(University::getUniversityId),
+                integration.getStudentsByUniversityIds(universityIds).collectMultimap(Student::getUniversityId))
+                .flatMapMany(tuple -> Flux.fromIterable(universityIds)
+                        .filter(universityId -> tuple.getT1().containsKey(universityId))
+                        .map(universityId -> tuple.getT1().get(universityId))
+                        .map(university -> createUniversityAggregate(
+                                university,
+                                new ArrayList<>(tuple.getT2().getOrDefault(university.getUniversityId(), emptyList())),
+                                serviceUtil.getServiceAddress())));
     }
 
-    private University getUniversityFallbackValue(int universityId) {
-        return new University(universityId, "Fallback university" + universityId, "Fallback university" + universityId, serviceUtil.getServiceAddress());
+    // Records are sent in order on a worker thread while up to bulkPrefetch of them wait for their publisher
+    // confirms, and only that many are requested from the request body, so memory stays flat regardless of the upload size
+    @Override
+    public Mono<BulkIngestSummary> createCompositeUniversities(Flux<UniversityAggregate> body) {
+        long start = System.currentTimeMillis();
+
+        return ReactiveSecurityContextHolder.getContext().defaultIfEmpty(nullSC)
+                .doOnNext(sc -> logAuthorizationInfo(sc))
+                .then(body
+                        .publishOn(Schedulers.boundedElastic(), bulkPrefetch)
+                        .flatMap(aggregate -> publishCompositeUniversity(aggregate)
+                                .onErrorResume(ex -> {
+                                    boolean partial = ex instanceof PartialPublishException;
+                                    LOG.warn("Bulk ingest of university {} failed{}: {}", aggregate.getUniversityId(),
+                                            partial ? " after the university was published" : "", partial ? ex.getCause().toString() : ex.toString());
+                                    return Mono.just(partial ? PARTIAL : FAILED);
+                                }), bulkPrefetch)
+                        .collect(BulkIngestProgress::new, BulkIngestProgress::add))
+                .map(progress -> progress.toSummary(System.currentTimeMillis() - start))
+                .doOnNext(summary -> LOG.info("Bulk ingest finished: {}", summary));
     }
 
-    private void internalDeleteCompositeUniversity(SecurityContext sc, int universityId) {
-        try {
-            logAuthorizationInfo(sc);
+    @Override
+    public Mono<Void> deleteCompositeUniversity(int universityId) {
+        return ReactiveSecurityContextHolder.getContext().defaultIfEmpty(nullSC).flatMap(sc -> internalDeleteCompositeUniversity(sc, universityId));
+    }
 
-            integration.deleteUniversity(universityId);
-            integration.deleteStudents(universityId);
+    public Mono<Void> internalCreateCompositeUniversity(SecurityContext sc, UniversityAggregate body) {
 
-            LOG.debug("Deleted University with universityId: {}", universityId);
+        logAuthorizationInfo(sc);
 
-        } catch (RuntimeException re) {
-            throw re;
-        }
+        return publishCompositeUniversity(body).onErrorMap(PartialPublishException.class, Throwable::getCause).then();
+    }
+
+    // Every event of a record is sent before any confirm is awaited, and the record only counts as published once
+    // the broker has confirmed all of them. A record whose university was confirmed but not all of its students is
+    // half-published: it fails with a PartialPublishException, and sending the same record again completes it,
+    // since the core services accept a create that matches what they already stored
+    private Mono<Long> publishCompositeUniversity(UniversityAggregate body) {
+        if (body.getUniversityId() < 1) return Mono.error(new InvalidPayloadException("Invalid universityId: " + body.getUniversityId()));
+
+        University university = new University(body.getUniversityId(), body.getName(), body.getCountry(), null);
+
+        List<StudentSummary> students = body.getStudents() == null ? emptyList() : body.getStudents();
+
+        AtomicBoolean universityPublished = new AtomicBoolean();
+        List<Mono<?>> sends = new ArrayList<>(students.size() + 1);
+        sends.add(integration.createUniversity(university).doOnSuccess(u -> universityPublished.set(true)));
+        students.forEach(r -> sends.add(integration.createStudent(
+                new Student(body.getUniversityId(), r.getStudentId(), r.getFirstName(), r.getLastName(), r.getSection(), null))));
+
+        return Flux.fromIterable(sends)
+                .flatMap(send -> send)
+                .then(Mono.just((long) students.size()))
+                .onErrorMap(ex -> universityPublished.get() ? new PartialPublishException(ex) : ex)
+                // After the sends, so a read racing the publish can't put the old aggregate back. A failed publish may
+                // have changed the university as well
+                .doOnTerminate(() -> aggregateCache.evict(body.getUniversityId()));
     }
 
-    private UniversityAggregate createUniversityAggregate(SecurityContext sc, University university, List<Student> students, String serviceAddress) {
+    private static class PartialPublishException extends RuntimeException {
+        private PartialPublishException(Throwable cause) {
+            super(cause);
+        }
+    }
 
+    private Mono<Void> internalDeleteCompositeUniversity(SecurityContext sc, int universityId) {
         logAuthorizationInfo(sc);
 
+        return integration.deleteUniversity(universityId)
+                .then(integration.deleteStudents(universityId))
+                .doOnTerminate(() -> aggregateCache.evict(universityId))
+                .doOnSuccess(v -> LOG.debug("Deleted University with universityId: {}", universityId));
+    }
+
+    public static UniversityAggregate createUniversityAggregate(University university, List<Student> students, String serviceAddress) {
+
         int universityId = university.getUniversityId();
         String name = university.getName();
         String country = university.getCountry();
@@ -118,6 +278,34 @@ public class UniversityCompositeServiceImpl implements UniversityCompositeServic
         return new UniversityAggregate(universityId, name, country, studentSummaries, serviceAddresses);
     }
 
+    private static final long FAILED = -1;
+    private static final long PARTIAL = -2;
+
+    private static class BulkIngestProgress {
+        private long universities;
+        private long students;
+        private long failed;
+        private long partial;
+
+        private void add(long publishedStudents) {
+            if (publishedStudents < 0) {
+                failed++;
+                if (publishedStudents == PARTIAL) partial++;
+            } else {
+                universities++;
+                students += publishedStudents;
+            }
+
+            if ((universities + failed) % 1000 == 0) {
+                LOG.debug("Bulk ingest progress: {} universities, {} students, {} failed", universities, students, failed);
+            }
+        }
+
+        private BulkIngestSummary toSummary(long elapsedMs) {
+            return new BulkIngestSummary(universities, students, failed, partial, elapsedMs);
+        }
+    }
+
     private void logAuthorizationInfo(SecurityContext sc) {
         if (sc != null && sc.getAuthentication() != null && sc.getAuthentication() instanceof JwtAuthenticationToken) {
             Jwt jwtToken = ((JwtAuthenticationToken)sc.getAuthentication()).getToken();
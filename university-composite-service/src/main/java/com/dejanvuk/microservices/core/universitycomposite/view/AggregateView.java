@@ -0,0 +1,230 @@
+package com.dejanvuk.microservices.core.universitycomposite.view;
+
+import com.dejanvuk.api.composite.university.UniversityAggregate;
+import com.dejanvuk.api.core.student.Student;
+import com.dejanvuk.api.core.university.University;
+import com.dejanvuk.api.event.Event;
+import com.dejanvuk.microservices.core.universitycomposite.services.UniversityCompositeServiceImpl;
+import com.dejanvuk.util.exceptions.EventProcessingException;
+import com.dejanvuk.util.http.ServiceUtil;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ObjLongConsumer;
+
+// Materialized aggregates per universityId, kept up to date from the university and student events. Student events
+// change an entry in place and the aggregate is only built when it is read, then reused until the entry changes
+// again. Until a rebuild has completed the view may lack data written before this instance started consuming, so it
+// is only served once ready. The view holds at most maxEntries universities, the others are computed on each read
+@Component
+public class AggregateView {
+
+    private static final Logger LOG = LoggerFactory.getLogger(AggregateView.class);
+
+    private static final String METRIC_NAME = "university.composite.view";
+
+    private final ServiceUtil serviceUtil;
+    private final boolean serving;
+    private final int maxEntries;
+
+    private final Map<Integer, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicLong versions = new AtomicLong();
+    private volatile boolean ready;
+
+    // Set once an entry was turned away, entries started afterwards may have missed earlier events
+    private volatile boolean overflowed;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter refused;
+
+    @Autowired
+    public AggregateView(MeterRegistry registry,
+                         ServiceUtil serviceUtil,
+                         @Value("${app.aggregate-view.readMode:compute}") String readMode,
+                         @Value("${app.aggregate-view.maxEntries:100000}") int maxEntries) {
+        this.serviceUtil = serviceUtil;
+        this.serving = "view".equalsIgnoreCase(readMode);
+        this.maxEntries = maxEntries;
+
+        this.hits = registry.counter(METRIC_NAME, "result", "hit");
+        this.misses = registry.counter(METRIC_NAME, "result", "miss");
+        this.refused = registry.counter(METRIC_NAME, "result", "refused");
+        registry.gauge(METRIC_NAME + ".size", entries, Map::size);
+
+        LOG.info("Aggregate view readMode: {}, maxEntries: {}", readMode, maxEntries);
+    }
+
+    public boolean isServing() {
+        return serving && ready;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public Optional<UniversityAggregate> get(int universityId) {
+        Entry entry = entries.get(universityId);
+        UniversityAggregate aggregate = entry == null ? null : entry.aggregate();
+        if (aggregate == null) {
+            misses.increment();
+            return Optional.empty();
+        }
+        hits.increment();
+        return Optional.of(aggregate);
+    }
+
+    public void applyUniversityEvent(Event<Integer, University> event) {
+        int universityId = event.getKey();
+        switch (event.getEventType()) {
+            case CREATE:
+                update(universityId, (entry, version) -> entry.setUniversity(event.getData(), version));
+                break;
+            case DELETE:
+                update(universityId, (entry, version) -> entry.setUniversity(null, version));
+                break;
+            default:
+                throw new EventProcessingException("Invalid event!");
+        }
+    }
+
+    public void applyStudentEvent(Event<Integer, Student> event) {
+        int universityId = event.getKey();
+        switch (event.getEventType()) {
+            case CREATE:
+                Student student = event.getData();
+                update(universityId, (entry, version) -> entry.students.put(student.getStudentId(), student));
+                break;
+            case DELETE:
+                // Student deletes are only published per university, the event removes all of its students
+                update(universityId, (entry, version) -> entry.clearStudents(version));
+                break;
+            default:
+                throw new EventProcessingException("Invalid event!");
+        }
+    }
+
+    // Returns the version a rebuild starts from, entries changed by events after it are newer than the rebuilt state
+    public long beginRebuild() {
+        overflowed = false;
+        return versions.get();
+    }
+
+    // An entry changed by events since the rebuild began is merged with the rebuilt state, the events win where they
+    // overlap. Rebuilt students are only added where no event has created or cleared them since
+    public void load(long rebuildVersion, int universityId, University university, List<Student> students) {
+        entries.compute(universityId, (id, old) -> {
+            if (old == null && isFull()) return null;
+
+            Entry entry = new Entry(true);
+            entry.university = university;
+            students.forEach(student -> entry.students.put(student.getStudentId(), student));
+
+            if (old != null && old.version > rebuildVersion) {
+                if (old.universityVersion > rebuildVersion) entry.setUniversity(old.university, old.universityVersion);
+                if (old.clearedVersion > rebuildVersion) entry.clearStudents(old.clearedVersion);
+                entry.students.putAll(old.students);
+            }
+            entry.version = versions.incrementAndGet();
+            return entry;
+        });
+    }
+
+    public void completeRebuild() {
+        // Deletes are kept as empty entries while rebuilding, so a concurrent rebuild can't resurrect them
+        entries.values().removeIf(entry -> entry.university == null && entry.students.isEmpty());
+        ready = true;
+    }
+
+    // Changes are made inside compute, so they are serialized per universityId, and bump the entry's version
+    private void update(int universityId, ObjLongConsumer<Entry> change) {
+        entries.compute(universityId, (id, old) -> {
+            Entry entry = old;
+            if (entry == null) {
+                if (isFull()) return null;
+                entry = new Entry(!overflowed);
+            }
+            long version = versions.incrementAndGet();
+            change.accept(entry, version);
+            entry.version = version;
+            return entry;
+        });
+    }
+
+    private boolean isFull() {
+        if (entries.size() < maxEntries) return false;
+
+        if (!overflowed) LOG.warn("Aggregate view is full with {} entries, further universities are computed on read", maxEntries);
+        overflowed = true;
+        refused.increment();
+        return true;
+    }
+
+    private class Entry {
+        private final Map<Integer, Student> students = new ConcurrentHashMap<>();
+        private final boolean complete;
+        private volatile University university;
+        private volatile long version;
+        private volatile Built built;
+
+        // Versions of the last university event and of the last delete of all students
+        private long universityVersion;
+        private long clearedVersion;
+
+        private Entry(boolean complete) {
+            this.complete = complete;
+        }
+
+        private void setUniversity(University university, long version) {
+            this.university = university;
+            this.universityVersion = version;
+        }
+
+        private void clearStudents(long version) {
+            students.clear();
+            clearedVersion = version;
+        }
+
+        // A change while building bumps the version, so an aggregate built from a mix is replaced on the next read
+        private UniversityAggregate aggregate() {
+            Built current = built;
+            long currentVersion = version;
+            if (current != null && current.version == currentVersion) return current.aggregate;
+
+            University university = this.university;
+            if (university == null || !complete) return null;
+
+            List<Student> sorted = new ArrayList<>(students.values());
+            sorted.sort(Comparator.comparingInt(Student::getStudentId));
+            UniversityAggregate aggregate = UniversityCompositeServiceImpl.createUniversityAggregate(university, sorted, serviceUtil.getServiceAddress());
+            built = new Built(currentVersion, aggregate);
+            return aggregate;
+        }
+    }
+
+    private static class Built {
+        private final long version;
+        private final UniversityAggregate aggregate;
+
+        private Built(long version, UniversityAggregate aggregate) {
+            this.version = version;
+            this.aggregate = aggregate;
+        }
+    }
+}
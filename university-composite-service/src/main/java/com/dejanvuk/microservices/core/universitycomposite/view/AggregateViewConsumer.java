@@ -0,0 +1,52 @@
+package com.dejanvuk.microservices.core.universitycomposite.view;
+
+import com.dejanvuk.api.core.student.Student;
+import com.dejanvuk.api.core.university.University;
+import com.dejanvuk.api.event.Event;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cloud.stream.annotation.EnableBinding;
+import org.springframework.cloud.stream.annotation.Input;
+import org.springframework.cloud.stream.annotation.StreamListener;
+import org.springframework.messaging.SubscribableChannel;
+
+// Every composite instance keeps its own view, so these bindings use no consumer group and each instance sees all events
+@ConditionalOnProperty(name = "app.aggregate-view.enabled", havingValue = "true")
+@EnableBinding(AggregateViewConsumer.ViewSinks.class)
+public class AggregateViewConsumer {
+
+    private static final Logger LOG = LoggerFactory.getLogger(AggregateViewConsumer.class);
+
+    private final AggregateView view;
+
+    public interface ViewSinks {
+
+        String INPUT_UNIVERSITIES = "input-view-universities";
+        String INPUT_STUDENTS = "input-view-students";
+
+        @Input(INPUT_UNIVERSITIES)
+        SubscribableChannel universities();
+
+        @Input(INPUT_STUDENTS)
+        SubscribableChannel students();
+    }
+
+    @Autowired
+    public AggregateViewConsumer(AggregateView view) {
+        this.view = view;
+    }
+
+    @StreamListener(target = ViewSinks.INPUT_UNIVERSITIES)
+    public void processUniversity(Event<Integer, University> event) {
+        LOG.debug("Applying university event {} for universityId: {}", event.getEventType(), event.getKey());
+        view.applyUniversityEvent(event);
+    }
+
+    @StreamListener(target = ViewSinks.INPUT_STUDENTS)
+    public void processStudent(Event<Integer, Student> event) {
+        LOG.debug("Applying student event {} for universityId: {}", event.getEventType(), event.getKey());
+        view.applyStudentEvent(event);
+    }
+}
@@ -0,0 +1,85 @@
+package com.dejanvuk.microservices.core.universitycomposite.view;
+
+import com.dejanvuk.api.core.student.Student;
+import com.dejanvuk.api.core.university.University;
+import com.dejanvuk.microservices.core.universitycomposite.services.UniversityCompositeIntegration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static java.util.Collections.emptyList;
+
+// Bootstraps the view for a range of universityIds from the core services, in chunks through their batch lookups
+@ConditionalOnProperty(name = "app.aggregate-view.enabled", havingValue = "true")
+@Endpoint(id = "aggregateview")
+@Component
+public class AggregateViewEndpoint {
+
+    private static final Logger LOG = LoggerFactory.getLogger(AggregateViewEndpoint.class);
+
+    private final AggregateView view;
+    private final UniversityCompositeIntegration integration;
+    private final int chunkSize;
+
+    @Autowired
+    public AggregateViewEndpoint(AggregateView view,
+                                 UniversityCompositeIntegration integration,
+                                 @Value("${app.aggregate-view.rebuildChunkSize:100}") int chunkSize) {
+        this.view = view;
+        this.integration = integration;
+        this.chunkSize = chunkSize;
+    }
+
+    @ReadOperation
+    public Map<String, Object> status() {
+        return Map.of("ready", view.isReady(), "serving", view.isServing(), "size", view.size());
+    }
+
+    @WriteOperation
+    public Mono<Map<String, Object>> rebuild(int fromId, int toId) {
+        long rebuildVersion = view.beginRebuild();
+        long start = System.currentTimeMillis();
+
+        return Flux.fromStream(IntStream.rangeClosed(fromId, toId).boxed())
+                .buffer(chunkSize)
+                .concatMap(chunk -> rebuildChunk(rebuildVersion, chunk))
+                .reduce(0, Integer::sum)
+                .map(loaded -> {
+                    view.completeRebuild();
+                    long elapsedMs = System.currentTimeMillis() - start;
+                    LOG.info("Rebuilt aggregate view for universityIds {}-{}: {} universities in {} ms", fromId, toId, loaded, elapsedMs);
+                    return Map.<String, Object>of("universities", loaded, "elapsedMs", elapsedMs);
+                })
+                .doOnError(ex -> LOG.warn("Rebuild of aggregate view for universityIds {}-{} failed, the view is left as it was: {}", fromId, toId, ex.toString()));
+    }
+
+    // Either lookup failing fails the chunk and with it the whole rebuild, so the view is never completed
+    // with universities that are missing their students
+    private Mono<Integer> rebuildChunk(long rebuildVersion, List<Integer> universityIds) {
+        return Mono.zip(
+                integration.getUniversities(universityIds).collectList(),
+                integration.getStudentsByUniversityIds(universityIds).collectMultimap(Student::getUniversityId))
+                .map(tuple -> {
+                    Map<Integer, Collection<Student>> students = tuple.getT2();
+                    for (University university : tuple.getT1()) {
+                        view.load(rebuildVersion, university.getUniversityId(), university,
+                                new ArrayList<>(students.getOrDefault(university.getUniversityId(), emptyList())));
+                    }
+                    return tuple.getT1().size();
+                });
+    }
+}
@@ -0,0 +1,89 @@
+package com.dejanvuk.microservices.core.universitycomposite;
+
+import com.dejanvuk.api.composite.university.UniversityAggregate;
+import com.dejanvuk.microservices.core.universitycomposite.services.UniversityAggregateCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoProcessor;
+import reactor.test.StepVerifier;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AggregateCacheTests {
+
+    private static final int UNIVERSITY_ID = 1;
+
+    private MeterRegistry registry;
+    private UniversityAggregateCache cache;
+    private AtomicInteger loads;
+
+    @BeforeEach
+    public void setUp() {
+        registry = new SimpleMeterRegistry();
+        cache = new UniversityAggregateCache(registry, true, 100, 60);
+        loads = new AtomicInteger();
+    }
+
+    @Test
+    public void coalescesConcurrentRequests() {
+        MonoProcessor<UniversityAggregate> upstream = MonoProcessor.create();
+
+        Mono<UniversityAggregate> first = cache.get(UNIVERSITY_ID, () -> load(upstream));
+        Mono<UniversityAggregate> second = cache.get(UNIVERSITY_ID, () -> load(upstream));
+
+        StepVerifier.create(Mono.zip(first, second))
+                .then(() -> upstream.onNext(aggregate(UNIVERSITY_ID)))
+                .expectNextMatches(pair -> pair.getT1() == pair.getT2())
+                .verifyComplete();
+
+        assertEquals(1, loads.get());
+        assertEquals(1, count("miss"));
+        assertEquals(1, count("coalesced"));
+
+        StepVerifier.create(cache.get(UNIVERSITY_ID, () -> load(Mono.just(aggregate(UNIVERSITY_ID)))))
+                .expectNextCount(1)
+                .verifyComplete();
+
+        assertEquals(1, loads.get());
+        assertEquals(1, count("hit"));
+    }
+
+    @Test
+    public void evictForcesReload() {
+        StepVerifier.create(cache.get(UNIVERSITY_ID, () -> load(Mono.just(aggregate(UNIVERSITY_ID))))).expectNextCount(1).verifyComplete();
+
+        cache.evict(UNIVERSITY_ID);
+
+        StepVerifier.create(cache.get(UNIVERSITY_ID, () -> load(Mono.just(aggregate(UNIVERSITY_ID))))).expectNextCount(1).verifyComplete();
+
+        assertEquals(2, loads.get());
+        assertEquals(2, count("miss"));
+    }
+
+    @Test
+    public void errorsAreNotCached() {
+        StepVerifier.create(cache.get(UNIVERSITY_ID, () -> load(Mono.error(new RuntimeException("boom"))))).verifyError();
+
+        StepVerifier.create(cache.get(UNIVERSITY_ID, () -> load(Mono.just(aggregate(UNIVERSITY_ID))))).expectNextCount(1).verifyComplete();
+
+        assertEquals(2, loads.get());
+    }
+
+    private Mono<UniversityAggregate> load(Mono<UniversityAggregate> upstream) {
+        loads.incrementAndGet();
+        return upstream;
+    }
+
+    private UniversityAggregate aggregate(int universityId) {
+        return new UniversityAggregate(universityId, "name", "country", null, null);
+    }
+
+    private double count(String result) {
+        return registry.counter("university.composite.aggregate.cache", "result", result).count();
+    }
+}
@@ -0,0 +1,176 @@
+package com.dejanvuk.microservices.core.universitycomposite;
+
+import com.dejanvuk.api.composite.university.UniversityAggregate;
+import com.dejanvuk.api.core.student.Student;
+import com.dejanvuk.api.core.university.University;
+import com.dejanvuk.api.event.Event;
+import com.dejanvuk.microservices.core.universitycomposite.services.UniversityCompositeIntegration;
+import com.dejanvuk.microservices.core.universitycomposite.view.AggregateView;
+import com.dejanvuk.microservices.core.universitycomposite.view.AggregateViewConsumer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+
+import static com.dejanvuk.api.event.Event.Type.CREATE;
+import static com.dejanvuk.api.event.Event.Type.DELETE;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.when;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+
+@AutoConfigureWebTestClient
+@SpringBootTest(webEnvironment=RANDOM_PORT,
+        classes = {UniversityCompositeApplication.class, TestSecurityConfig.class },
+        properties = {"spring.main.allow-bean-definition-overriding=true","eureka.client.enabled=false","spring.cloud.config.enabled=false",
+                "app.aggregate-view.enabled=true", "app.aggregate-view.readMode=view", "app.aggregate-cache.enabled=false",
+                "management.endpoints.web.exposure.include=aggregateview"})
+public class AggregateViewTests {
+
+    private static final int UNIVERSITY_ID_REBUILT = 1;
+    private static final int UNIVERSITY_ID_EVENTS = 2;
+
+    @Autowired
+    private WebTestClient client;
+
+    @Autowired
+    private AggregateViewConsumer.ViewSinks sinks;
+
+    @Autowired
+    private AggregateView view;
+
+    @MockBean
+    private UniversityCompositeIntegration compositeIntegration;
+
+    @BeforeEach
+    public void setUp() {
+        when(compositeIntegration.getUniversities(anyList())).thenReturn(Flux.just(new University(UNIVERSITY_ID_REBUILT, "name", "country", "mock-address")));
+        when(compositeIntegration.getStudentsByUniversityIds(anyList())).thenReturn(Flux.just(
+                new Student(UNIVERSITY_ID_REBUILT, 1, "first", "last", "section", "mock-address")));
+
+        // Reads served by the view never reach the core services
+        when(compositeIntegration.getUniversity(anyInt(), anyInt(), anyInt())).thenReturn(Mono.error(new IllegalStateException("not from the view")));
+        when(compositeIntegration.getStudents(anyInt())).thenReturn(Flux.empty());
+    }
+
+    @Test
+    public void servesFromTheViewAfterRebuild() {
+        client.post().uri("/actuator/aggregateview").contentType(APPLICATION_JSON).bodyValue(Map.of("fromId", 1, "toId", 10))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.universities").isEqualTo(1);
+        assertTrue(view.isServing());
+
+        getAndVerify(UNIVERSITY_ID_REBUILT).jsonPath("$.students.length()").isEqualTo(1);
+
+        sinks.universities().send(MessageBuilder.withPayload(new Event<>(CREATE, UNIVERSITY_ID_EVENTS,
+                new University(UNIVERSITY_ID_EVENTS, "events", "country", null))).build());
+        sinks.students().send(MessageBuilder.withPayload(new Event<>(CREATE, UNIVERSITY_ID_EVENTS,
+                new Student(UNIVERSITY_ID_EVENTS, 1, "first", "last", "section", null))).build());
+        sinks.students().send(MessageBuilder.withPayload(new Event<>(CREATE, UNIVERSITY_ID_EVENTS,
+                new Student(UNIVERSITY_ID_EVENTS, 2, "first", "last", "section", null))).build());
+
+        getAndVerify(UNIVERSITY_ID_EVENTS)
+                .jsonPath("$.name").isEqualTo("events")
+                .jsonPath("$.students.length()").isEqualTo(2);
+
+        sinks.universities().send(MessageBuilder.withPayload(new Event<>(DELETE, UNIVERSITY_ID_EVENTS, null)).build());
+        assertFalse(view.get(UNIVERSITY_ID_EVENTS).isPresent());
+    }
+
+    @Test
+    public void rebuildKeepsNewerEvents() {
+        long rebuildVersion = view.beginRebuild();
+        view.applyStudentEvent(new Event<>(CREATE, 3, new Student(3, 1, "first", "last", "section", null)));
+        view.applyUniversityEvent(new Event<>(CREATE, 3, new University(3, "newer", "country", null)));
+
+        view.load(rebuildVersion, 3, new University(3, "older", "country", null), List.of());
+        view.completeRebuild();
+
+        UniversityAggregate aggregate = view.get(3).orElseThrow();
+        assertEquals("newer", aggregate.getName());
+        assertEquals(1, aggregate.getStudents().size());
+    }
+
+    @Test
+    public void eventDuringRebuildKeepsTheRebuiltStudents() {
+        long rebuildVersion = view.beginRebuild();
+        view.applyStudentEvent(new Event<>(CREATE, 6, new Student(6, 3, "first", "last", "section", null)));
+
+        view.load(rebuildVersion, 6, new University(6, "rebuilt", "country", null), List.of(
+                new Student(6, 1, "first", "last", "section", null),
+                new Student(6, 2, "first", "last", "section", null)));
+        view.completeRebuild();
+
+        UniversityAggregate aggregate = view.get(6).orElseThrow();
+        assertEquals("rebuilt", aggregate.getName());
+        assertEquals(3, aggregate.getStudents().size());
+    }
+
+    @Test
+    public void studentDeleteDuringRebuildWins() {
+        long rebuildVersion = view.beginRebuild();
+        view.applyStudentEvent(new Event<>(DELETE, 7, null));
+        view.applyStudentEvent(new Event<>(CREATE, 7, new Student(7, 2, "first", "last", "section", null)));
+
+        view.load(rebuildVersion, 7, new University(7, "rebuilt", "country", null), List.of(
+                new Student(7, 1, "first", "last", "section", null)));
+        view.completeRebuild();
+
+        UniversityAggregate aggregate = view.get(7).orElseThrow();
+        assertEquals(1, aggregate.getStudents().size());
+        assertEquals(2, aggregate.getStudents().get(0).getStudentId());
+    }
+
+    @Test
+    public void failedStudentLookupFailsTheRebuild() {
+        when(compositeIntegration.getUniversities(anyList())).thenReturn(Flux.just(new University(4, "name", "country", "mock-address")));
+        when(compositeIntegration.getStudentsByUniversityIds(anyList())).thenReturn(Flux.error(new IllegalStateException("student-service down")));
+        boolean ready = view.isReady();
+
+        client.post().uri("/actuator/aggregateview").contentType(APPLICATION_JSON).bodyValue(Map.of("fromId", 4, "toId", 4))
+                .exchange()
+                .expectStatus().is5xxServerError();
+
+        assertEquals(ready, view.isReady());
+        assertFalse(view.get(4).isPresent());
+    }
+
+    @Test
+    public void studentEventsUpdateTheBuiltAggregate() {
+        long rebuildVersion = view.beginRebuild();
+        view.load(rebuildVersion, 5, new University(5, "name", "country", null), List.of());
+        view.completeRebuild();
+        assertEquals(0, view.get(5).orElseThrow().getStudents().size());
+
+        for (int studentId = 3; studentId >= 1; studentId--) {
+            view.applyStudentEvent(new Event<>(CREATE, 5, new Student(5, studentId, "first", "last", "section", null)));
+        }
+        UniversityAggregate aggregate = view.get(5).orElseThrow();
+        assertEquals(3, aggregate.getStudents().size());
+        assertEquals(1, aggregate.getStudents().get(0).getStudentId());
+        assertSame(aggregate, view.get(5).orElseThrow());
+
+        view.applyStudentEvent(new Event<>(DELETE, 5, null));
+        assertEquals(0, view.get(5).orElseThrow().getStudents().size());
+    }
+
+    private WebTestClient.BodyContentSpec getAndVerify(int universityId) {
+        return client.get().uri("/university-composite/" + universityId)
+                .accept(APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody();
+    }
+}
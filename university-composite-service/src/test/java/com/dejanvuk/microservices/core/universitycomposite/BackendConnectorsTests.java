@@ -0,0 +1,76 @@
+package com.dejanvuk.microservices.core.universitycomposite;
+
+import com.dejanvuk.microservices.core.universitycomposite.services.BackendConnectors;
+import com.dejanvuk.microservices.core.universitycomposite.services.HttpClientProperties;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BackendConnectorsTests {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private DisposableServer server;
+    private BackendConnectors connectors;
+
+    @BeforeEach
+    public void setUp() {
+        Metrics.addRegistry(registry);
+
+        server = HttpServer.create().port(0)
+                .route(routes -> routes.get("/ping", (request, response) -> response.sendString(Mono.just("ok").delayElement(Duration.ofMillis(100)))))
+                .bindNow();
+
+        HttpClientProperties.Backend small = new HttpClientProperties.Backend();
+        small.setMaxConnections(2);
+        HttpClientProperties properties = new HttpClientProperties();
+        properties.setBackends(Map.of("small", small));
+
+        connectors = new BackendConnectors(properties);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        connectors.dispose();
+        server.disposeNow();
+        Metrics.removeRegistry(registry);
+    }
+
+    @Test
+    public void poolIsCappedPerBackend() {
+        StepVerifier.create(Flux.range(0, 6).flatMap(i -> get("small"))).expectNextCount(6).verifyComplete();
+        StepVerifier.create(Flux.range(0, 6).flatMap(i -> get("default"))).expectNextCount(6).verifyComplete();
+
+        assertEquals(2, gauge("small", "total").value());
+        assertEquals(6, gauge("default", "total").value());
+        assertEquals(2, gauge("small", "idle").value());
+        assertEquals(0, gauge("small", "active").value());
+        assertEquals(0, gauge("small", "pending").value());
+    }
+
+    private Mono<String> get(String backend) {
+        return WebClient.builder().clientConnector(connectors.connector(backend)).build()
+                .get().uri("http://localhost:" + server.port() + "/ping")
+                .retrieve().bodyToMono(String.class);
+    }
+
+    private Gauge gauge(String backend, String state) {
+        Gauge gauge = registry.find("reactor.netty.connection.provider." + backend + "." + state + ".connections").gauge();
+        assertNotNull(gauge, backend + " " + state);
+        return gauge;
+    }
+}
@@ -0,0 +1,111 @@
+package com.dejanvuk.microservices.core.universitycomposite;
+
+import com.dejanvuk.api.core.student.Student;
+import com.dejanvuk.api.core.university.University;
+import com.dejanvuk.microservices.core.universitycomposite.services.UniversityCompositeIntegration;
+import com.dejanvuk.util.exceptions.NotFoundException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.MACSigner;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+import static org.springframework.http.HttpStatus.NOT_FOUND;
+import static org.springframework.http.HttpStatus.OK;
+import static org.springframework.http.HttpStatus.UNAUTHORIZED;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+
+// Runs through the real SecurityConfig, whose default headers would otherwise mark every response as no-store
+@AutoConfigureWebTestClient
+@SpringBootTest(webEnvironment = RANDOM_PORT, properties = {"spring.main.allow-bean-definition-overriding=true",
+        "eureka.client.enabled=false", "spring.cloud.config.enabled=false",
+        "app.forwarded-principal.enabled=true", "app.forwarded-principal.secret=" + CacheControlTests.SECRET,
+        "spring.security.oauth2.resourceserver.jwt.jwk-set-uri=http://localhost:1/jwks", "app.cache-control.maxAgeSec=5"})
+public class CacheControlTests {
+
+    static final String SECRET = "a-secret-of-at-least-thirty-two-bytes";
+
+    private static final int UNIVERSITY_ID_OK = 1;
+    private static final int UNIVERSITY_ID_NOT_FOUND = 2;
+
+    @Autowired
+    private WebTestClient client;
+
+    @MockBean
+    private UniversityCompositeIntegration compositeIntegration;
+
+    @BeforeEach
+    public void setUp() {
+        when(compositeIntegration.getUniversity(eq(UNIVERSITY_ID_OK), anyInt(), anyInt()))
+                .thenReturn(Mono.just(new University(UNIVERSITY_ID_OK, "name", "country", "mock-address")));
+        when(compositeIntegration.getStudents(UNIVERSITY_ID_OK))
+                .thenReturn(Flux.just(new Student(UNIVERSITY_ID_OK, 1, "author", "subject", "content", "mock address")));
+        when(compositeIntegration.getUniversity(eq(UNIVERSITY_ID_NOT_FOUND), anyInt(), anyInt()))
+                .thenReturn(Mono.error(new NotFoundException("NOT FOUND: " + UNIVERSITY_ID_NOT_FOUND)));
+        when(compositeIntegration.getStudents(UNIVERSITY_ID_NOT_FOUND)).thenReturn(Flux.empty());
+    }
+
+    @Test
+    public void requiresAToken() {
+        client.get()
+                .uri("/university-composite/" + UNIVERSITY_ID_OK)
+                .accept(APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isEqualTo(UNAUTHORIZED);
+    }
+
+    @Test
+    public void aggregateReadsAreCacheable() throws Exception {
+        String token = token();
+        client.get()
+                .uri("/university-composite/" + UNIVERSITY_ID_OK)
+                .accept(APPLICATION_JSON)
+                .headers(headers -> headers.setBearerAuth(token))
+                .exchange()
+                .expectStatus().isEqualTo(OK)
+                .expectHeader().valueEquals(HttpHeaders.CACHE_CONTROL, "max-age=5")
+                .expectHeader().doesNotExist(HttpHeaders.PRAGMA)
+                .expectHeader().doesNotExist(HttpHeaders.EXPIRES);
+    }
+
+    @Test
+    public void errorsKeepTheSecurityDefaults() throws Exception {
+        String token = token();
+        client.get()
+                .uri("/university-composite/" + UNIVERSITY_ID_NOT_FOUND)
+                .accept(APPLICATION_JSON)
+                .headers(headers -> headers.setBearerAuth(token))
+                .exchange()
+                .expectStatus().isEqualTo(NOT_FOUND)
+                .expectHeader().valueEquals(HttpHeaders.CACHE_CONTROL, "no-cache, no-store, max-age=0, must-revalidate");
+    }
+
+    private static String token() throws Exception {
+        JWTClaimsSet claims = new JWTClaimsSet.Builder()
+                .issuer("gateway")
+                .subject("user")
+                .claim("scope", "university:read")
+                .expirationTime(new Date(System.currentTimeMillis() + 60000))
+                .build();
+        SignedJWT jwt = new SignedJWT(new JWSHeader(JWSAlgorithm.HS256), claims);
+        jwt.sign(new MACSigner(SECRET.getBytes(StandardCharsets.UTF_8)));
+        return jwt.serialize();
+    }
+}
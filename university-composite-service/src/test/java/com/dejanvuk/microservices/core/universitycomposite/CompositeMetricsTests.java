@@ -0,0 +1,77 @@
+package com.dejanvuk.microservices.core.universitycomposite;
+
+import com.dejanvuk.microservices.core.universitycomposite.services.CompositeMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CompositeMetricsTests {
+
+    private MeterRegistry registry;
+    private CompositeMetrics metrics;
+
+    @BeforeEach
+    public void setUp() {
+        registry = new SimpleMeterRegistry();
+        metrics = new CompositeMetrics(registry, new double[] {0.5, 0.95}, false);
+    }
+
+    @Test
+    public void tagsLegOutcomes() {
+        StepVerifier.create(metrics.timeLeg(CompositeMetrics.UNIVERSITY, CompositeMetrics.countAttempt(Mono.just(1)))).expectNext(1).verifyComplete();
+
+        StepVerifier.create(metrics.timeLeg(CompositeMetrics.UNIVERSITY, CompositeMetrics.countAttempt(Mono.error(new TimeoutException()))))
+                .verifyError(TimeoutException.class);
+
+        Mono<Integer> withFallback = Mono.<Integer>error(new IllegalStateException())
+                .onErrorResume(ex -> CompositeMetrics.markFallback(Mono.just(2)));
+        StepVerifier.create(metrics.timeLeg(CompositeMetrics.STUDENTS, withFallback)).expectNext(2).verifyComplete();
+
+        Mono<Integer> emptyFallback = Mono.<Integer>error(new IllegalStateException())
+                .onErrorResume(ex -> CompositeMetrics.markFallback(Mono.<Integer>empty()).switchIfEmpty(Mono.error(ex)));
+        StepVerifier.create(metrics.timeLeg(CompositeMetrics.STUDENTS, emptyFallback)).verifyError(IllegalStateException.class);
+
+        assertEquals(1, count(CompositeMetrics.UNIVERSITY, "success"));
+        assertEquals(1, count(CompositeMetrics.UNIVERSITY, "timeout"));
+        assertEquals(1, count(CompositeMetrics.STUDENTS, "fallback"));
+        assertEquals(1, count(CompositeMetrics.STUDENTS, "error"));
+    }
+
+    @Test
+    public void countsResubscriptionsAsRetries() {
+        AtomicInteger calls = new AtomicInteger();
+        Mono<Integer> flaky = Mono.defer(() -> calls.incrementAndGet() < 3 ? Mono.error(new IllegalStateException()) : Mono.just(3));
+
+        StepVerifier.create(metrics.timeLeg(CompositeMetrics.UNIVERSITY, CompositeMetrics.countAttempt(flaky).retry(2)))
+                .expectNext(3)
+                .verifyComplete();
+
+        assertEquals(1, count(CompositeMetrics.UNIVERSITY, "retry"));
+    }
+
+    @Test
+    public void recordsAggregateAndStudentCount() {
+        assertEquals("aggregate", metrics.timeAggregate(() -> "aggregate"));
+        assertThrows(IllegalStateException.class, () -> metrics.timeAggregate(() -> {
+            throw new IllegalStateException();
+        }));
+        metrics.recordStudentCount(3);
+        metrics.recordStudentCount(5);
+
+        assertEquals(1, count(CompositeMetrics.AGGREGATE, "success"));
+        assertEquals(1, count(CompositeMetrics.AGGREGATE, "error"));
+        assertEquals(8, registry.get("university.composite.students").summary().totalAmount());
+    }
+
+    private long count(String leg, String outcome) {
+        return registry.get("university.composite.leg").tag("leg", leg).tag("outcome", outcome).timer().count();
+    }
+}
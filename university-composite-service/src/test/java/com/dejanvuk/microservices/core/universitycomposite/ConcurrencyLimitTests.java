@@ -0,0 +1,65 @@
+package com.dejanvuk.microservices.core.universitycomposite;
+
+import com.dejanvuk.microservices.core.universitycomposite.limiter.AimdLimiter;
+import com.dejanvuk.util.exceptions.ServiceUnavailableException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoProcessor;
+import reactor.test.StepVerifier;
+
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConcurrencyLimitTests {
+
+    private MeterRegistry registry;
+
+    @BeforeEach
+    public void setUp() {
+        registry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    public void rejectsAboveTheLimit() {
+        AimdLimiter limiter = new AimdLimiter("university", registry, 2, 1, 10, 0.5, 1000, 0);
+        MonoProcessor<String> pending = MonoProcessor.create();
+
+        limiter.limit(pending).subscribe();
+        limiter.limit(pending).subscribe();
+        assertEquals(2, limiter.getInFlight());
+
+        StepVerifier.create(limiter.limit(Mono.just("shed"))).verifyError(ServiceUnavailableException.class);
+        assertEquals(1, registry.counter("university.composite.concurrency.rejected", "backend", "university").count());
+
+        pending.onNext("done");
+        assertEquals(0, limiter.getInFlight());
+        StepVerifier.create(limiter.limit(Mono.just("ok"))).expectNext("ok").verifyComplete();
+    }
+
+    @Test
+    public void backsOffOnTimeoutsAndRecoversOnSuccess() {
+        AimdLimiter limiter = new AimdLimiter("student", registry, 8, 2, 10, 0.5, 1000, 0);
+
+        StepVerifier.create(limiter.limit(Mono.error(new TimeoutException()))).verifyError(TimeoutException.class);
+        assertEquals(4, limiter.getLimit());
+        assertEquals(4, registry.get("university.composite.concurrency.limit").tag("backend", "student").gauge().value());
+
+        StepVerifier.create(limiter.limit(Mono.error(new TimeoutException()))).verifyError(TimeoutException.class);
+        StepVerifier.create(limiter.limit(Mono.error(new TimeoutException()))).verifyError(TimeoutException.class);
+        assertEquals(2, limiter.getLimit());
+
+        // Growth needs the limit to be in use, so keep one request in flight next to the measured ones
+        MonoProcessor<String> pending = MonoProcessor.create();
+        limiter.limit(pending).subscribe();
+        for (int i = 0; i < 20; i++) {
+            StepVerifier.create(limiter.limit(Mono.just("ok"))).expectNext("ok").verifyComplete();
+        }
+        pending.onNext("done");
+
+        assertTrue(limiter.getLimit() > 2, "limit is " + limiter.getLimit());
+    }
+}
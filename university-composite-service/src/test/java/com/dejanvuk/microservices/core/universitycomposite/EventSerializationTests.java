@@ -0,0 +1,102 @@
+package com.dejanvuk.microservices.core.universitycomposite;
+
+import com.dejanvuk.api.core.student.Student;
+import com.dejanvuk.api.core.university.University;
+import com.dejanvuk.api.event.Event;
+import com.dejanvuk.util.messaging.SmileMessageConverter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.converter.SmartMessageConverter;
+
+import static com.dejanvuk.api.event.Event.Type.CREATE;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EventSerializationTests {
+
+    private static final Logger LOG = LoggerFactory.getLogger(EventSerializationTests.class);
+
+    private final SmartMessageConverter smile = new SmileMessageConverter();
+    private final SmartMessageConverter json = jsonConverter();
+
+    @Test
+    public void smileRoundTrip() throws Exception {
+        Event<Integer, Student> event = studentEvent();
+
+        Message<?> message = smile.toMessage(event, null);
+        assertEquals(SmileMessageConverter.APPLICATION_SMILE.toString(), message.getHeaders().get("contentType").toString());
+
+        Event<Integer, Student> decoded = (Event<Integer, Student>) smile.fromMessage(message, Event.class, studentEventParameter());
+
+        assertEquals(CREATE, decoded.getEventType());
+        assertEquals(event.getKey(), decoded.getKey());
+        assertEquals(event.getCreationDate(), decoded.getCreationDate());
+        assertEquals(event.getData().getStudentId(), decoded.getData().getStudentId());
+        assertEquals(event.getData().getFirstName(), decoded.getData().getFirstName());
+    }
+
+    @Test
+    public void smileIsSmallerThanJson() {
+        assertTrue(size(smile, studentEvent()) < size(json, studentEvent()));
+        assertTrue(size(smile, universityEvent()) < size(json, universityEvent()));
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    public void benchmark() throws Exception {
+        MethodParameter parameter = studentEventParameter();
+        int iterations = Integer.getInteger("benchmark.iterations", 200_000);
+
+        for (SmartMessageConverter converter : new SmartMessageConverter[] {json, smile, json, smile}) {
+            Event<Integer, Student> event = studentEvent();
+
+            long start = System.nanoTime();
+            Message<?> message = null;
+            for (int i = 0; i < iterations; i++) {
+                message = converter.toMessage(event, null);
+            }
+            long encodeNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                converter.fromMessage(message, Event.class, parameter);
+            }
+            long decodeNanos = System.nanoTime() - start;
+
+            LOG.warn("{}: {} bytes, encode {} ops/s, decode {} ops/s", converter.getClass().getSimpleName(), ((byte[]) message.getPayload()).length,
+                    iterations * 1_000_000_000L / encodeNanos, iterations * 1_000_000_000L / decodeNanos);
+        }
+    }
+
+    @SuppressWarnings("unused")
+    private void consume(Event<Integer, Student> event) {
+    }
+
+    private MethodParameter studentEventParameter() throws NoSuchMethodException {
+        return new MethodParameter(getClass().getDeclaredMethod("consume", Event.class), 0);
+    }
+
+    private int size(SmartMessageConverter converter, Event<?, ?> event) {
+        return ((byte[]) converter.toMessage(event, null).getPayload()).length;
+    }
+
+    private Event<Integer, Student> studentEvent() {
+        return new Event(CREATE, 1, new Student(1, 2, "firstName", "lastName", "section", null));
+    }
+
+    private Event<Integer, University> universityEvent() {
+        return new Event(CREATE, 1, new University(1, "name", "country", null));
+    }
+
+    private static SmartMessageConverter jsonConverter() {
+        MappingJackson2MessageConverter converter = new MappingJackson2MessageConverter();
+        converter.setObjectMapper(Jackson2ObjectMapperBuilder.json().featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS).build());
+        return converter;
+    }
+}
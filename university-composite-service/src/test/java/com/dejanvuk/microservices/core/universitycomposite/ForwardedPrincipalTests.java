@@ -0,0 +1,49 @@
+package com.dejanvuk.microservices.core.universitycomposite;
+
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.MACSigner;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtException;
+import reactor.test.StepVerifier;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ForwardedPrincipalTests {
+
+    private static final String SECRET = "a-secret-of-at-least-thirty-two-bytes";
+
+    private final ForwardedPrincipalDecoder decoder = new ForwardedPrincipalDecoder(SECRET, "gateway", "http://localhost:1/jwks");
+
+    @Test
+    public void acceptsTokensSignedByTheGateway() throws Exception {
+        Jwt jwt = decoder.decode(sign(SECRET, "gateway")).block();
+
+        assertEquals("user", jwt.getSubject());
+        assertEquals("university:read", jwt.getClaimAsString("scope"));
+    }
+
+    @Test
+    public void rejectsOtherSecretsAndIssuers() throws Exception {
+        StepVerifier.create(decoder.decode(sign("another-secret-of-at-least-thirty-two-bytes", "gateway"))).verifyError(JwtException.class);
+        StepVerifier.create(decoder.decode(sign(SECRET, "someone-else"))).verifyError(JwtException.class);
+    }
+
+    private static String sign(String secret, String issuer) throws Exception {
+        JWTClaimsSet claims = new JWTClaimsSet.Builder()
+                .issuer(issuer)
+                .subject("user")
+                .claim("scope", "university:read")
+                .expirationTime(new Date(System.currentTimeMillis() + 60000))
+                .build();
+        SignedJWT jwt = new SignedJWT(new JWSHeader(JWSAlgorithm.HS256), claims);
+        jwt.sign(new MACSigner(secret.getBytes(StandardCharsets.UTF_8)));
+        return jwt.serialize();
+    }
+}
@@ -0,0 +1,159 @@
+package com.dejanvuk.microservices.core.universitycomposite;
+
+import com.dejanvuk.microservices.core.universitycomposite.limiter.ConcurrencyLimiters;
+import com.dejanvuk.microservices.core.universitycomposite.loadbalancer.LatencyAwareLoadBalancer;
+import com.dejanvuk.microservices.core.universitycomposite.services.BackendConnectors;
+import com.dejanvuk.microservices.core.universitycomposite.services.HedgingPolicy;
+import com.dejanvuk.microservices.core.universitycomposite.services.HttpClientProperties;
+import com.dejanvuk.microservices.core.universitycomposite.services.PublishConfirmations;
+import com.dejanvuk.microservices.core.universitycomposite.services.UniversityCompositeIntegration;
+import com.dejanvuk.util.tracing.SignalTracer;
+import com.dejanvuk.util.tracing.SignalTracingProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class HedgingTests {
+
+    private static final int UNIVERSITY_ID = 1;
+    private static final Duration SLOW = Duration.ofSeconds(2);
+
+    private MeterRegistry registry;
+    private DisposableServer slowInstance;
+    private DisposableServer fastInstance;
+    private DiscoveryClient discoveryClient;
+
+    @BeforeEach
+    public void setUp() {
+        registry = new SimpleMeterRegistry();
+        slowInstance = startInstance("slow", SLOW);
+        fastInstance = startInstance("fast", Duration.ZERO);
+
+        discoveryClient = mock(DiscoveryClient.class);
+        primaryGoesTo(slowInstance);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        slowInstance.disposeNow();
+        fastInstance.disposeNow();
+    }
+
+    @Test
+    public void hedgeToAnotherInstanceWins() {
+        UniversityCompositeIntegration integration = integration(new HedgingPolicy(registry, true, "p2c", 50, 0.95, 10, 500, 100, 60, 10, 10));
+
+        StepVerifier.create(integration.getUniversity(UNIVERSITY_ID, 0, 0))
+                .expectNextMatches(university -> "fast".equals(university.getServiceAddress()))
+                .expectComplete()
+                .verify(SLOW);
+
+        assertEquals(1, count("sent"));
+        assertEquals(1, count("won"));
+
+        // The primary was cancelled, only the hedge's answer is a latency sample
+        assertEquals(1, registry.timer("university.composite.hedge.latency").count());
+    }
+
+    @Test
+    public void fastErrorDoesNotWin() {
+        DisposableServer failingInstance = HttpServer.create().port(0)
+                .route(routes -> routes.get("/university/{universityId}", (request, response) -> response.status(500).send()))
+                .bindNow();
+        try {
+            when(discoveryClient.getInstances("university")).thenReturn(
+                    List.of(instance(failingInstance), instance(fastInstance)), List.of(instance(failingInstance)), List.of(instance(failingInstance), instance(fastInstance)));
+            UniversityCompositeIntegration integration = integration(new HedgingPolicy(registry, true, "p2c", 50, 0.95, 10, 500, 100, 60, 10, 10));
+
+            StepVerifier.create(integration.getUniversity(UNIVERSITY_ID, 0, 0))
+                    .expectNextMatches(university -> "fast".equals(university.getServiceAddress()))
+                    .expectComplete()
+                    .verify(SLOW);
+
+            assertEquals(1, count("won"));
+        } finally {
+            failingInstance.disposeNow();
+        }
+    }
+
+    @Test
+    public void exhaustedBudgetWaitsForThePrimary() {
+        UniversityCompositeIntegration integration = integration(new HedgingPolicy(registry, true, "p2c", 50, 0.95, 10, 500, 100, 60, 0, 0));
+
+        StepVerifier.create(integration.getUniversity(UNIVERSITY_ID, 0, 0))
+                .expectNextMatches(university -> "slow".equals(university.getServiceAddress()))
+                .verifyComplete();
+
+        assertEquals(0, count("sent"));
+        assertEquals(1, count("budget_exhausted"));
+    }
+
+    @Test
+    public void budgetRefillsWithPrimaryRequests() {
+        HedgingPolicy policy = new HedgingPolicy(registry, true, "p2c", 50, 0.95, 10, 500, 100, 60, 10, 1);
+
+        assertTrue(policy.tryAcquire());
+        assertFalse(policy.tryAcquire());
+
+        for (int i = 0; i < 10; i++) policy.onRequest();
+
+        assertTrue(policy.tryAcquire());
+        assertFalse(policy.tryAcquire());
+    }
+
+    @Test
+    public void roundRobinTurnsHedgingOff() {
+        HedgingPolicy policy = new HedgingPolicy(registry, true, "round-robin", 50, 0.95, 10, 500, 100, 60, 10, 10);
+
+        assertFalse(policy.isEnabled());
+    }
+
+    private UniversityCompositeIntegration integration(HedgingPolicy policy) {
+        return new UniversityCompositeIntegration(mock(UniversityCompositeIntegration.MessageSources.class), new PublishConfirmations(false, 10000),
+                WebClient.builder().filter(new LatencyAwareLoadBalancer(discoveryClient, 10, 10000, 1000)), discoveryClient, policy, new BackendConnectors(new HttpClientProperties()),
+                new ConcurrencyLimiters(registry, false, 20, 4, 200, 0.9, 1000, 100), new SignalTracer(registry, new SignalTracingProperties()),
+                new ObjectMapper(), 5);
+    }
+
+    private DisposableServer startInstance(String address, Duration delay) {
+        String body = "{\"universityId\":" + UNIVERSITY_ID + ",\"name\":\"name\",\"country\":\"country\",\"serviceAddress\":\"" + address + "\"}";
+
+        return HttpServer.create().port(0)
+                .route(routes -> routes.get("/university/{universityId}", (request, response) ->
+                        response.header("Content-Type", "application/json").sendString(Mono.just(body).delayElement(delay))))
+                .bindNow();
+    }
+
+    // The hedging check and the hedge see both instances, while the load balancer only has the given one to pick
+    // for the primary, so the test controls where the primary goes
+    private void primaryGoesTo(DisposableServer primary) {
+        when(discoveryClient.getInstances("university")).thenReturn(
+                List.of(instance(slowInstance), instance(fastInstance)), List.of(instance(primary)), List.of(instance(slowInstance), instance(fastInstance)));
+    }
+
+    private ServiceInstance instance(DisposableServer server) {
+        return new DefaultServiceInstance("university-" + server.port(), "university", "localhost", server.port(), false);
+    }
+
+    private double count(String result) {
+        return registry.counter("university.composite.hedge", "result", result).count();
+    }
+}
@@ -0,0 +1,132 @@
+package com.dejanvuk.microservices.core.universitycomposite;
+
+import com.dejanvuk.microservices.core.universitycomposite.loadbalancer.LatencyAwareLoadBalancer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.Collections.emptyList;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.http.HttpMethod.GET;
+import static org.springframework.http.HttpStatus.OK;
+import static org.springframework.http.HttpStatus.SERVICE_UNAVAILABLE;
+
+public class LoadBalancerTests {
+
+    private static final int SLOW_PORT = 7001;
+    private static final int FAST_PORT = 7002;
+
+    private DiscoveryClient discoveryClient;
+    private LatencyAwareLoadBalancer loadBalancer;
+
+    private final AtomicInteger slowRequests = new AtomicInteger();
+    private final AtomicInteger fastRequests = new AtomicInteger();
+
+    @BeforeEach
+    public void setUp() {
+        discoveryClient = mock(DiscoveryClient.class);
+        when(discoveryClient.getServices()).thenReturn(List.of("university"));
+        when(discoveryClient.getInstances("university")).thenReturn(List.of(
+                new DefaultServiceInstance("slow", "university", "localhost", SLOW_PORT, false),
+                new DefaultServiceInstance("fast", "university", "localhost", FAST_PORT, false)));
+
+        loadBalancer = new LatencyAwareLoadBalancer(discoveryClient, 10, 10000, 1000);
+    }
+
+    @Test
+    public void prefersTheFasterInstance() {
+        ExchangeFunction exchange = request -> {
+            Mono<ClientResponse> response = Mono.just(ClientResponse.create(OK).build());
+            if (request.url().getPort() == SLOW_PORT) {
+                slowRequests.incrementAndGet();
+                return response.delayElement(Duration.ofMillis(50));
+            }
+            fastRequests.incrementAndGet();
+            return response;
+        };
+
+        for (int i = 0; i < 50; i++) {
+            StepVerifier.create(loadBalancer.filter(request("http://university/university/1"), exchange)
+                    .flatMap(response -> response.releaseBody().thenReturn(response)))
+                    .expectNextMatches(response -> response.statusCode() == OK)
+                    .verifyComplete();
+        }
+
+        assertTrue(slowRequests.get() <= 1, "slow instance got " + slowRequests.get() + " requests");
+        assertEquals(50, slowRequests.get() + fastRequests.get());
+
+        List<Map<String, Object>> stats = loadBalancer.getStats().get("university");
+        assertEquals(2, stats.size());
+        assertEquals((long) fastRequests.get(), stats.get(1).get("requests"));
+    }
+
+    @Test
+    public void rewritesServiceIdToInstance() {
+        ExchangeFunction exchange = request -> {
+            assertEquals("localhost", request.url().getHost());
+            assertEquals("/university/1", request.url().getPath());
+            assertEquals("delay=0", request.url().getQuery());
+            return Mono.just(ClientResponse.create(OK).build());
+        };
+
+        StepVerifier.create(loadBalancer.filter(request("http://university/university/1?delay=0"), exchange))
+                .expectNextMatches(response -> response.statusCode() == OK)
+                .verifyComplete();
+    }
+
+    @Test
+    public void inFlightUntilTheBodyIsRead() {
+        when(discoveryClient.getInstances("university")).thenReturn(List.of(new DefaultServiceInstance("fast", "university", "localhost", FAST_PORT, false)));
+        ExchangeFunction exchange = request -> Mono.just(ClientResponse.create(OK).body("{}").build());
+
+        ClientResponse response = loadBalancer.filter(request("http://university/university/1"), exchange).block();
+        assertEquals(1, loadBalancer.getStats().get("university").get(0).get("inFlight"));
+
+        response.bodyToMono(String.class).block();
+        assertEquals(0, loadBalancer.getStats().get("university").get(0).get("inFlight"));
+    }
+
+    @Test
+    public void forgetsInstancesThatLeft() {
+        ExchangeFunction exchange = request -> Mono.just(ClientResponse.create(OK).build());
+        DefaultServiceInstance fast = new DefaultServiceInstance("fast", "university", "localhost", FAST_PORT, false);
+
+        when(discoveryClient.getInstances("university")).thenReturn(List.of(fast));
+        loadBalancer.filter(request("http://university/university/1"), exchange).flatMap(ClientResponse::releaseBody).block();
+        assertEquals(1L, loadBalancer.getStats().get("university").get(0).get("requests"));
+
+        when(discoveryClient.getInstances("university")).thenReturn(List.of(new DefaultServiceInstance("slow", "university", "localhost", SLOW_PORT, false)));
+        loadBalancer.filter(request("http://university/university/1"), exchange).flatMap(ClientResponse::releaseBody).block();
+
+        // Back under the same address it starts from scratch
+        when(discoveryClient.getInstances("university")).thenReturn(List.of(fast));
+        assertEquals(0L, loadBalancer.getStats().get("university").get(0).get("requests"));
+    }
+
+    @Test
+    public void serviceUnavailableWithoutInstances() {
+        when(discoveryClient.getInstances("student")).thenReturn(emptyList());
+
+        StepVerifier.create(loadBalancer.filter(request("http://student/student?universityId=1"), request -> Mono.error(new IllegalStateException())))
+                .expectNextMatches(response -> response.statusCode() == SERVICE_UNAVAILABLE)
+                .verifyComplete();
+    }
+
+    private ClientRequest request(String url) {
+        return ClientRequest.create(GET, URI.create(url)).build();
+    }
+}
@@ -18,12 +18,16 @@ import com.dejanvuk.api.composite.university.StudentSummary;
 import com.dejanvuk.api.event.Event;
 import com.dejanvuk.microservices.core.universitycomposite.services.UniversityCompositeIntegration;
 
+import reactor.core.publisher.Flux;
+
 import java.util.concurrent.BlockingQueue;
 
+import static java.util.Arrays.asList;
 import static java.util.Collections.singletonList;
 import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
 import static org.springframework.cloud.stream.test.matcher.MessageQueueMatcher.receivesPayloadThat;
 import static org.springframework.http.HttpStatus.OK;
+import static org.springframework.http.MediaType.APPLICATION_STREAM_JSON;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -116,6 +120,29 @@ public class MessagingTests {
         assertThat(queueStudents, receivesPayloadThat(sameEventExceptCreatedAt(expectedStudentEvent)));
     }
 
+    @Test
+    public void bulkCreateCompositeUniversities() {
+
+        Flux<UniversityAggregate> body = Flux.just(
+                new UniversityAggregate(1, "name", "country", asList(new StudentSummary(1, "a", "s", "c"), new StudentSummary(2, "a", "s", "c")), null),
+                new UniversityAggregate(0, "invalid", "country", null, null),
+                new UniversityAggregate(2, "name", "country", singletonList(new StudentSummary(1, "a", "s", "c")), null));
+
+        client.post()
+                .uri("/university-composite/bulk")
+                .contentType(APPLICATION_STREAM_JSON)
+                .body(body, UniversityAggregate.class)
+                .exchange()
+                .expectStatus().isEqualTo(OK)
+                .expectBody()
+                .jsonPath("$.universities").isEqualTo(2)
+                .jsonPath("$.students").isEqualTo(3)
+                .jsonPath("$.failed").isEqualTo(1);
+
+        assertEquals(2, queueUniversities.size());
+        assertEquals(3, queueStudents.size());
+    }
+
     private BlockingQueue<Message<?>> getQueue(MessageChannel messageChannel) {
         return collector.forChannel(messageChannel);
     }
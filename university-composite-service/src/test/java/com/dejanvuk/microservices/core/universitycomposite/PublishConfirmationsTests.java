@@ -0,0 +1,59 @@
+package com.dejanvuk.microservices.core.universitycomposite;
+
+import com.dejanvuk.microservices.core.universitycomposite.services.PublishConfirmations;
+import org.junit.jupiter.api.Test;
+import org.springframework.integration.channel.QueueChannel;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageDeliveryException;
+import org.springframework.messaging.support.ErrorMessage;
+import org.springframework.messaging.support.MessageBuilder;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PublishConfirmationsTests {
+
+    private final PublishConfirmations confirmations = new PublishConfirmations(true, 200);
+
+    private final QueueChannel output = new QueueChannel();
+
+    @Test
+    public void completesOnceConfirmed() {
+        Mono<Void> send = confirmations.send(output, "event").cache();
+        send.subscribe();
+
+        Message<?> published = output.receive(1000);
+        assertNotNull(published);
+
+        // Rabbit passes the published message as the payload of the confirm
+        confirmations.confirmed(MessageBuilder.withPayload(published).setHeader("amqp_publishConfirm", true).build());
+
+        StepVerifier.create(send).verifyComplete();
+    }
+
+    @Test
+    public void failsOnANack() {
+        Mono<Void> send = confirmations.send(output, "event").cache();
+        send.subscribe();
+
+        Message<?> published = output.receive(1000);
+        confirmations.universityFailed(new ErrorMessage(new MessageDeliveryException(published, "nacked")));
+
+        StepVerifier.create(send).expectError(MessageDeliveryException.class).verify(Duration.ofSeconds(1));
+    }
+
+    @Test
+    public void failsWithoutAConfirm() {
+        StepVerifier.create(confirmations.send(output, "event")).expectError(TimeoutException.class).verify(Duration.ofSeconds(1));
+    }
+
+    @Test
+    public void sendsWithoutWaitingWhenDisabled() {
+        StepVerifier.create(new PublishConfirmations(false, 200).send(output, "event")).verifyComplete();
+        assertNotNull(output.receive(0));
+    }
+}
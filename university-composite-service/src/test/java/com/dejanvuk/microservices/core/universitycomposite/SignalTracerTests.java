@@ -0,0 +1,59 @@
+package com.dejanvuk.microservices.core.universitycomposite;
+
+import com.dejanvuk.util.tracing.SignalTracer;
+import com.dejanvuk.util.tracing.SignalTracingProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SignalTracerTests {
+
+    private MeterRegistry registry;
+
+    @BeforeEach
+    public void setUp() {
+        registry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    public void timesEveryOutcome() {
+        SignalTracer tracer = new SignalTracer(registry, new SignalTracingProperties());
+
+        StepVerifier.create(tracer.trace("university-get", Mono.just(1))).expectNext(1).verifyComplete();
+        StepVerifier.create(tracer.trace("student-get", Flux.range(1, 3))).expectNextCount(3).verifyComplete();
+        StepVerifier.create(tracer.trace("university-get", Mono.error(new IllegalStateException()))).verifyError(IllegalStateException.class);
+        StepVerifier.create(tracer.trace("student-get", Flux.never())).thenCancel().verify();
+
+        assertEquals(1, timerCount("university-get", "success"));
+        assertEquals(1, timerCount("university-get", "error"));
+        assertEquals(1, timerCount("student-get", "success"));
+        assertEquals(1, timerCount("student-get", "cancelled"));
+    }
+
+    @Test
+    public void sampledPipelinesPassSignalsThrough() {
+        SignalTracingProperties properties = new SignalTracingProperties();
+        SignalTracingProperties.Pipeline pipeline = new SignalTracingProperties.Pipeline();
+        pipeline.setSampleRate(1.0);
+        properties.setPipelines(Map.of("student-get", pipeline));
+        SignalTracer tracer = new SignalTracer(registry, properties);
+
+        StepVerifier.create(tracer.trace("student-get", Flux.range(1, 5))).expectNext(1, 2, 3, 4, 5).verifyComplete();
+        StepVerifier.create(tracer.trace("student-get", Flux.error(new IllegalStateException()))).verifyError(IllegalStateException.class);
+
+        assertEquals(1, timerCount("student-get", "success"));
+        assertEquals(1, timerCount("student-get", "error"));
+    }
+
+    private long timerCount(String pipeline, String outcome) {
+        return registry.get("reactive.pipeline").tag("pipeline", pipeline).tag("outcome", outcome).timer().count();
+    }
+}
@@ -9,6 +9,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.test.web.reactive.server.WebTestClient;
 import reactor.core.publisher.Flux;
@@ -18,15 +19,24 @@ import com.dejanvuk.api.composite.university.StudentSummary;
 import com.dejanvuk.util.exceptions.InvalidPayloadException;
 import com.dejanvuk.util.exceptions.NotFoundException;
 
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeoutException;
+
+import static java.util.Arrays.asList;
 import static java.util.Collections.singletonList;
 import static org.mockito.Mockito.when;
 import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
 import static org.springframework.http.HttpStatus.UNPROCESSABLE_ENTITY;
 import static org.springframework.http.HttpStatus.OK;
 import static org.springframework.http.HttpStatus.NOT_FOUND;
+import static org.springframework.http.HttpStatus.SERVICE_UNAVAILABLE;
 import static org.springframework.http.MediaType.APPLICATION_JSON;
 
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.eq;
 
 import static reactor.core.publisher.Mono.just;
@@ -34,12 +44,15 @@ import static reactor.core.publisher.Mono.just;
 @AutoConfigureWebTestClient
 @SpringBootTest(webEnvironment=RANDOM_PORT,
         classes = {UniversityCompositeApplication.class, TestSecurityConfig.class },
-        properties = {"spring.main.allow-bean-definition-overriding=true","eureka.client.enabled=false","spring.cloud.config.enabled=false"})
+        properties = {"spring.main.allow-bean-definition-overriding=true","app.batch.chunkSize=3","eureka.client.enabled=false","spring.cloud.config.enabled=false"})
 public class UniversityCompositeApplicationTests {
 
     private static final int UNIVERSITY_ID_OK = 1;
     private static final int UNIVERSITY_ID_NOT_FOUND = 2;
     private static final int UNIVERSITY_ID_INVALID = 3;
+    private static final int UNIVERSITY_ID_STALE = 4;
+    private static final int UNIVERSITY_ID_UNAVAILABLE = 5;
+    private static final int UNIVERSITY_ID_STUDENTS_UNAVAILABLE = 6;
 
     @Autowired
     private WebTestClient client;
@@ -50,15 +63,48 @@ public class UniversityCompositeApplicationTests {
     @BeforeEach
     public void setUp() {
 
+        when(compositeIntegration.createUniversity(any())).thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+
+        when(compositeIntegration.deleteUniversity(anyInt())).thenReturn(Mono.empty());
+
+        when(compositeIntegration.createStudent(any())).thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+
+        when(compositeIntegration.deleteStudents(anyInt())).thenReturn(Mono.empty());
+
         when(compositeIntegration.getUniversity(eq(UNIVERSITY_ID_OK), anyInt(), anyInt())).
                 thenReturn(Mono.just(new University(UNIVERSITY_ID_OK, "name", "country", "mock-address")));
 
         when(compositeIntegration.getStudents(UNIVERSITY_ID_OK)).
                 thenReturn(Flux.fromIterable(singletonList(new Student(UNIVERSITY_ID_OK, 1, "author", "subject", "content", "mock address"))));
 
+        when(compositeIntegration.getUniversities(anyList())).
+                thenReturn(Flux.just(new University(UNIVERSITY_ID_OK, "name", "country", "mock-address")));
+
+        when(compositeIntegration.getStudentsByUniversityIds(anyList())).
+                thenReturn(Flux.just(
+                        new Student(UNIVERSITY_ID_OK, 1, "author", "subject", "content", "mock address"),
+                        new Student(UNIVERSITY_ID_OK, 2, "author", "subject", "content", "mock address")));
+
         when(compositeIntegration.getUniversity(eq(UNIVERSITY_ID_NOT_FOUND), anyInt(), anyInt())).thenThrow(new NotFoundException("NOT FOUND: " + UNIVERSITY_ID_NOT_FOUND));
 
         when(compositeIntegration.getUniversity(eq(UNIVERSITY_ID_INVALID), anyInt(), anyInt())).thenThrow(new InvalidPayloadException("INVALID: " + UNIVERSITY_ID_INVALID));
+
+        when(compositeIntegration.getUniversity(eq(UNIVERSITY_ID_STALE), anyInt(), anyInt())).thenReturn(
+                Mono.just(new University(UNIVERSITY_ID_STALE, "name", "country", "mock-address")),
+                Mono.error(new TimeoutException()));
+
+        when(compositeIntegration.getStudents(UNIVERSITY_ID_STALE)).thenReturn(
+                Flux.just(new Student(UNIVERSITY_ID_STALE, 1, "author", "subject", "content", "mock address")),
+                Flux.error(new TimeoutException()));
+
+        when(compositeIntegration.getUniversity(eq(UNIVERSITY_ID_UNAVAILABLE), anyInt(), anyInt())).thenReturn(Mono.error(new TimeoutException()));
+
+        when(compositeIntegration.getStudents(UNIVERSITY_ID_UNAVAILABLE)).thenReturn(Flux.empty());
+
+        when(compositeIntegration.getUniversity(eq(UNIVERSITY_ID_STUDENTS_UNAVAILABLE), anyInt(), anyInt())).
+                thenReturn(Mono.just(new University(UNIVERSITY_ID_STUDENTS_UNAVAILABLE, "name", "country", "mock-address")));
+
+        when(compositeIntegration.getStudents(UNIVERSITY_ID_STUDENTS_UNAVAILABLE)).thenReturn(Flux.error(new TimeoutException()));
     }
         @Test
     public void contextLoads() {
@@ -115,7 +161,92 @@ public class UniversityCompositeApplicationTests {
                 .jsonPath("$.message").isEqualTo("INVALID: " + UNIVERSITY_ID_INVALID);
     }
 
-    private WebTestClient.BodyContentSpec getAndVerifyUniversity(int universityId, HttpStatus expectedStatus) {
+    @Test
+    public void getUniversityServesLastKnownGoodWhenUnavailable() {
+
+        // A delay bypasses the aggregate cache, so both requests reach the integration
+        getAndVerifyUniversity(UNIVERSITY_ID_STALE + "?delay=1", OK)
+                .jsonPath("$.name").isEqualTo("name");
+
+        client.get()
+                .uri("/university-composite/" + UNIVERSITY_ID_STALE + "?delay=1")
+                .accept(APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isEqualTo(OK)
+                .expectHeader().valueEquals(HttpHeaders.WARNING, "110 - \"Response is Stale\"")
+                .expectHeader().exists(HttpHeaders.AGE)
+                .expectBody()
+                .jsonPath("$.universityId").isEqualTo(UNIVERSITY_ID_STALE)
+                .jsonPath("$.name").isEqualTo("name")
+                .jsonPath("$.students.length()").isEqualTo(1);
+    }
+
+    @Test
+    public void getUniversityUnavailableWithoutLastKnownGood() {
+
+        getAndVerifyUniversity(UNIVERSITY_ID_UNAVAILABLE, SERVICE_UNAVAILABLE)
+                .jsonPath("$.path").isEqualTo("/university-composite/" + UNIVERSITY_ID_UNAVAILABLE);
+    }
+
+    @Test
+    public void getUniversityWithoutStudentsIsStale() {
+
+        client.get()
+                .uri("/university-composite/" + UNIVERSITY_ID_STUDENTS_UNAVAILABLE)
+                .accept(APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isEqualTo(OK)
+                .expectHeader().valueEquals(HttpHeaders.WARNING, "110 - \"Response is Stale\"")
+                .expectBody()
+                .jsonPath("$.students.length()").isEqualTo(0);
+    }
+
+    @Test
+    public void getUniversitiesBatch() {
+
+        client.post()
+                .uri("/university-composite/batch")
+                .contentType(APPLICATION_JSON)
+                .accept(APPLICATION_JSON)
+                .body(just(asList(UNIVERSITY_ID_OK, UNIVERSITY_ID_NOT_FOUND)), List.class)
+                .exchange()
+                .expectStatus().isEqualTo(OK)
+                .expectBody()
+                .jsonPath("$.length()").isEqualTo(1)
+                .jsonPath("$[0].universityId").isEqualTo(UNIVERSITY_ID_OK)
+                .jsonPath("$[0].students.length()").isEqualTo(2);
+    }
+
+    @Test
+    public void getUniversitiesBatchKeepsTheRequestedOrder() {
+
+        // Universities come back from the core service in their own order, and the first chunk is the slowest
+        when(compositeIntegration.getUniversities(anyList())).thenAnswer(invocation -> {
+            List<Integer> universityIds = invocation.getArgument(0);
+            Flux<University> universities = Flux.fromIterable(universityIds)
+                    .sort(Comparator.reverseOrder())
+                    .map(universityId -> new University(universityId, "name", "country", "mock-address"));
+            return universityIds.contains(30) ? universities.delaySubscription(Duration.ofMillis(200)) : universities;
+        });
+
+        client.post()
+                .uri("/university-composite/batch")
+                .contentType(APPLICATION_JSON)
+                .accept(APPLICATION_JSON)
+                .body(just(asList(30, 10, 20, 50, 40, 60)), List.class)
+                .exchange()
+                .expectStatus().isEqualTo(OK)
+                .expectBody()
+                .jsonPath("$.length()").isEqualTo(6)
+                .jsonPath("$[0].universityId").isEqualTo(30)
+                .jsonPath("$[1].universityId").isEqualTo(10)
+                .jsonPath("$[2].universityId").isEqualTo(20)
+                .jsonPath("$[3].universityId").isEqualTo(50)
+                .jsonPath("$[4].universityId").isEqualTo(40)
+                .jsonPath("$[5].universityId").isEqualTo(60);
+    }
+
+    private WebTestClient.BodyContentSpec getAndVerifyUniversity(Object universityId, HttpStatus expectedStatus) {
         return client.get()
                 .uri("/university-composite/" + universityId)
                 .accept(APPLICATION_JSON)
@@ -8,7 +8,7 @@ import org.springframework.context.ConfigurableApplicationContext;
 import org.springframework.context.annotation.ComponentScan;
 
 @SpringBootApplication
-@ComponentScan("com.dejanvuk")
+@ComponentScan({"com.dejanvuk.microservices.core.university", "com.dejanvuk.util"})
 public class UniversityServiceApplication {
 
     private static final Logger LOG =
@@ -2,9 +2,14 @@ package com.dejanvuk.microservices.core.university.persistence;
 
 import org.springframework.data.repository.reactive.ReactiveCrudRepository;
 import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.Collection;
+
 @Repository
 public interface UniversityRepository extends ReactiveCrudRepository<UniversityEntity, String> {
     Mono<UniversityEntity> findByUniversityId(int universityId);
+
+    Flux<UniversityEntity> findByUniversityIdIn(Collection<Integer> universityIds);
 }
@@ -3,13 +3,28 @@ package com.dejanvuk.microservices.core.university.services;
 import com.dejanvuk.api.core.university.University;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cloud.stream.annotation.EnableBinding;
 import org.springframework.cloud.stream.annotation.StreamListener;
 import org.springframework.cloud.stream.messaging.Sink;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
 import com.dejanvuk.api.core.university.UniversityService;
 import com.dejanvuk.api.event.Event;
 import com.dejanvuk.util.exceptions.EventProcessingException;
+import com.dejanvuk.util.exceptions.InvalidPayloadException;
+import com.dejanvuk.util.messaging.DeadLetterConfiguration;
+import com.dejanvuk.util.messaging.DeferredAcknowledgement;
+import com.dejanvuk.util.messaging.OrderedEventConsumer;
+import reactor.core.publisher.Mono;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Objects;
 
 @EnableBinding(Sink.class)
 public class MessageProcessor {
@@ -18,27 +33,67 @@ public class MessageProcessor {
 
     private final UniversityService universityService;
 
+    private final OrderedEventConsumer<Event<Integer, University>> consumer;
+
+    private final MessageChannel errorChannel;
+
     @Autowired
-    public MessageProcessor(UniversityService universityService) {
+    public MessageProcessor(UniversityService universityService,
+                            @Value("${app.messaging.processingTimeoutSec:10}") int processingTimeoutSec,
+                            @Value("${app.messaging.lanes:8}") int lanes,
+                            @Value("${app.messaging.maxInFlight:256}") int maxInFlight,
+                            @Value("${app.messaging.maxAttempts:3}") int maxAttempts,
+                            @Value("${app.messaging.backoffMs:500}") int backoffMs,
+                            @Qualifier(DeadLetterConfiguration.INPUT_ERROR_CHANNEL) ObjectProvider<MessageChannel> errorChannel) {
         this.universityService = universityService;
+        this.errorChannel = errorChannel.getIfAvailable();
+        this.consumer = new OrderedEventConsumer<>("university", lanes, maxInFlight, Duration.ofSeconds(processingTimeoutSec),
+                maxAttempts, Duration.ofMillis(backoffMs), Event::getKey, this::processEvent,
+                ex -> !(ex instanceof InvalidPayloadException || ex instanceof EventProcessingException));
     }
 
     @StreamListener(target = Sink.INPUT)
-    public void process(Event<Integer, University> event) {
+    public void process(Message<Event<Integer, University>> message) {
+        Event<Integer, University> event = message.getPayload();
 
-        LOG.info("Event created at {} ", event.getCreationDate());
+        LOG.debug("Event created at {} ", event.getCreationDate());
+
+        DeferredAcknowledgement acknowledgement = DeferredAcknowledgement.from(message, errorChannel);
+        if (acknowledgement != null) {
+            // Acknowledged once written, events of the same university are applied in the order they arrived
+            consumer.accept(event, acknowledgement);
+        } else {
+            // The binder acknowledges as soon as the listener returns, so it has to wait for the write
+            consumer.process(event).block();
+        }
+    }
 
+    public Mono<Void> processEvent(Event<Integer, University> event) {
         switch (event.getEventType()) {
             case CREATE:
                 University university = event.getData();
-                universityService.createUniversity(university);
-                break;
+                return universityService.createUniversity(university)
+                        .onErrorResume(InvalidPayloadException.class, ex -> alreadyCreated(university, ex))
+                        .then();
             case DELETE:
                 int universityId = event.getKey();
-                universityService.deleteUniversity(universityId);
-                break;
+                return universityService.deleteUniversity(universityId);
             default:
-                throw new EventProcessingException("Invalid event!");
+                return Mono.error(new EventProcessingException("Invalid event!"));
         }
     }
+
+    // A retry after a timed out attempt, or a redelivery, finds its own earlier write
+    private Mono<University> alreadyCreated(University university, InvalidPayloadException ex) {
+        return universityService.getUniversities(Collections.singletonList(university.getUniversityId()))
+                .next()
+                .filter(existing -> Objects.equals(existing.getName(), university.getName())
+                        && Objects.equals(existing.getCountry(), university.getCountry()))
+                .switchIfEmpty(Mono.error(ex));
+    }
+
+    @PreDestroy
+    public void stop() {
+        consumer.dispose();
+    }
 }
@@ -7,15 +7,19 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.DuplicateKeyException;
 import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import com.dejanvuk.api.core.university.UniversityService;
 import com.dejanvuk.microservices.core.university.persistence.UniversityRepository;
 import com.dejanvuk.util.exceptions.InvalidPayloadException;
 import com.dejanvuk.util.exceptions.NotFoundException;
+import com.dejanvuk.util.fault.FaultInjector;
 import com.dejanvuk.util.http.ServiceUtil;
+import com.dejanvuk.util.tracing.SignalTracer;
 
+import java.time.Duration;
+import java.util.List;
 import java.util.Objects;
-import java.util.Random;
 
 import static reactor.core.publisher.Mono.error;
 
@@ -27,61 +31,62 @@ public class UniversityServiceImpl implements UniversityService {
     private final ServiceUtil serviceUtil;
     private final UniversityRepository repository;
     private final UniversityMapper mapper;
+    private final FaultInjector faultInjector;
+    private final SignalTracer tracer;
 
     @Autowired
-    public UniversityServiceImpl(ServiceUtil serviceUtil, UniversityRepository universityRepository, UniversityMapper mapper) {
+    public UniversityServiceImpl(ServiceUtil serviceUtil, UniversityRepository universityRepository, UniversityMapper mapper, FaultInjector faultInjector, SignalTracer tracer) {
         this.serviceUtil = serviceUtil;
         this.repository = universityRepository;
         this.mapper = mapper;
+        this.faultInjector = faultInjector;
+        this.tracer = tracer;
     }
 
     @Override
-    public University createUniversity(University body) {
+    public Mono<University> createUniversity(University body) {
         Objects.requireNonNull(body);
 
         if (body.getUniversityId() < 1) throw new InvalidPayloadException("Invalid universityId: " + body.getUniversityId());
 
         UniversityEntity entity = mapper.universityToUniversityEntity(body);
-        Mono<University> newEntity = repository.save(entity)
-                .log()
+        return tracer.trace("university-create", repository.save(entity)
                 .onErrorMap(
                         DuplicateKeyException.class,
                         ex -> new InvalidPayloadException("University Id: " + body.getUniversityId() + " already exists!"))
-                .map(e -> mapper.universityEntityToUniversity(e));
-
-        return newEntity.block();
+                .map(e -> mapper.universityEntityToUniversity(e)));
     }
 
     @Override
     public Mono<University> getUniversity(int universityId, int delay, int faultPercent) {
         if (universityId < 1) throw new InvalidPayloadException("Invalid universityId: " + universityId);
 
-        if (delay > 0) {
-            try {Thread.sleep(delay * 1000);} catch (InterruptedException e) {}
-        }
+        Mono<University> university = tracer.trace("university-get", repository.findByUniversityId(universityId)
+                .switchIfEmpty(error(new NotFoundException("No University found for universityId: " + universityId)))
+                .map(e -> mapper.universityEntityToUniversity(e))
+                .map(e -> {e.setServiceAddress(serviceUtil.getServiceAddress()); return e;}));
+
+        return faultInjector.inject(university, Duration.ofSeconds(delay), faultPercent);
+    }
 
-        if (faultPercent > 0) {
-            final Random randomNumberGenerator = new Random();
-            int randomThreshold = randomNumberGenerator.nextInt((100 - 1) + 1) + 1;
-            if (faultPercent >= randomThreshold) {
-                throw new RuntimeException("Random delay");
-            }
-        }
+    @Override
+    public Flux<University> getUniversities(List<Integer> universityIds) {
+        universityIds.forEach(universityId -> {
+            if (universityId < 1) throw new InvalidPayloadException("Invalid universityId: " + universityId);
+        });
 
-        return repository.findByUniversityId(universityId)
-                .switchIfEmpty(error(new NotFoundException("No University found for universityId: " + universityId)))
-                .log()
+        return repository.findByUniversityIdIn(universityIds)
                 .map(e -> mapper.universityEntityToUniversity(e))
                 .map(e -> {e.setServiceAddress(serviceUtil.getServiceAddress()); return e;});
     }
 
     @Override
-    public void deleteUniversity(int universityId) {
+    public Mono<Void> deleteUniversity(int universityId) {
         if (universityId < 1) throw new InvalidPayloadException("Invalid universityId: " + universityId);
 
-        repository.findByUniversityId(universityId).log().map(e -> repository.delete(e)).flatMap(e -> e).block();
-
-        LOG.debug("Deleted University with universityId: {}", universityId);
+        return tracer.trace("university-delete", repository.findByUniversityId(universityId)
+                .flatMap(e -> repository.delete(e))
+                .doOnSuccess(v -> LOG.debug("Deleted University with universityId: {}", universityId)));
     }
 
 }
@@ -0,0 +1,211 @@
+package com.dejanvuk.microservices.core.university;
+
+import com.dejanvuk.api.core.university.University;
+import com.dejanvuk.api.core.university.UniversityService;
+import com.dejanvuk.api.event.Event;
+import com.dejanvuk.microservices.core.university.services.MessageProcessor;
+import com.dejanvuk.util.exceptions.EventProcessingException;
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.Connection;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.connection.CachingConnectionFactory;
+import org.springframework.amqp.support.AmqpHeaders;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.amqp.RabbitProperties;
+import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
+import org.springframework.cloud.stream.binder.ExtendedConsumerProperties;
+import org.springframework.cloud.stream.binder.ExtendedProducerProperties;
+import org.springframework.cloud.stream.binder.kafka.KafkaMessageChannelBinder;
+import org.springframework.cloud.stream.binder.kafka.properties.KafkaBinderConfigurationProperties;
+import org.springframework.cloud.stream.binder.kafka.properties.KafkaConsumerProperties;
+import org.springframework.cloud.stream.binder.kafka.properties.KafkaProducerProperties;
+import org.springframework.cloud.stream.binder.kafka.provisioning.KafkaTopicProvisioner;
+import org.springframework.cloud.stream.binder.rabbit.RabbitMessageChannelBinder;
+import org.springframework.cloud.stream.binder.rabbit.properties.RabbitConsumerProperties;
+import org.springframework.cloud.stream.binder.rabbit.provisioning.RabbitExchangeQueueProvisioner;
+import org.springframework.cloud.stream.provisioning.ConsumerDestination;
+import org.springframework.integration.IntegrationMessageHeaderAccessor;
+import org.springframework.integration.channel.PublishSubscribeChannel;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.support.MessageBuilder;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.concurrent.ExecutorService;
+
+import static com.dejanvuk.api.event.Event.Type.CREATE;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+// A poison event, rejected after the listener has returned, goes through the binder's own DLQ handler
+public class DeadLetterTests {
+
+    private static final String GROUP = "universitiesGroup";
+    private static final byte[] PAYLOAD = "{\"eventType\":\"CREATE\",\"key\":1}".getBytes(StandardCharsets.UTF_8);
+
+    private final PublishSubscribeChannel errorChannel = new PublishSubscribeChannel();
+
+    private MessageProcessor processor;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        UniversityService universityService = mock(UniversityService.class);
+        when(universityService.createUniversity(any())).thenReturn(Mono.error(new EventProcessingException("Poison event")));
+
+        ObjectProvider<MessageChannel> errorChannelProvider = mock(ObjectProvider.class);
+        when(errorChannelProvider.getIfAvailable()).thenReturn(errorChannel);
+
+        processor = new MessageProcessor(universityService, 10, 2, 16, 3, 10, errorChannelProvider);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        processor.stop();
+    }
+
+    @Test
+    public void rabbitRepublishesToTheDeadLetterExchange() throws Exception {
+        Channel brokerChannel = mock(Channel.class);
+        when(brokerChannel.isOpen()).thenReturn(true);
+        errorChannel.subscribe(new ExposedRabbitBinder(brokerChannel).errorMessageHandler());
+
+        MessageProperties properties = new MessageProperties();
+        properties.setReceivedExchange("universities");
+        properties.setReceivedRoutingKey("#");
+        properties.setConsumerQueue("universities." + GROUP);
+        Channel consumerChannel = mock(Channel.class);
+
+        processor.process(MessageBuilder.withPayload(poisonEvent())
+                .setHeader(AmqpHeaders.CHANNEL, consumerChannel)
+                .setHeader(AmqpHeaders.DELIVERY_TAG, 7L)
+                .setHeader(IntegrationMessageHeaderAccessor.SOURCE_DATA, new org.springframework.amqp.core.Message(PAYLOAD, properties))
+                .build());
+
+        verify(consumerChannel, timeout(5000)).basicAck(7L, false);
+        verify(consumerChannel, never()).basicNack(anyLong(), anyBoolean(), anyBoolean());
+
+        ArgumentCaptor<AMQP.BasicProperties> published = ArgumentCaptor.forClass(AMQP.BasicProperties.class);
+        verify(brokerChannel).basicPublish(eq("DLX"), eq("universities." + GROUP), anyBoolean(), published.capture(), eq(PAYLOAD));
+        assertEquals("Poison event", published.getValue().getHeaders().get("x-exception-message").toString());
+        assertEquals("universities", published.getValue().getHeaders().get("x-original-exchange").toString());
+        assertNotNull(published.getValue().getHeaders().get("x-exception-stacktrace"));
+    }
+
+    @Test
+    public void kafkaSendsTheRecordToTheDlqTopic() {
+        MockProducer<byte[], byte[]> producer = new MockProducer<>(true, new ByteArraySerializer(), new ByteArraySerializer());
+        errorChannel.subscribe(new ExposedKafkaBinder(producer).errorMessageHandler());
+
+        Acknowledgment acknowledgment = mock(Acknowledgment.class);
+
+        processor.process(MessageBuilder.withPayload(poisonEvent())
+                .setHeader(KafkaHeaders.ACKNOWLEDGMENT, acknowledgment)
+                .setHeader(KafkaHeaders.OFFSET, 42L)
+                .setHeader(IntegrationMessageHeaderAccessor.SOURCE_DATA, new ConsumerRecord<>("universities", 0, 42L, null, PAYLOAD))
+                .build());
+
+        verify(acknowledgment, timeout(5000)).acknowledge();
+
+        assertEquals(1, producer.history().size());
+        ProducerRecord<byte[], byte[]> dlq = producer.history().get(0);
+        assertEquals("error.universities." + GROUP, dlq.topic());
+        assertArrayEquals(PAYLOAD, dlq.value());
+        assertTrue(new String(dlq.headers().lastHeader("x-exception-message").value(), StandardCharsets.UTF_8).contains("Poison event"));
+    }
+
+    @Test
+    public void rabbitNacksWithoutTheBindersHandler() throws Exception {
+        Channel consumerChannel = mock(Channel.class);
+
+        processor.process(MessageBuilder.withPayload(poisonEvent())
+                .setHeader(AmqpHeaders.CHANNEL, consumerChannel)
+                .setHeader(AmqpHeaders.DELIVERY_TAG, 7L)
+                .build());
+
+        verify(consumerChannel, timeout(5000)).basicNack(7L, false, false);
+        verify(consumerChannel, never()).basicAck(anyLong(), anyBoolean());
+    }
+
+    private static Event<Integer, University> poisonEvent() {
+        return new Event<>(CREATE, 1, new University(1, "name", "country", null));
+    }
+
+    private static ConsumerDestination destination(String name) {
+        return () -> name;
+    }
+
+    private static class ExposedRabbitBinder extends RabbitMessageChannelBinder {
+
+        ExposedRabbitBinder(Channel brokerChannel) throws Exception {
+            super(connectionFactory(brokerChannel), new RabbitProperties(), new RabbitExchangeQueueProvisioner(connectionFactory(brokerChannel)));
+        }
+
+        MessageHandler errorMessageHandler() {
+            RabbitConsumerProperties consumer = new RabbitConsumerProperties();
+            consumer.setAutoBindDlq(true);
+            consumer.setRepublishToDlq(true);
+            return getErrorMessageHandler(destination("universities." + GROUP), GROUP, new ExtendedConsumerProperties<>(consumer));
+        }
+
+        private static CachingConnectionFactory connectionFactory(Channel brokerChannel) throws Exception {
+            com.rabbitmq.client.ConnectionFactory rabbit = mock(com.rabbitmq.client.ConnectionFactory.class);
+            Connection connection = mock(Connection.class);
+            when(rabbit.newConnection((ExecutorService) any(), anyString())).thenReturn(connection);
+            when(connection.isOpen()).thenReturn(true);
+            when(connection.createChannel()).thenReturn(brokerChannel);
+            return new CachingConnectionFactory(rabbit);
+        }
+    }
+
+    private static class ExposedKafkaBinder extends KafkaMessageChannelBinder {
+
+        private final Producer<byte[], byte[]> producer;
+
+        ExposedKafkaBinder(Producer<byte[], byte[]> producer) {
+            super(binderProperties(), new KafkaTopicProvisioner(binderProperties(), new KafkaProperties()));
+            this.producer = producer;
+        }
+
+        MessageHandler errorMessageHandler() {
+            KafkaConsumerProperties consumer = new KafkaConsumerProperties();
+            consumer.setEnableDlq(true);
+            return getErrorMessageHandler(destination("universities"), GROUP, new ExtendedConsumerProperties<>(consumer));
+        }
+
+        @Override
+        protected DefaultKafkaProducerFactory<byte[], byte[]> getProducerFactory(String transactionIdPrefix,
+                                                                               ExtendedProducerProperties<KafkaProducerProperties> producerProperties) {
+            return new DefaultKafkaProducerFactory<>(Collections.emptyMap()) {
+                @Override
+                protected Producer<byte[], byte[]> createKafkaProducer() {
+                    return producer;
+                }
+            };
+        }
+
+        private static KafkaBinderConfigurationProperties binderProperties() {
+            return new KafkaBinderConfigurationProperties(new KafkaProperties());
+        }
+    }
+}
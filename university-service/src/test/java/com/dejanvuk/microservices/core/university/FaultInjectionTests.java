@@ -0,0 +1,36 @@
+package com.dejanvuk.microservices.core.university;
+
+import com.dejanvuk.util.fault.FaultInjector;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+
+public class FaultInjectionTests {
+
+    private FaultInjector faultInjector = new FaultInjector();
+
+    @Test
+    public void delayDoesNotBlock() {
+        StepVerifier.withVirtualTime(() -> faultInjector.inject(Mono.just("value"), Duration.ofSeconds(3), 0))
+                .expectSubscription()
+                .expectNoEvent(Duration.ofSeconds(3))
+                .expectNext("value")
+                .verifyComplete();
+    }
+
+    @Test
+    public void alwaysFails() {
+        StepVerifier.create(faultInjector.inject(Mono.just("value"), Duration.ZERO, 100))
+                .expectErrorMessage("Random delay")
+                .verify();
+    }
+
+    @Test
+    public void neverFails() {
+        StepVerifier.create(faultInjector.inject(Mono.just("value"), Duration.ZERO, 0))
+                .expectNext("value")
+                .verifyComplete();
+    }
+}
@@ -0,0 +1,108 @@
+package com.dejanvuk.microservices.core.university;
+
+import com.dejanvuk.api.core.university.University;
+import com.dejanvuk.api.core.university.UniversityService;
+import com.dejanvuk.api.event.Event;
+import com.dejanvuk.microservices.core.university.services.MessageProcessor;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.support.MessageBuilder;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static com.dejanvuk.api.event.Event.Type.CREATE;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Compares the blocking listener with deferred acknowledgements, against writes of a fixed latency, run with
+ * -Dbenchmark=true. Embedded Mongo, which the load-test module needs, does not run everywhere.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class MessageConsumptionBenchmarkTests {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MessageConsumptionBenchmarkTests.class);
+
+    private static final int EVENTS = Integer.getInteger("benchmark.events", 5000);
+    private static final int UNIVERSITIES = Integer.getInteger("benchmark.universities", 100);
+    private static final int WRITE_LATENCY_MS = Integer.getInteger("benchmark.writeLatencyMs", 2);
+
+    @Test
+    public void compareBlockingAndDeferredAcknowledgements() throws Exception {
+        long[] blocking = run(false);
+        long[] deferred = run(true);
+
+        report("blocking", blocking);
+        report("deferred", deferred);
+    }
+
+    // Returns the time from delivery until each event was acknowledged, sorted, followed by the elapsed time of the run
+    @SuppressWarnings("unchecked")
+    private long[] run(boolean deferredAck) throws Exception {
+        UniversityService service = mock(UniversityService.class);
+        when(service.createUniversity(any())).thenAnswer(invocation ->
+                Mono.delay(Duration.ofMillis(WRITE_LATENCY_MS)).thenReturn(invocation.getArgument(0)));
+
+        MessageProcessor processor = new MessageProcessor(service, 10, 8, 256, 3, 500, mock(ObjectProvider.class));
+        try {
+            long[] latencies = new long[EVENTS];
+            CountDownLatch done = new CountDownLatch(EVENTS);
+
+            long start = System.nanoTime();
+            for (int i = 0; i < EVENTS; i++) {
+                int universityId = i % UNIVERSITIES + 1;
+                Event<Integer, University> event = new Event<>(CREATE, universityId, new University(universityId, "name", "country", null));
+
+                int index = i;
+                long delivered = System.nanoTime();
+                Acknowledgment acknowledgment = () -> {
+                    latencies[index] = System.nanoTime() - delivered;
+                    done.countDown();
+                };
+
+                MessageBuilder<Event<Integer, University>> message = MessageBuilder.withPayload(event);
+                if (deferredAck) message.setHeader(KafkaHeaders.ACKNOWLEDGMENT, acknowledgment);
+                processor.process(message.build());
+
+                if (!deferredAck) acknowledgment.acknowledge();
+            }
+            assertTrue(done.await(5, TimeUnit.MINUTES));
+            long elapsed = System.nanoTime() - start;
+
+            Arrays.sort(latencies);
+            long[] result = Arrays.copyOf(latencies, EVENTS + 1);
+            result[EVENTS] = elapsed;
+            return result;
+        } finally {
+            processor.stop();
+        }
+    }
+
+    private void report(String mode, long[] result) {
+        long[] latencies = Arrays.copyOf(result, EVENTS);
+        long elapsed = result[EVENTS];
+        LOG.warn("{}: {} events in {} ms ({} events/s), handled p50 = {} ms, p99 = {} ms, max = {} ms",
+                mode, EVENTS, millis(elapsed), Math.round(EVENTS / (elapsed / 1_000_000_000.0)),
+                millis(percentile(latencies, 50)), millis(percentile(latencies, 99)), millis(latencies[EVENTS - 1]));
+    }
+
+    private long percentile(long[] sorted, int percentile) {
+        return sorted[Math.max(0, (int) Math.ceil(percentile / 100.0 * sorted.length) - 1)];
+    }
+
+    private double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
@@ -64,6 +64,17 @@ class UniversityServiceApplicationTests {
                 .jsonPath("$.universityId").isEqualTo(universityId);
     }
 
+    @Test
+    public void getUniversitiesByIds() {
+
+        sendCreateUniversityEvent(1);
+        sendCreateUniversityEvent(2);
+        sendCreateUniversityEvent(3);
+
+        getAndVerifyUniversity("?universityIds=1,3", OK)
+                .jsonPath("$.length()").isEqualTo(2);
+    }
+
     @Test
     public void duplicateError() {
 
@@ -75,8 +86,11 @@ class UniversityServiceApplicationTests {
 
         assertNotNull(repository.findByUniversityId(universityId).block());
 
+        // A redelivery of the same event is accepted, a different university under the same id is not
+        sendCreateUniversityEvent(universityId);
+
         try {
-            sendCreateUniversityEvent(universityId);
+            sendCreateUniversityEvent(universityId, "Other name");
             fail("Expected a MessagingException here!");
         } catch (MessagingException me) {
             if (me.getCause() instanceof InvalidPayloadException)	{
@@ -144,7 +158,11 @@ class UniversityServiceApplicationTests {
     }
 
     private void sendCreateUniversityEvent(int universityId) {
-        University university = new University(universityId, "Name " + universityId, "country " + universityId, "sa");
+        sendCreateUniversityEvent(universityId, "Name " + universityId);
+    }
+
+    private void sendCreateUniversityEvent(int universityId, String name) {
+        University university = new University(universityId, name, "country " + universityId, "sa");
         Event<Integer, University> event = new Event(CREATE, universityId, university);
         input.send(new GenericMessage<>(event));
     }
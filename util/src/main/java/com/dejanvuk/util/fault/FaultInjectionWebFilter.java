@@ -0,0 +1,74 @@
+package com.dejanvuk.util.fault;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+
+@Component
+@EnableConfigurationProperties(FaultInjectionProperties.class)
+public class FaultInjectionWebFilter implements WebFilter {
+
+    private static final Logger LOG = LoggerFactory.getLogger(FaultInjectionWebFilter.class);
+
+    private final FaultInjector faultInjector;
+
+    private final List<RouteFault> routes;
+
+    @Autowired
+    public FaultInjectionWebFilter(FaultInjector faultInjector, FaultInjectionProperties properties) {
+        this.faultInjector = faultInjector;
+        this.routes = !properties.isEnabled() ? List.of() : properties.getRoutes().stream()
+                .map(RouteFault::new)
+                .collect(Collectors.toList());
+
+        routes.forEach(route -> LOG.warn("Fault injection active for {} {}: delay {}, faultPercent {}",
+                route.method == null ? "*" : route.method, route.pattern, route.delay, route.faultPercent));
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        if (routes.isEmpty()) {
+            return chain.filter(exchange);
+        }
+
+        for (RouteFault route : routes) {
+            if (route.matches(exchange)) {
+                return faultInjector.inject(chain.filter(exchange), route.delay, route.faultPercent);
+            }
+        }
+        return chain.filter(exchange);
+    }
+
+    private static class RouteFault {
+
+        private final PathPattern pattern;
+        private final HttpMethod method;
+        private final Duration delay;
+        private final int faultPercent;
+
+        private RouteFault(FaultInjectionProperties.Route route) {
+            this.pattern = new PathPatternParser().parse(route.getPath());
+            this.method = route.getMethod() == null ? null : HttpMethod.resolve(route.getMethod().toUpperCase());
+            this.delay = Duration.ofMillis(route.getDelayMs());
+            this.faultPercent = route.getFaultPercent();
+        }
+
+        private boolean matches(ServerWebExchange exchange) {
+            return (method == null || method == exchange.getRequest().getMethod()) &&
+                    pattern.matches(exchange.getRequest().getPath().pathWithinApplication());
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.dejanvuk.util.fault;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+@Component
+public class FaultInjector {
+
+    private static final Logger LOG = LoggerFactory.getLogger(FaultInjector.class);
+
+    public <T> Mono<T> inject(Mono<T> source, Duration delay, int faultPercent) {
+        if (delay.isZero() && faultPercent <= 0) {
+            return source;
+        }
+
+        Mono<T> faulty = Mono.defer(() -> {
+            if (shouldFail(faultPercent)) {
+                LOG.debug("Injecting fault, faultPercent: {}", faultPercent);
+                return Mono.error(new RuntimeException("Random delay"));
+            }
+            return source;
+        });
+
+        return delay.isZero() ? faulty : Mono.delay(delay).then(faulty);
+    }
+
+    private boolean shouldFail(int faultPercent) {
+        if (faultPercent <= 0) {
+            return false;
+        }
+        int randomThreshold = ThreadLocalRandom.current().nextInt(1, 101);
+        return faultPercent >= randomThreshold;
+    }
+}
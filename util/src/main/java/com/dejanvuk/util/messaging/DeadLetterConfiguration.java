@@ -0,0 +1,46 @@
+package com.dejanvuk.util.messaging;
+
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cloud.stream.config.ConsumerEndpointCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.integration.channel.PublishSubscribeChannel;
+import org.springframework.integration.kafka.inbound.KafkaMessageDrivenChannelAdapter;
+
+// A binder looks up the error channel of a binding, destination.group.errors, before creating its own, and subscribes
+// its DLQ handler to whichever it finds. Declaring the channel of the input binding here gives listeners that
+// acknowledge after returning the same dead-lettering, exception headers included, as listeners that throw
+@Configuration
+@ConditionalOnClass(ConsumerEndpointCustomizer.class)
+@ConditionalOnProperty({"spring.cloud.stream.bindings.input.destination", "spring.cloud.stream.bindings.input.group"})
+public class DeadLetterConfiguration {
+
+    public static final String INPUT_ERROR_CHANNEL = "inputErrorChannel";
+
+    @Bean(INPUT_ERROR_CHANNEL)
+    public PublishSubscribeChannel inputErrorChannel() {
+        return new PublishSubscribeChannel();
+    }
+
+    @Bean
+    public static BeanFactoryPostProcessor inputErrorChannelAlias(Environment environment) {
+        String name = environment.getProperty("spring.cloud.stream.bindings.input.destination") + "."
+                + environment.getProperty("spring.cloud.stream.bindings.input.group") + ".errors";
+        return beanFactory -> beanFactory.registerAlias(INPUT_ERROR_CHANNEL, name);
+    }
+
+    // The Kafka DLQ handler republishes the ConsumerRecord, which the binder only keeps on error messages it builds
+    // itself unless the adapter binds it to every message
+    @Configuration
+    @ConditionalOnClass(KafkaMessageDrivenChannelAdapter.class)
+    static class KafkaSourceRecord {
+
+        @Bean
+        public ConsumerEndpointCustomizer<KafkaMessageDrivenChannelAdapter<?, ?>> bindSourceRecord() {
+            return (adapter, destination, group) -> adapter.setBindSourceRecord(true);
+        }
+    }
+}
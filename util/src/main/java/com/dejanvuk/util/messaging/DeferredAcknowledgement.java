@@ -0,0 +1,125 @@
+package com.dejanvuk.util.messaging;
+
+import com.rabbitmq.client.Channel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.support.AmqpHeaders;
+import org.springframework.integration.IntegrationMessageHeaderAccessor;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.MessagingException;
+import org.springframework.messaging.support.ErrorMessage;
+
+import java.io.IOException;
+import java.util.Collections;
+
+// Settles a message after the listener has returned. Needs acknowledgeMode MANUAL on a Rabbit binding, or
+// autoCommitOffset false on a Kafka binding; with the binder's own acknowledgements there is nothing to defer.
+// A rejected message is sent to the error channel of its binding, where the binder's DLQ handler republishes it the
+// same way it does for a listener that throws (see DeadLetterConfiguration)
+public abstract class DeferredAcknowledgement {
+
+    private static final Logger LOG = LoggerFactory.getLogger(DeferredAcknowledgement.class);
+
+    private final Message<?> message;
+    private final MessageChannel errorChannel;
+
+    private DeferredAcknowledgement(Message<?> message, MessageChannel errorChannel) {
+        this.message = message;
+        this.errorChannel = errorChannel;
+    }
+
+    // Returns null when the binder acknowledges the message itself as soon as the listener returns
+    public static DeferredAcknowledgement from(Message<?> message, MessageChannel errorChannel) {
+        MessageHeaders headers = message.getHeaders();
+        if (headers.containsKey(AmqpHeaders.CHANNEL) && headers.containsKey(AmqpHeaders.DELIVERY_TAG)) {
+            return new RabbitAcknowledgement(message, errorChannel);
+        }
+        if (headers.containsKey(KafkaHeaders.ACKNOWLEDGMENT)) {
+            return new KafkaAcknowledgement(message, errorChannel);
+        }
+        return null;
+    }
+
+    public abstract void accept();
+
+    public abstract void reject(Throwable ex);
+
+    // The binder's DLQ handlers republish the raw broker message they find in the sourceData header
+    boolean deadLetter(Throwable cause) {
+        Object sourceData = message.getHeaders().get(IntegrationMessageHeaderAccessor.SOURCE_DATA);
+        if (errorChannel == null || sourceData == null) return false;
+
+        try {
+            return errorChannel.send(new ErrorMessage(new MessagingException(message, cause),
+                    Collections.singletonMap(IntegrationMessageHeaderAccessor.SOURCE_DATA, sourceData), message));
+        } catch (RuntimeException ex) {
+            LOG.warn("Failed to dead-letter message: {}", ex.toString());
+            return false;
+        }
+    }
+
+    // Without the binder's DLQ handler the message is nacked, the broker still dead-letters it through the DLX the
+    // binder declares with autoBindDlq, only without the exception headers
+    private static class RabbitAcknowledgement extends DeferredAcknowledgement {
+        private final Channel channel;
+        private final long deliveryTag;
+
+        RabbitAcknowledgement(Message<?> message, MessageChannel errorChannel) {
+            super(message, errorChannel);
+            this.channel = message.getHeaders().get(AmqpHeaders.CHANNEL, Channel.class);
+            this.deliveryTag = message.getHeaders().get(AmqpHeaders.DELIVERY_TAG, Long.class);
+        }
+
+        @Override
+        public void accept() {
+            try {
+                channel.basicAck(deliveryTag, false);
+            } catch (IOException ex) {
+                LOG.warn("Failed to ack message {}, the broker will redeliver it: {}", deliveryTag, ex.toString());
+            }
+        }
+
+        @Override
+        public void reject(Throwable cause) {
+            if (deadLetter(cause)) {
+                accept();
+                return;
+            }
+            try {
+                channel.basicNack(deliveryTag, false, false);
+            } catch (IOException ex) {
+                LOG.warn("Failed to nack message {}, the broker will redeliver it: {}", deliveryTag, ex.toString());
+            }
+        }
+    }
+
+    // Kafka has no per-record reject, committing past a failed record is the only way to move on. Without the binder's
+    // DLQ handler the record is only logged
+    private static class KafkaAcknowledgement extends DeferredAcknowledgement {
+        private final Acknowledgment acknowledgment;
+        private final Object offset;
+
+        KafkaAcknowledgement(Message<?> message, MessageChannel errorChannel) {
+            super(message, errorChannel);
+            this.acknowledgment = message.getHeaders().get(KafkaHeaders.ACKNOWLEDGMENT, Acknowledgment.class);
+            this.offset = message.getHeaders().get(KafkaHeaders.OFFSET);
+        }
+
+        @Override
+        public void accept() {
+            acknowledgment.acknowledge();
+        }
+
+        @Override
+        public void reject(Throwable ex) {
+            if (!deadLetter(ex)) {
+                LOG.error("Skipping message at offset {} after it failed: {}", offset, ex.toString());
+            }
+            acknowledgment.acknowledge();
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.dejanvuk.util.messaging;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.cloud.stream.converter.CompositeMessageConverterFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.converter.MessageConverter;
+
+// Consumers decode whatever the contentType header of a message says, so producers can switch a binding to
+// application/x-jackson-smile once every consumer runs with this converter. The binder adds every MessageConverter
+// bean to the converters it picks from by content type
+@Configuration
+@ConditionalOnClass(CompositeMessageConverterFactory.class)
+public class MessagingConfiguration {
+
+    @Bean
+    public MessageConverter smileMessageConverter() {
+        return new SmileMessageConverter();
+    }
+}
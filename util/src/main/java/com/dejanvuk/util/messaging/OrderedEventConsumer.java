@@ -0,0 +1,129 @@
+package com.dejanvuk.util.messaging;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.FluxSink;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.UnicastProcessor;
+import reactor.util.concurrent.Queues;
+
+import java.time.Duration;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+// Handles events on a fixed number of lanes. Events with the same key always share a lane and are handled one after
+// the other, so their order survives while events of different keys are written concurrently. The listener thread
+// only hands an event over, and waits only while maxInFlight events are pending. Acknowledgements are released in
+// arrival order, since committing a Kafka offset also commits every offset before it
+public class OrderedEventConsumer<E> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(OrderedEventConsumer.class);
+
+    private final String name;
+    private final Function<E, Object> keyOf;
+    private final Function<E, Mono<Void>> handler;
+    private final Predicate<Throwable> retryable;
+    private final Duration timeout;
+    private final int maxAttempts;
+    private final Duration backoff;
+
+    private final Semaphore inFlight;
+    private final Queue<Pending> unsettled = new ConcurrentLinkedQueue<>();
+    private final FluxSink<Pending>[] lanes;
+    private final Disposable.Composite subscriptions = Disposables.composite();
+
+    @SuppressWarnings("unchecked")
+    public OrderedEventConsumer(String name, int lanes, int maxInFlight, Duration timeout, int maxAttempts, Duration backoff,
+                                Function<E, Object> keyOf, Function<E, Mono<Void>> handler, Predicate<Throwable> retryable) {
+        this.name = name;
+        this.keyOf = keyOf;
+        this.handler = handler;
+        this.retryable = retryable;
+        this.timeout = timeout;
+        this.maxAttempts = maxAttempts;
+        this.backoff = backoff;
+        this.inFlight = new Semaphore(maxInFlight);
+        this.lanes = new FluxSink[lanes];
+
+        for (int i = 0; i < lanes; i++) {
+            UnicastProcessor<Pending> lane = UnicastProcessor.create(Queues.<Pending>unboundedMultiproducer().get());
+            this.lanes[i] = lane.sink();
+            subscriptions.add(lane
+                    .concatMap(pending -> process(pending.event)
+                            .doOnSuccess(v -> pending.complete(null))
+                            .onErrorResume(ex -> {
+                                pending.complete(ex);
+                                return Mono.empty();
+                            }))
+                    .subscribe());
+        }
+
+        LOG.info("Consuming {} events on {} lanes, maxInFlight: {}, timeout: {}, maxAttempts: {}", name, lanes, maxInFlight, timeout, maxAttempts);
+    }
+
+    public void accept(E event, DeferredAcknowledgement acknowledgement) {
+        inFlight.acquireUninterruptibly();
+
+        Pending pending = new Pending(event, acknowledgement);
+        unsettled.add(pending);
+        lanes[Math.floorMod(keyOf.apply(event).hashCode(), lanes.length)].next(pending);
+    }
+
+    // Each attempt is cancelled when it times out, so handlers have to tolerate a write that still lands afterwards
+    public Mono<Void> process(E event) {
+        return Mono.defer(() -> handler.apply(event))
+                .timeout(timeout)
+                .retryWhen(errors -> errors.index().concatMap(failure -> {
+                    long attempt = failure.getT1() + 1;
+                    Throwable ex = failure.getT2();
+                    if (attempt >= maxAttempts || !retryable.test(ex)) return Mono.error(ex);
+
+                    LOG.debug("Attempt {} of {} event {} failed, retrying: {}", attempt, name, keyOf.apply(event), ex.toString());
+                    return Mono.delay(backoff.multipliedBy(1L << Math.min(attempt - 1, 10)));
+                }));
+    }
+
+    public void dispose() {
+        subscriptions.dispose();
+    }
+
+    private void settle() {
+        synchronized (unsettled) {
+            Pending head;
+            while ((head = unsettled.peek()) != null && head.done) {
+                unsettled.poll();
+                inFlight.release();
+
+                if (head.error == null) {
+                    head.acknowledgement.accept();
+                } else {
+                    LOG.warn("Rejecting {} event {}: {}", name, keyOf.apply(head.event), head.error.toString());
+                    head.acknowledgement.reject(head.error);
+                }
+            }
+        }
+    }
+
+    private class Pending {
+        private final E event;
+        private final DeferredAcknowledgement acknowledgement;
+        private volatile Throwable error;
+        private volatile boolean done;
+
+        Pending(E event, DeferredAcknowledgement acknowledgement) {
+            this.event = event;
+            this.acknowledgement = acknowledgement;
+        }
+
+        void complete(Throwable error) {
+            this.error = error;
+            this.done = true;
+            settle();
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.dejanvuk.util.messaging;
+
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.util.MimeType;
+
+public class SmileMessageConverter extends MappingJackson2MessageConverter {
+
+    public static final MimeType APPLICATION_SMILE = new MimeType("application", "x-jackson-smile");
+
+    public SmileMessageConverter() {
+        super(APPLICATION_SMILE);
+        setObjectMapper(Jackson2ObjectMapperBuilder.smile().build());
+    }
+}
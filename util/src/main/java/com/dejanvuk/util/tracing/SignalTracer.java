@@ -0,0 +1,133 @@
+package com.dejanvuk.util.tracing;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Replaces Reactor's log() operator on hot paths: every subscription is timed, but only a sampled fraction of them
+// is traced, and then as a single summary line instead of one line per signal
+@Component
+@EnableConfigurationProperties(SignalTracingProperties.class)
+public class SignalTracer {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SignalTracer.class);
+
+    private static final String METRIC_NAME = "reactive.pipeline";
+
+    private final MeterRegistry registry;
+    private final SignalTracingProperties properties;
+
+    private final Map<String, Pipeline> pipelines = new ConcurrentHashMap<>();
+
+    // Test slices without actuator have no registry bean, the global registry keeps the tracer usable there
+    @Autowired
+    public SignalTracer(ObjectProvider<MeterRegistry> registry, SignalTracingProperties properties) {
+        this(registry.getIfAvailable(() -> Metrics.globalRegistry), properties);
+    }
+
+    public SignalTracer(MeterRegistry registry, SignalTracingProperties properties) {
+        this.registry = registry;
+        this.properties = properties;
+
+        LOG.info("Signal tracing enabled: {}, sampleRate: {}, pipelines: {}",
+                properties.isEnabled(), properties.getSampleRate(), properties.getPipelines().keySet());
+    }
+
+    public <T> Mono<T> trace(String name, Mono<T> source) {
+        Pipeline pipeline = pipeline(name);
+        return Mono.defer(() -> {
+            Subscription subscription = pipeline.subscribe();
+            Mono<T> traced = subscription.sampled ? source.doOnNext(value -> subscription.elements++).doOnError(subscription::onError) : source;
+            return traced.doFinally(subscription::finish);
+        });
+    }
+
+    public <T> Flux<T> trace(String name, Flux<T> source) {
+        Pipeline pipeline = pipeline(name);
+        return Flux.defer(() -> {
+            Subscription subscription = pipeline.subscribe();
+            Flux<T> traced = subscription.sampled ? source.doOnNext(value -> subscription.elements++).doOnError(subscription::onError) : source;
+            return traced.doFinally(subscription::finish);
+        });
+    }
+
+    private Pipeline pipeline(String name) {
+        return pipelines.computeIfAbsent(name, Pipeline::new);
+    }
+
+    private class Pipeline {
+
+        private final String name;
+        private final double sampleRate;
+
+        private final Timer success;
+        private final Timer error;
+        private final Timer cancelled;
+
+        private Pipeline(String name) {
+            SignalTracingProperties.Pipeline settings = properties.getPipelines().getOrDefault(name, new SignalTracingProperties.Pipeline());
+            boolean enabled = settings.getEnabled() != null ? settings.getEnabled() : properties.isEnabled();
+
+            this.name = name;
+            this.sampleRate = !enabled ? 0.0 : settings.getSampleRate() != null ? settings.getSampleRate() : properties.getSampleRate();
+            this.success = timer("success");
+            this.error = timer("error");
+            this.cancelled = timer("cancelled");
+        }
+
+        private Timer timer(String outcome) {
+            return Timer.builder(METRIC_NAME).tag("pipeline", name).tag("outcome", outcome).register(registry);
+        }
+
+        private Subscription subscribe() {
+            boolean sampled = sampleRate > 0 && LOG.isInfoEnabled() &&
+                    (sampleRate >= 1.0 || ThreadLocalRandom.current().nextDouble() < sampleRate);
+            return new Subscription(this, sampled);
+        }
+    }
+
+    private static class Subscription {
+
+        private final Pipeline pipeline;
+        private final boolean sampled;
+        private final long start = System.nanoTime();
+
+        // Signals of a single subscription are serialized, so plain fields are enough here
+        private long elements;
+        private Throwable error;
+
+        private Subscription(Pipeline pipeline, boolean sampled) {
+            this.pipeline = pipeline;
+            this.sampled = sampled;
+        }
+
+        private void onError(Throwable ex) {
+            this.error = ex;
+        }
+
+        private void finish(SignalType signal) {
+            long elapsed = System.nanoTime() - start;
+            Timer timer = signal == SignalType.ON_COMPLETE ? pipeline.success : signal == SignalType.ON_ERROR ? pipeline.error : pipeline.cancelled;
+            timer.record(elapsed, TimeUnit.NANOSECONDS);
+
+            if (sampled) {
+                LOG.info("Pipeline {} {} after {} ms with {} elements{}", pipeline.name, signal, TimeUnit.NANOSECONDS.toMillis(elapsed),
+                        elements, error == null ? "" : ": " + error);
+            }
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.dejanvuk.util.tracing;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@ConfigurationProperties(prefix = "app.tracing")
+public class SignalTracingProperties {
+
+    private boolean enabled = true;
+
+    private double sampleRate = 0.0;
+
+    private Map<String, Pipeline> pipelines = new HashMap<>();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public double getSampleRate() {
+        return sampleRate;
+    }
+
+    public void setSampleRate(double sampleRate) {
+        this.sampleRate = sampleRate;
+    }
+
+    public Map<String, Pipeline> getPipelines() {
+        return pipelines;
+    }
+
+    public void setPipelines(Map<String, Pipeline> pipelines) {
+        this.pipelines = pipelines;
+    }
+
+    // Unset values fall back to the global enabled flag and sampleRate
+    public static class Pipeline {
+
+        private Boolean enabled;
+        private Double sampleRate;
+
+        public Boolean getEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(Boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public Double getSampleRate() {
+            return sampleRate;
+        }
+
+        public void setSampleRate(Double sampleRate) {
+            this.sampleRate = sampleRate;
+        }
+    }
+}